@@ -1,7 +1,22 @@
 package org.pancakelab;
 
+import org.pancakelab.http.HttpConfig;
+import org.pancakelab.http.OrderHttpServer;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.PancakeService;
+
+import java.io.IOException;
+
+/**
+ * Serves the order API over HTTP on the port given as the first argument, 8080 by default.
+ */
 public class Main {
-    public static void main(String[] args) {
-        System.out.println("Hello world!");
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        PancakeService pancakeService = new PancakeService();
+        OrderHttpServer server = new OrderHttpServer(new OrderManager(pancakeService), pancakeService,
+                HttpConfig.of(port));
+        server.start();
+        System.out.println("Serving orders on port " + server.port());
     }
-}
\ No newline at end of file
+}
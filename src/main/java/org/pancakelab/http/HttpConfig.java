@@ -0,0 +1,24 @@
+package org.pancakelab.http;
+
+import java.net.InetSocketAddress;
+import java.util.Objects;
+
+/**
+ * Where an {@link OrderHttpServer} listens and how much it takes on at once. {@code maxConcurrentRequests} counts
+ * requests being handled or waiting for one of the {@code workerThreads}; requests beyond it are turned away with
+ * 503 straight away rather than queued.
+ */
+public record HttpConfig(InetSocketAddress address, int workerThreads, int maxConcurrentRequests) {
+
+    public HttpConfig {
+        Objects.requireNonNull(address, "address");
+        if (workerThreads < 1 || maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("Worker thread and concurrent request limits should be positive");
+        }
+    }
+
+    public static HttpConfig of(int port) {
+        int workers = 4 * Runtime.getRuntime().availableProcessors();
+        return new HttpConfig(new InetSocketAddress(port), workers, 16 * workers);
+    }
+}
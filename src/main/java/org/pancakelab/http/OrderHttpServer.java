@@ -0,0 +1,305 @@
+package org.pancakelab.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.pancakelab.model.Order;
+import org.pancakelab.service.AdmissionControl;
+import org.pancakelab.service.DeliveredOrder;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.PancakeService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP/1.1 front end for an {@link OrderManager} and its {@link PancakeService}, on the JDK's built-in server.
+ * Connections are kept alive between requests and have Nagle's algorithm turned off. The server's own thread only
+ * accepts and parses requests; each request is then handled on one of a fixed pool of worker threads, and requests
+ * beyond the configured limit are answered with 503 without being queued.
+ * <p>
+ * Requests carry their arguments in the query string and have no body. Responses are UTF-8 text: ids one per line,
+ * and pancakes as {@code count<TAB>description} lines. Only ids, numbers and strings ever leave the server.
+ * <pre>
+ * POST   /orders?building=&amp;room=                      create an order; 201 with its id
+ * GET    /orders?status=COMPLETED|PREPARED&amp;after=&amp;limit=  list order ids
+ * GET    /orders/{id}                                  view an order's pancakes
+ * POST   /orders/{id}/pancake                          start a new pancake
+ * POST   /orders/{id}/pancake/ingredients?name=        add an ingredient to it
+ * POST   /orders/{id}/pancakes?count=                  add the pancake to the order
+ * DELETE /orders/{id}/pancakes?description=&amp;count=      remove pancakes
+ * POST   /orders/{id}/complete, /cancel, /prepare      change the order's status
+ * POST   /orders/{id}/deliver                          deliver it; {@code building<TAB>room} and its pancakes
+ * </pre>
+ * Unknown orders are 404, invalid arguments 400 and changes the order's status does not allow 409. New orders
+ * turned away by the manager's {@link AdmissionControl} are 503 with a {@code Retry-After} header.
+ * <p>
+ * A request other than GET may carry an {@code Idempotency-Key} header with a UUID chosen by the client; a retry
+ * with the same key is answered with the first attempt's response, through {@link OrderManager#once}, rather than
+ * applied again. The key alone identifies the request, so clients should not reuse one for a different request.
+ * <p>
+ * The server does not authenticate anyone. Order ids cannot be guessed from one another, but anyone who can reach
+ * the server can list the completed and prepared ones and act on any order, so it must only be reachable through
+ * something that authenticates callers, or from a trusted network.
+ */
+public class OrderHttpServer implements AutoCloseable {
+    private static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+    private static final int DEFAULT_LIST_LIMIT = 100;
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    static {
+        // the server writes headers and body separately, and with Nagle's algorithm the body then waits for the
+        // client's delayed ACK, some 40 ms per request on a kept-alive connection; read once, when the server loads
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+    }
+
+    private final OrderManager orderManager;
+    private final PancakeService pancakeService;
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final Semaphore permits;
+    private final LongAdder rejectedRequests = new LongAdder();
+
+    public OrderHttpServer(OrderManager orderManager, PancakeService pancakeService, HttpConfig config)
+            throws IOException {
+        this.orderManager = orderManager;
+        this.pancakeService = pancakeService;
+        this.server = HttpServer.create(config.address(), 0);
+        this.workers = Executors.newFixedThreadPool(config.workerThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "order-http-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.permits = new Semaphore(config.maxConcurrentRequests());
+        server.createContext("/orders", this::dispatch);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * The port the server listens on, which is the one picked by the system when configured with port 0.
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Number of requests answered with 503 because the concurrent request limit was reached.
+     */
+    public long rejectedRequests() {
+        return rejectedRequests.sum();
+    }
+
+    /**
+     * Stops accepting connections and waits for the requests being handled, or interrupts them and keeps the
+     * interrupt if the calling thread is interrupted meanwhile.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatch(HttpExchange exchange) {
+        if (!permits.tryAcquire()) {
+            rejectedRequests.increment();
+            respond(exchange, 503, "Too many requests");
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    handle(exchange);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException closing) {
+            permits.release();
+            respond(exchange, 503, "Shutting down");
+        }
+    }
+
+    private void handle(HttpExchange exchange) {
+        int status;
+        String body;
+        try (InputStream request = exchange.getRequestBody()) {
+            // drained so that the connection can take the next request
+            request.transferTo(OutputStream.nullOutputStream());
+            String method = exchange.getRequestMethod();
+            URI uri = exchange.getRequestURI();
+            String key = exchange.getRequestHeaders().getFirst(IDEMPOTENCY_KEY);
+            Response response = key == null || "GET".equals(method)
+                    ? route(method, uri)
+                    : orderManager.once(UUID.fromString(key), () -> route(method, uri));
+            status = response.status;
+            body = response.body;
+        } catch (IllegalArgumentException e) {
+            status = "Order not found".equals(e.getMessage()) ? 404 : 400;
+            body = String.valueOf(e.getMessage());
+        } catch (AdmissionControl.OverloadedException e) {
+            exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+            status = 503;
+            body = String.valueOf(e.getMessage());
+        } catch (IllegalStateException e) {
+            status = 409;
+            body = String.valueOf(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            status = 500;
+            body = String.valueOf(e.getMessage());
+        }
+        respond(exchange, status, body);
+    }
+
+    private Response route(String method, URI uri) {
+        String[] path = uri.getRawPath().split("/");
+        Map<String, String> query = parseQuery(uri.getRawQuery());
+        if (path.length < 2 || !"orders".equals(path[1])) {
+            return Response.NOT_FOUND;
+        }
+        if (path.length == 2) {
+            return switch (method) {
+                case "POST" -> new Response(201, orderManager.createOrder(
+                        intParam(query, "building"), intParam(query, "room")).toString());
+                case "GET" -> list(query);
+                default -> Response.METHOD_NOT_ALLOWED;
+            };
+        }
+        UUID orderId = UUID.fromString(path[2]);
+        String action = method + " " + String.join("/", List.of(path).subList(3, path.length));
+        switch (action) {
+            case "GET " -> {
+                return new Response(200, encode(orderManager.viewOrderSummary(orderId)));
+            }
+            case "POST pancake" -> orderManager.startNewPancake(orderId);
+            case "POST pancake/ingredients" -> pancakeService.addIngredientToPancake(orderId, param(query, "name"));
+            case "POST pancakes" -> orderManager.addPancake(orderId, intParam(query, "count"));
+            case "DELETE pancakes" ->
+                    orderManager.removePancakes(param(query, "description"), orderId, intParam(query, "count"));
+            case "POST complete" -> orderManager.completeOrder(orderId);
+            case "POST cancel" -> orderManager.cancelOrder(orderId);
+            case "POST prepare" -> orderManager.prepareOrder(orderId);
+            case "POST deliver" -> {
+                return deliver(orderId);
+            }
+            default -> {
+                return Response.NOT_FOUND;
+            }
+        }
+        return Response.NO_CONTENT;
+    }
+
+    private Response list(Map<String, String> query) {
+        String after = query.get("after");
+        UUID afterId = after == null || after.isEmpty() ? null : UUID.fromString(after);
+        int limit = query.containsKey("limit") ? intParam(query, "limit") : DEFAULT_LIST_LIMIT;
+        List<UUID> orderIds = switch (param(query, "status")) {
+            case "COMPLETED" -> orderManager.listCompletedOrders(afterId, limit);
+            case "PREPARED" -> orderManager.listPreparedOrders(afterId, limit);
+            default -> throw new IllegalArgumentException("Only COMPLETED and PREPARED orders can be listed");
+        };
+        StringBuilder body = new StringBuilder(orderIds.size() * 37);
+        for (UUID orderId : orderIds) {
+            body.append(orderId).append('\n');
+        }
+        return new Response(200, body.toString());
+    }
+
+    private Response deliver(UUID orderId) {
+        DeliveredOrder delivered = orderManager.deliverOrderSummary(orderId);
+        if (delivered == null) {
+            return new Response(409, "Order is not prepared");
+        }
+        Order order = delivered.order();
+        return new Response(200, order.getBuilding() + "\t" + order.getRoom() + "\n" + encode(delivered.pancakes()));
+    }
+
+    private static String encode(Map<String, Integer> summary) {
+        StringBuilder body = new StringBuilder();
+        summary.forEach((description, count) -> body.append(count).append('\t').append(description).append('\n'));
+        return body.toString();
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static String param(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static int intParam(Map<String, String> query, String name) {
+        return Integer.parseInt(param(query, name));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) {
+        try {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            if (bytes.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+        } catch (IOException clientGone) {
+            // nothing left to tell the client
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static final class Response {
+        private static final Response NO_CONTENT = new Response(204, "");
+        private static final Response NOT_FOUND = new Response(404, "No such resource");
+        private static final Response METHOD_NOT_ALLOWED = new Response(405, "Method not allowed");
+
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
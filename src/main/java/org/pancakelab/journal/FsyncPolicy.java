@@ -0,0 +1,21 @@
+package org.pancakelab.journal;
+
+/**
+ * When appended journal records are forced to disk.
+ */
+public enum FsyncPolicy {
+
+    /**
+     * Never force explicitly; the operating system writes the mapped pages back when it sees fit.
+     */
+    NONE,
+    /**
+     * Force periodically in the background; appends never wait, a crash loses at most one interval.
+     */
+    INTERVAL,
+    /**
+     * Appends wait until their record is on disk. Concurrent appends share one force, so the cost of a sync is
+     * spread over everything written while the previous one was running.
+     */
+    GROUP_COMMIT;
+}
@@ -0,0 +1,30 @@
+package org.pancakelab.journal;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Where and how an {@link MappedOrderJournal} writes. {@code fsyncInterval} is only used by
+ * {@link FsyncPolicy#INTERVAL}.
+ */
+public record JournalConfig(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, Duration fsyncInterval) {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    static final int MIN_SEGMENT_SIZE = 4096;
+
+    public JournalConfig {
+        Objects.requireNonNull(directory, "directory");
+        Objects.requireNonNull(fsyncPolicy, "fsyncPolicy");
+        Objects.requireNonNull(fsyncInterval, "fsyncInterval");
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size should be at least " + MIN_SEGMENT_SIZE + " bytes");
+        }
+        if (fsyncInterval.isNegative() || fsyncInterval.isZero()) {
+            throw new IllegalArgumentException("Fsync interval should be positive");
+        }
+    }
+
+    public static JournalConfig of(Path directory) {
+        return new JournalConfig(directory, DEFAULT_SEGMENT_SIZE, FsyncPolicy.GROUP_COMMIT, Duration.ofMillis(10));
+    }
+}
@@ -0,0 +1,124 @@
+package org.pancakelab.journal;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * One order event in the journal. Fields that do not apply to a record's type are zero.
+ * <p>
+ * Binary layout, big-endian: {@code int crc32c | byte type | long idHigh | long idLow | payload}, where the payload is
+ * {@code int building | int room} for {@link Type#CREATE}, {@code long recipeCode | int count} for pancake records
+ * and empty for status changes and moves. The checksum covers everything after itself, so a torn write is detected
+ * and treated as the end of the journal.
+ */
+public record JournalRecord(Type type, UUID orderId, int building, int room, long recipeCode, int count) {
+    static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES + 2 * Long.BYTES;
+    static final int MAX_SIZE = HEADER_SIZE + Long.BYTES + Integer.BYTES;
+
+    public enum Type {
+        CREATE(2 * Integer.BYTES),
+        ADD_PANCAKES(Long.BYTES + Integer.BYTES),
+        REMOVE_PANCAKES(Long.BYTES + Integer.BYTES),
+        COMPLETE(0),
+        PREPARE(0),
+        CANCEL(0),
+        DELIVER(0),
+        // the order was handed over to another manager
+        MOVE(0);
+
+        private static final Type[] TYPES = values();
+
+        private final int payloadSize;
+
+        Type(int payloadSize) {
+            this.payloadSize = payloadSize;
+        }
+
+        private byte code() {
+            // zero is left for unwritten space
+            return (byte) (ordinal() + 1);
+        }
+
+        private static Type ofCode(byte code) {
+            return code > 0 && code <= TYPES.length ? TYPES[code - 1] : null;
+        }
+    }
+
+    public static JournalRecord create(UUID orderId, int building, int room) {
+        return new JournalRecord(Type.CREATE, orderId, building, room, 0, 0);
+    }
+
+    public static JournalRecord addPancakes(UUID orderId, long recipeCode, int count) {
+        return new JournalRecord(Type.ADD_PANCAKES, orderId, 0, 0, recipeCode, count);
+    }
+
+    public static JournalRecord removePancakes(UUID orderId, long recipeCode, int count) {
+        return new JournalRecord(Type.REMOVE_PANCAKES, orderId, 0, 0, recipeCode, count);
+    }
+
+    public static JournalRecord of(Type type, UUID orderId) {
+        if (type.payloadSize != 0) {
+            throw new IllegalArgumentException(type + " records carry a payload");
+        }
+        return new JournalRecord(type, orderId, 0, 0, 0, 0);
+    }
+
+    int size() {
+        return HEADER_SIZE + type.payloadSize;
+    }
+
+    void writeTo(ByteBuffer buffer, int offset) {
+        int position = offset + Integer.BYTES;
+        buffer.put(position, type.code());
+        buffer.putLong(position + 1, orderId.getMostSignificantBits());
+        buffer.putLong(position + 9, orderId.getLeastSignificantBits());
+        position += 17;
+        switch (type) {
+            case CREATE -> {
+                buffer.putInt(position, building);
+                buffer.putInt(position + Integer.BYTES, room);
+            }
+            case ADD_PANCAKES, REMOVE_PANCAKES -> {
+                buffer.putLong(position, recipeCode);
+                buffer.putInt(position + Long.BYTES, count);
+            }
+            default -> {
+            }
+        }
+        buffer.putInt(offset, checksum(buffer, offset, size()));
+    }
+
+    /**
+     * Reads the record at {@code offset}, or returns {@code null} if there is none: unwritten space, a record cut
+     * off by the end of the buffer or one whose checksum does not match.
+     */
+    static JournalRecord readFrom(ByteBuffer buffer, int offset) {
+        if (offset + HEADER_SIZE > buffer.limit()) {
+            return null;
+        }
+        Type type = Type.ofCode(buffer.get(offset + Integer.BYTES));
+        if (type == null) {
+            return null;
+        }
+        int size = HEADER_SIZE + type.payloadSize;
+        if (offset + size > buffer.limit() || buffer.getInt(offset) != checksum(buffer, offset, size)) {
+            return null;
+        }
+        int position = offset + Integer.BYTES + 1;
+        UUID orderId = new UUID(buffer.getLong(position), buffer.getLong(position + Long.BYTES));
+        position += 2 * Long.BYTES;
+        return switch (type) {
+            case CREATE -> create(orderId, buffer.getInt(position), buffer.getInt(position + Integer.BYTES));
+            case ADD_PANCAKES, REMOVE_PANCAKES -> new JournalRecord(type, orderId, 0, 0, buffer.getLong(position),
+                    buffer.getInt(position + Long.BYTES));
+            default -> of(type, orderId);
+        };
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int size) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().limit(offset + size).position(offset + Integer.BYTES));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,306 @@
+package org.pancakelab.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * {@link OrderJournal} written to fixed-size, memory-mapped segment files named {@code segment-<index>.journal}.
+ * A record never spans two segments: when it does not fit, the rest of the segment stays zeroed and the record
+ * goes to the next one. The LSN of a record is {@code segmentIndex * segmentSize + offset}.
+ * <p>
+ * On open, the end of the last segment is found by scanning to the first missing or corrupt record, and
+ * everything after it is zeroed so a torn tail can never resurface.
+ */
+public final class MappedOrderJournal implements OrderJournal {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    private int position;
+    private volatile long written;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition syncRequested = syncLock.newCondition();
+    private final Condition synced = syncLock.newCondition();
+    private long requested;
+    private volatile long durable;
+    private volatile boolean open = true;
+    private final Thread flusher;
+
+    public MappedOrderJournal(JournalConfig config) {
+        this.directory = config.directory();
+        this.segmentSize = config.segmentSize();
+        this.fsyncPolicy = config.fsyncPolicy();
+        this.fsyncIntervalNanos = config.fsyncInterval().toNanos();
+        try {
+            Files.createDirectories(directory);
+            List<Long> segments = segmentIndexes();
+            segmentIndex = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+            openSegment(segmentIndex);
+            position = recoverEnd(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal in " + directory, e);
+        }
+        written = lsn(segmentIndex, position);
+        durable = written;
+        requested = written;
+        if (fsyncPolicy == FsyncPolicy.NONE) {
+            flusher = null;
+        } else {
+            flusher = new Thread(this::runFlusher, "order-journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    @Override
+    public long append(JournalRecord record) {
+        writeLock.lock();
+        try {
+            return write(record);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public long append(List<JournalRecord> records) {
+        long lsn = 0;
+        writeLock.lock();
+        try {
+            for (JournalRecord record : records) {
+                lsn = write(record);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return lsn;
+    }
+
+    private long write(JournalRecord record) {
+        if (!open) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        int size = record.size();
+        if (position + size > segmentSize) {
+            rollSegment();
+        }
+        long lsn = lsn(segmentIndex, position);
+        record.writeTo(segment, position);
+        position += size;
+        written = lsn(segmentIndex, position);
+        return lsn;
+    }
+
+    @Override
+    public void sync(long lsn) {
+        if (fsyncPolicy != FsyncPolicy.GROUP_COMMIT) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (requested <= lsn) {
+                requested = lsn + 1;
+                syncRequested.signal();
+            }
+            while (durable <= lsn && open) {
+                synced.awaitUninterruptibly();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public void replay(long fromLsn, RecordConsumer consumer) {
+        try {
+            for (long index : segmentIndexes()) {
+                long segmentStart = lsn(index, 0);
+                if (segmentStart + segmentSize <= fromLsn) {
+                    continue;
+                }
+                try (FileChannel readChannel = FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+                    ByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0,
+                            Math.min(readChannel.size(), segmentSize));
+                    int offset = (int) Math.max(0, fromLsn - segmentStart);
+                    JournalRecord record;
+                    while ((record = JournalRecord.readFrom(buffer, offset)) != null) {
+                        consumer.accept(segmentStart + offset, record);
+                        offset += record.size();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay journal in " + directory, e);
+        }
+    }
+
+    @Override
+    public long endLsn() {
+        return written;
+    }
+
+    @Override
+    public void truncateBefore(long lsn) {
+        try {
+            for (long index : segmentIndexes()) {
+                if (lsn(index + 1, 0) > lsn || index >= segmentIndex) {
+                    break;
+                }
+                Files.deleteIfExists(segmentPath(index));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot truncate journal in " + directory, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            if (!open) {
+                return;
+            }
+            open = false;
+        } finally {
+            writeLock.unlock();
+        }
+        if (flusher != null) {
+            syncLock.lock();
+            try {
+                syncRequested.signalAll();
+                synced.signalAll();
+            } finally {
+                syncLock.unlock();
+            }
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            segment.force();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close journal in " + directory, e);
+        }
+    }
+
+    private void runFlusher() {
+        while (open) {
+            syncLock.lock();
+            try {
+                if (fsyncPolicy == FsyncPolicy.GROUP_COMMIT) {
+                    while (open && requested <= durable) {
+                        syncRequested.awaitUninterruptibly();
+                    }
+                } else {
+                    syncRequested.awaitNanos(fsyncIntervalNanos);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                syncLock.unlock();
+            }
+            flush();
+        }
+    }
+
+    private void flush() {
+        MappedByteBuffer buffer;
+        long end;
+        writeLock.lock();
+        try {
+            buffer = segment;
+            end = written;
+        } finally {
+            writeLock.unlock();
+        }
+        // earlier segments were forced when they were rolled over
+        buffer.force();
+        syncLock.lock();
+        try {
+            if (end > durable) {
+                durable = end;
+            }
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void rollSegment() {
+        if (fsyncPolicy != FsyncPolicy.NONE) {
+            segment.force();
+        }
+        try {
+            channel.close();
+            openSegment(segmentIndex + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot roll journal segment in " + directory, e);
+        }
+        segmentIndex++;
+        position = 0;
+    }
+
+    private void openSegment(long index) throws IOException {
+        channel = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    private int recoverEnd(MappedByteBuffer buffer) {
+        int offset = 0;
+        JournalRecord record;
+        while ((record = JournalRecord.readFrom(buffer, offset)) != null) {
+            offset += record.size();
+        }
+        for (int i = offset; i < segmentSize; i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        return offset;
+    }
+
+    private long lsn(long index, int offset) {
+        return index * segmentSize + offset;
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(SEGMENT_PREFIX + "%016d".formatted(index) + SEGMENT_SUFFIX);
+    }
+
+    private List<Long> segmentIndexes() throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name, SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length(), 10))
+                    .sorted()
+                    .forEach(indexes::add);
+        }
+        return indexes;
+    }
+}
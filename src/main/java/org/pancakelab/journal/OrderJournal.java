@@ -0,0 +1,86 @@
+package org.pancakelab.journal;
+
+import java.util.List;
+
+/**
+ * Append-only log of order events, replayed on startup to rebuild the open orders. Positions in the journal are
+ * log sequence numbers (LSNs): byte offsets that only ever grow.
+ */
+public interface OrderJournal extends AutoCloseable {
+
+    /**
+     * A journal that keeps nothing, for running purely in memory.
+     */
+    OrderJournal NONE = new OrderJournal() {
+        @Override
+        public long append(JournalRecord record) {
+            return 0;
+        }
+
+        @Override
+        public void sync(long lsn) {
+        }
+
+        @Override
+        public void replay(long fromLsn, RecordConsumer consumer) {
+        }
+
+        @Override
+        public long endLsn() {
+            return 0;
+        }
+
+        @Override
+        public void truncateBefore(long lsn) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * Appends a record and returns its LSN. The record may not be on disk yet, see {@link #sync(long)}.
+     */
+    long append(JournalRecord record);
+
+    /**
+     * Appends several records back to back and returns the LSN of the last one.
+     */
+    default long append(List<JournalRecord> records) {
+        long lsn = 0;
+        for (JournalRecord record : records) {
+            lsn = append(record);
+        }
+        return lsn;
+    }
+
+    /**
+     * Waits until the record at {@code lsn} is as durable as the journal's fsync policy promises.
+     */
+    void sync(long lsn);
+
+    /**
+     * Feeds every intact record at or after {@code fromLsn} to {@code consumer}, in append order.
+     */
+    void replay(long fromLsn, RecordConsumer consumer);
+
+    /**
+     * LSN right after the last appended record.
+     */
+    long endLsn();
+
+    /**
+     * Allows the journal to discard records before {@code lsn}, typically because a snapshot covers them. Records
+     * at or after {@code lsn} are always kept; older ones may survive until a whole segment can go.
+     */
+    void truncateBefore(long lsn);
+
+    @Override
+    void close();
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(long lsn, JournalRecord record);
+    }
+}
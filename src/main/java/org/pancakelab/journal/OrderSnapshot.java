@@ -0,0 +1,13 @@
+package org.pancakelab.journal;
+
+import org.pancakelab.model.OrderStatus;
+
+import java.util.UUID;
+
+/**
+ * The state of one open order in a snapshot. {@code recipeCodes[i]} has {@code counts[i]} pancakes, in the order
+ * the recipes were first added. {@code journalLsn} is the last journal record reflected in this state.
+ */
+public record OrderSnapshot(UUID orderId, int building, int room, OrderStatus status, long journalLsn,
+                            long[] recipeCodes, int[] counts) {
+}
@@ -0,0 +1,236 @@
+package org.pancakelab.journal;
+
+import org.pancakelab.model.OrderStatus;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time snapshots of the open orders, one file per snapshot named after the journal LSN it covers.
+ * <p>
+ * Binary layout, big-endian: {@code int magic | byte version | long journalLsn}, then for each order
+ * {@code byte 1 | long idHigh | long idLow | int building | int room | byte status | long orderLsn | int lines}
+ * followed by {@code lines} times {@code long recipeCode | int count}, then {@code byte 0} and a CRC32C of
+ * everything before it. The status is 0 for CREATED, 1 for PREPARED and 2 for COMPLETED, whatever the order of
+ * {@link OrderStatus}. Snapshots are written to a temporary file, forced and atomically renamed, so a crash while
+ * writing leaves the previous snapshot in place. The rename itself is only durable once the directory is forced
+ * too, which {@link Writer#commit} does before it returns and before it deletes older snapshots.
+ * <p>
+ * Only orders are snapshotted, not the pancakes still being put together for them: those are not journaled either,
+ * so a restart loses them whether or not there is a snapshot, and clients start them again.
+ */
+public final class SnapshotStore {
+    private static final int MAGIC = 0x504C534E;
+    private static final byte FORMAT_VERSION = 1;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create snapshot directory " + directory, e);
+        }
+    }
+
+    /**
+     * Starts a snapshot of the state reflecting every journal record before {@code journalLsn}.
+     */
+    public Writer begin(long journalLsn) {
+        return new Writer(journalLsn);
+    }
+
+    /**
+     * Feeds the orders of the latest snapshot to {@code consumer} and returns the journal LSN to replay from, or
+     * {@code 0} if there is no snapshot. Throws {@link IllegalStateException} if the snapshot is corrupt.
+     */
+    public long restoreLatest(Consumer<OrderSnapshot> consumer) {
+        Optional<Path> latest = latestSnapshot();
+        if (latest.isEmpty()) {
+            return 0;
+        }
+        CRC32C crc = new CRC32C();
+        try (InputStream file = Files.newInputStream(latest.get());
+             DataInputStream in = new DataInputStream(
+                     new CheckedInputStream(new BufferedInputStream(file, 1 << 16), crc))) {
+            if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION) {
+                throw new IllegalStateException("Not a snapshot: " + latest.get());
+            }
+            long journalLsn = in.readLong();
+            while (in.readByte() == 1) {
+                UUID orderId = new UUID(in.readLong(), in.readLong());
+                int building = in.readInt();
+                int room = in.readInt();
+                OrderStatus status = statusOf(in.readByte());
+                if (status == null) {
+                    throw new IllegalStateException("Corrupt snapshot: " + latest.get());
+                }
+                long orderLsn = in.readLong();
+                int lines = in.readInt();
+                long[] recipeCodes = new long[lines];
+                int[] counts = new int[lines];
+                for (int i = 0; i < lines; i++) {
+                    recipeCodes[i] = in.readLong();
+                    counts[i] = in.readInt();
+                }
+                consumer.accept(new OrderSnapshot(orderId, building, room, status, orderLsn, recipeCodes, counts));
+            }
+            int expected = (int) crc.getValue();
+            if (in.readInt() != expected) {
+                throw new IllegalStateException("Corrupt snapshot: " + latest.get());
+            }
+            return journalLsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read snapshot " + latest.get(), e);
+        }
+    }
+
+    private static byte statusCode(OrderStatus status) {
+        return switch (status) {
+            case CREATED -> 0;
+            case PREPARED -> 1;
+            case COMPLETED -> 2;
+            case DELIVERED, CANCELLED -> throw new IllegalArgumentException("Order is no longer open: " + status);
+        };
+    }
+
+    private static OrderStatus statusOf(byte code) {
+        return switch (code) {
+            case 0 -> OrderStatus.CREATED;
+            case 1 -> OrderStatus.PREPARED;
+            case 2 -> OrderStatus.COMPLETED;
+            default -> null;
+        };
+    }
+
+    private Optional<Path> latestSnapshot() {
+        return snapshots().stream().reduce((first, second) -> second);
+    }
+
+    private List<Path> snapshots() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list snapshots in " + directory, e);
+        }
+    }
+
+    private Path snapshotPath(long journalLsn) {
+        return directory.resolve(SNAPSHOT_PREFIX + "%020d".formatted(journalLsn) + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Streams one snapshot to disk. Nothing becomes visible until {@link #commit()}; closing an uncommitted writer
+     * discards it.
+     */
+    public final class Writer implements AutoCloseable {
+        private final long journalLsn;
+        private final Path temporary;
+        private final FileOutputStream file;
+        private final CRC32C crc = new CRC32C();
+        private final DataOutputStream out;
+        private boolean committed;
+
+        private Writer(long journalLsn) {
+            this.journalLsn = journalLsn;
+            try {
+                temporary = Files.createTempFile(directory, SNAPSHOT_PREFIX, ".tmp");
+                file = new FileOutputStream(temporary.toFile());
+                out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc));
+                out.writeInt(MAGIC);
+                out.writeByte(FORMAT_VERSION);
+                out.writeLong(journalLsn);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot start snapshot in " + directory, e);
+            }
+        }
+
+        public void write(OrderSnapshot order) {
+            try {
+                out.writeByte(1);
+                out.writeLong(order.orderId().getMostSignificantBits());
+                out.writeLong(order.orderId().getLeastSignificantBits());
+                out.writeInt(order.building());
+                out.writeInt(order.room());
+                out.writeByte(statusCode(order.status()));
+                out.writeLong(order.journalLsn());
+                out.writeInt(order.recipeCodes().length);
+                for (int i = 0; i < order.recipeCodes().length; i++) {
+                    out.writeLong(order.recipeCodes()[i]);
+                    out.writeInt(order.counts()[i]);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write snapshot " + temporary, e);
+            }
+        }
+
+        /**
+         * Makes the snapshot durable and current, and deletes older snapshots.
+         */
+        public void commit() {
+            try {
+                out.writeByte(0);
+                out.flush();
+                // the checksum itself is not part of what it covers
+                int checksum = (int) crc.getValue();
+                new DataOutputStream(file).writeInt(checksum);
+                file.getFD().sync();
+                file.close();
+                Path target = snapshotPath(journalLsn);
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                committed = true;
+                // the rename lives in the directory, which a crash could otherwise roll back to the older snapshot
+                try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                    channel.force(true);
+                }
+                for (Path snapshot : snapshots()) {
+                    if (!snapshot.equals(target)) {
+                        Files.deleteIfExists(snapshot);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot commit snapshot " + temporary, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (committed) {
+                return;
+            }
+            try {
+                file.close();
+                Files.deleteIfExists(temporary);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot discard snapshot " + temporary, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.pancakelab.metrics;
+
+/**
+ * The order operations whose calls and latency are measured.
+ */
+public enum Operation {
+    CREATE_ORDER("createOrder"),
+    PLACE_ORDER("placeOrder"),
+    APPLY_BATCH("applyBatch"),
+    ADD_PANCAKE("addPancake"),
+    REMOVE_PANCAKES("removePancakes"),
+    COMPLETE_ORDER("completeOrder"),
+    CANCEL_ORDER("cancelOrder"),
+    PREPARE_ORDER("prepareOrder"),
+    DELIVER_ORDER("deliverOrder");
+
+    private final String displayName;
+
+    Operation(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
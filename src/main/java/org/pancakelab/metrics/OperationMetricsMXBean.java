@@ -0,0 +1,19 @@
+package org.pancakelab.metrics;
+
+/**
+ * Calls and latency of one {@link Operation}, in microseconds.
+ */
+public interface OperationMetricsMXBean {
+
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
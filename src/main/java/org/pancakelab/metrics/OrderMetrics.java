@@ -0,0 +1,271 @@
+package org.pancakelab.metrics;
+
+import org.pancakelab.model.Order;
+import org.pancakelab.model.OrderStatus;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Calls and latency per {@link Operation}, the age of orders when they reach each status, and gauges read on
+ * demand. Disabled by default: while disabled, timing an operation costs one volatile read and nothing is recorded.
+ * <p>
+ * The numbers can be read directly, through JMX after {@link #registerMBeans(String)}, or as a text table from
+ * {@link #dump()}, optionally written periodically by {@link #startDump(Duration, Consumer)}.
+ */
+public class OrderMetrics implements OrderMetricsMXBean, AutoCloseable {
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+    private static final String DOMAIN = "org.pancakelab";
+
+    private final Map<Operation, OperationMetrics> operations = new EnumMap<>(Operation.class);
+    private final Map<OrderStatus, LatencyHistogram> ages = new EnumMap<>(OrderStatus.class);
+    private final Map<String, LongSupplier> gauges = new LinkedHashMap<>();
+    private final List<ObjectName> registered = new ArrayList<>();
+    private volatile boolean enabled;
+    private ScheduledExecutorService dumper;
+
+    public OrderMetrics() {
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationMetrics());
+        }
+        for (OrderStatus status : OrderStatus.values()) {
+            if (status != OrderStatus.CREATED) {
+                ages.put(status, new LatencyHistogram());
+            }
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Adds a gauge that is read whenever the metrics are reported. Meant to be called while setting up, before the
+     * metrics are reported.
+     */
+    public synchronized void registerGauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Starts timing an operation; pass the result to {@link #record}.
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : NOT_TIMED;
+    }
+
+    public void record(Operation operation, long start) {
+        if (start != NOT_TIMED) {
+            operations.get(operation).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Stamps a new order with the start of the operation creating it, so that its age can be recorded later.
+     */
+    public void recordCreated(Order order, long start) {
+        if (start != NOT_TIMED) {
+            order.setCreatedNanos(start);
+        }
+    }
+
+    /**
+     * Records the age of an order that has just reached {@code status}, if it was created while enabled.
+     */
+    public void recordAge(OrderStatus status, Order order) {
+        if (enabled) {
+            long createdNanos = order.getCreatedNanos();
+            if (createdNanos != 0) {
+                ages.get(status).record(System.nanoTime() - createdNanos);
+            }
+        }
+    }
+
+    public long count(Operation operation) {
+        return operations.get(operation).calls.sum();
+    }
+
+    public LatencyHistogram latency(Operation operation) {
+        return operations.get(operation).latency;
+    }
+
+    /**
+     * Time from creation to reaching {@code status}, for the orders that reached it while enabled.
+     */
+    public LatencyHistogram age(OrderStatus status) {
+        LatencyHistogram age = ages.get(status);
+        if (age == null) {
+            throw new IllegalArgumentException("Orders are created, not moved to " + status);
+        }
+        return age;
+    }
+
+    @Override
+    public synchronized Map<String, Long> getGauges() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getP99AgeMillis() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        ages.forEach((status, age) -> values.put(status.name(), age.percentile(99) / 1e6));
+        return values;
+    }
+
+    @Override
+    public String getDump() {
+        return dump();
+    }
+
+    @Override
+    public void reset() {
+        operations.values().forEach(OperationMetrics::reset);
+        ages.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * Formats all metrics as a plain text table.
+     */
+    public String dump() {
+        StringBuilder dump = new StringBuilder();
+        dump.append(String.format("%-16s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "p50 us", "p99 us", "p99.9 us", "max us"));
+        operations.forEach((operation, metrics) -> dump.append(String.format("%-16s %10d %10.1f %10.1f %10.1f %10.1f%n",
+                operation.getDisplayName(), metrics.calls.sum(), metrics.latency.percentile(50) / 1e3,
+                metrics.latency.percentile(99) / 1e3, metrics.latency.percentile(99.9) / 1e3,
+                metrics.latency.max() / 1e3)));
+        dump.append(String.format("%-16s %10s %10s %10s %10s %10s%n",
+                "age to", "orders", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        ages.forEach((status, age) -> dump.append(String.format("%-16s %10d %10.1f %10.1f %10.1f %10.1f%n",
+                status, age.count(), age.percentile(50) / 1e6, age.percentile(99) / 1e6,
+                age.percentile(99.9) / 1e6, age.max() / 1e6)));
+        getGauges().forEach((name, value) -> dump.append(String.format("%-16s %10d%n", name, value)));
+        return dump.toString();
+    }
+
+    /**
+     * Hands a {@link #dump()} to {@code sink} every {@code period} from a daemon thread, until {@link #close()}.
+     */
+    public synchronized void startDump(Duration period, Consumer<String> sink) {
+        if (dumper != null) {
+            throw new IllegalStateException("Already dumping");
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1, period.toMillis());
+        dumper.scheduleAtFixedRate(() -> sink.accept(dump()), millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, as {@code org.pancakelab:type=OrderMetrics,name=...}
+     * with one {@code operation=...} bean per operation.
+     */
+    public synchronized void registerMBeans(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName =
+                    ObjectName.getInstance(DOMAIN + ":type=OrderMetrics,name=" + ObjectName.quote(name));
+            server.registerMBean(this, objectName);
+            registered.add(objectName);
+            for (Map.Entry<Operation, OperationMetrics> operation : operations.entrySet()) {
+                ObjectName operationName = ObjectName.getInstance(objectName + ",operation="
+                        + operation.getKey().getDisplayName());
+                server.registerMBean(operation.getValue(), operationName);
+                registered.add(operationName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register order metrics " + name, e);
+        }
+    }
+
+    /**
+     * Stops the periodic dump and unregisters the MBeans.
+     */
+    @Override
+    public synchronized void close() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ignored) {
+                // already gone
+            }
+        }
+        registered.clear();
+    }
+
+    private static final class OperationMetrics implements OperationMetricsMXBean {
+        private final LongAdder calls = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        void record(long nanos) {
+            calls.increment();
+            latency.record(nanos);
+        }
+
+        void reset() {
+            calls.reset();
+            latency.reset();
+        }
+
+        @Override
+        public long getCount() {
+            return calls.sum();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return latency.mean() / 1e3;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return latency.percentile(50) / 1e3;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return latency.percentile(99) / 1e3;
+        }
+
+        @Override
+        public double getP999Micros() {
+            return latency.percentile(99.9) / 1e3;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return latency.max() / 1e3;
+        }
+    }
+}
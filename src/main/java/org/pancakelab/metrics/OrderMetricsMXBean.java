@@ -0,0 +1,24 @@
+package org.pancakelab.metrics;
+
+import java.util.Map;
+
+/**
+ * Gauges and order ages of an order manager; the operations are registered as {@link OperationMetricsMXBean}s.
+ */
+public interface OrderMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    Map<String, Long> getGauges();
+
+    /**
+     * 99th percentile of the time from creation to reaching each status, in milliseconds.
+     */
+    Map<String, Double> getP99AgeMillis();
+
+    String getDump();
+
+    void reset();
+}
@@ -0,0 +1,23 @@
+package org.pancakelab.model;
+
+import java.util.UUID;
+
+/**
+ * Source of order ids. Implementations must be safe to call from any number of threads and never return the same
+ * id twice.
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+    /**
+     * Random version 4 ids from {@link UUID#randomUUID()}, which share one {@code SecureRandom} between all threads.
+     */
+    IdGenerator RANDOM = UUID::randomUUID;
+
+    /**
+     * Time-ordered ids with a thread slot and a random tail from a {@link TimeOrderedIdGenerator}; used by default.
+     */
+    IdGenerator TIME_ORDERED = new TimeOrderedIdGenerator();
+
+    UUID next();
+}
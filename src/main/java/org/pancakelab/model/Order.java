@@ -1,25 +1,41 @@
 package org.pancakelab.model;
 
 import org.pancakelab.model.pancakes.Pancake;
+import org.pancakelab.model.pancakes.Recipe;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjIntConsumer;
 
+/**
+ * An order and its pancakes. Pancake mutations and views are guarded by the order's own monitor, so operations on
+ * one order are linearizable while operations on different orders never contend.
+ */
 public class Order {
     private final UUID id;
     private final int building;
     private final int room;
-    private final Map<Pancake, Integer> pancakes = new LinkedHashMap<>();
-    private OrderStatus orderStatus = OrderStatus.CREATED;
+    private final Map<Recipe, Integer> pancakes = new LinkedHashMap<>();
+    private final Map<String, Recipe> recipesByDescription = new HashMap<>();
+    private int pancakeCount;
+    private long journalLsn;
+    private long createdNanos;
+    private long changedNanos;
+    private long preparedNanos;
+    private final AtomicReference<OrderStatus> orderStatus = new AtomicReference<>(OrderStatus.CREATED);
 
     public Order(int building, int room) {
-        this.id = UUID.randomUUID();
+        this(IdGenerator.TIME_ORDERED.next(), building, room);
+    }
+
+    public Order(UUID id, int building, int room) {
+        this.id = Objects.requireNonNull(id, "id");
         if (building < 1 || room < 1) {
             throw new IllegalArgumentException("Building and room number should be positive");
         }
@@ -40,45 +56,156 @@ public class Order {
     }
 
     public void addPancake(Pancake pancake, int count) {
-        pancakes.merge(pancake, count, Integer::sum);
+        addPancake(pancake.getRecipe(), count);
     }
 
-    public int removePancakes(String description, int count) {
-        int removedCount;
-        Optional<Pancake> pancakeToRemove =
-                pancakes.keySet().stream().filter(pancake -> pancake.description().equals(description)).findFirst();
-        if (pancakeToRemove.isEmpty()) {
+    public synchronized void addPancake(Recipe recipe, int count) {
+        checkCount(count);
+        pancakes.merge(recipe, count, Integer::sum);
+        recipesByDescription.putIfAbsent(recipe.description(), recipe);
+        pancakeCount += count;
+    }
+
+    public synchronized int removePancakes(String description, int count) {
+        return removePancakes(findRecipe(description), count);
+    }
+
+    public synchronized Recipe findRecipe(String description) {
+        Recipe recipe = recipesByDescription.get(description);
+        if (recipe == null) {
             throw new IllegalArgumentException("No pancake with description: \"" + description + "\" found");
         }
-        Pancake pancake = pancakeToRemove.get();
-        Integer pancakesCount = pancakes.get(pancake);
+        return recipe;
+    }
+
+    public synchronized int removePancakes(Recipe recipe, int count) {
+        checkCount(count);
+        int removedCount;
+        Integer pancakesCount = pancakes.get(recipe);
+        if (pancakesCount == null) {
+            throw new IllegalArgumentException("No pancake with description: \"" + recipe.description() + "\" found");
+        }
         if (pancakesCount <= count) {
-            pancakes.remove(pancake);
+            pancakes.remove(recipe);
+            recipesByDescription.remove(recipe.description());
             removedCount = pancakesCount;
         } else {
-            pancakes.put(pancake, pancakesCount - count);
+            pancakes.put(recipe, pancakesCount - count);
             removedCount = count;
         }
+        pancakeCount -= removedCount;
         return removedCount;
     }
 
-    public List<String> viewOrder() {
-        return pancakes.entrySet()
-                .stream()
-                .flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey().description()).stream())
-                .collect(Collectors.toList());
+    private static void checkCount(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Count of pancakes should be positive");
+        }
+    }
+
+    /**
+     * Returns one description per pancake. The list is a compact view holding one entry per recipe, so its cost
+     * does not grow with the number of pancakes.
+     */
+    public synchronized List<String> viewOrder() {
+        String[] descriptions = new String[pancakes.size()];
+        int[] ends = new int[pancakes.size()];
+        int i = 0;
+        int total = 0;
+        for (Map.Entry<Recipe, Integer> entry : pancakes.entrySet()) {
+            total += entry.getValue();
+            descriptions[i] = entry.getKey().description();
+            ends[i++] = total;
+        }
+        return new PancakeList(descriptions, ends);
+    }
+
+    /**
+     * Calls {@code visitor} with every recipe in the order and its pancake count, in the order the recipes were
+     * first added. The visitor runs while the order is locked and should be quick.
+     */
+    public synchronized void forEachPancake(ObjIntConsumer<Recipe> visitor) {
+        pancakes.forEach(visitor::accept);
+    }
+
+    public synchronized int getPancakeCount() {
+        return pancakeCount;
+    }
+
+    /**
+     * LSN of the last journal record applied to this order, so that a replay can skip records already reflected in
+     * a snapshot of it.
+     */
+    public synchronized long getJournalLsn() {
+        return journalLsn;
+    }
+
+    public synchronized void setJournalLsn(long journalLsn) {
+        this.journalLsn = journalLsn;
+    }
+
+    /**
+     * When the order was created, as given by {@link System#nanoTime()} or 0 if it was not
+     * stamped because metrics were disabled.
+     */
+    public synchronized long getCreatedNanos() {
+        return createdNanos;
+    }
+
+    public synchronized void setCreatedNanos(long createdNanos) {
+        this.createdNanos = createdNanos;
     }
 
-    public Map<Pancake, Integer> getPancakes() {
-        return pancakes;
+    /**
+     * When the order was last changed, as given by {@link System#nanoTime()}, or 0 if nobody is tracking idle
+     * orders.
+     */
+    public synchronized long getChangedNanos() {
+        return changedNanos;
+    }
+
+    public synchronized void setChangedNanos(long changedNanos) {
+        this.changedNanos = changedNanos;
+    }
+
+    /**
+     * When the order was prepared, on the clock of the admission control that stamped it, or 0 if it was not
+     * stamped.
+     */
+    public synchronized long getPreparedNanos() {
+        return preparedNanos;
+    }
+
+    public synchronized void setPreparedNanos(long preparedNanos) {
+        this.preparedNanos = preparedNanos;
+    }
+
+    /**
+     * Returns a point-in-time copy of the pancakes in this order.
+     */
+    public synchronized Map<Recipe, Integer> getPancakes() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(pancakes));
     }
 
     public OrderStatus getOrderStatus() {
-        return orderStatus;
+        return orderStatus.get();
     }
 
-    public void setOrderStatus(OrderStatus orderStatus) {
-        this.orderStatus = orderStatus;
+    /**
+     * Atomically moves the order to the {@code next} status and returns the status it was moved from.
+     * Throws {@link IllegalStateException} if the current status does not allow that transition, which is also
+     * how a caller learns that a concurrent transition got there first.
+     */
+    public OrderStatus transitionTo(OrderStatus next) {
+        while (true) {
+            OrderStatus current = orderStatus.get();
+            if (!current.canTransitionTo(next)) {
+                throw new IllegalStateException("Order %s cannot move from %s to %s".formatted(id, current, next));
+            }
+            if (orderStatus.compareAndSet(current, next)) {
+                return current;
+            }
+        }
     }
 
     @Override
@@ -4,5 +4,20 @@ public enum OrderStatus {
 
     CREATED,
     PREPARED,
-    COMPLETED;
+    COMPLETED,
+    DELIVERED,
+    CANCELLED;
+
+    public boolean canTransitionTo(OrderStatus next) {
+        return switch (this) {
+            case CREATED -> next == COMPLETED || next == CANCELLED;
+            case COMPLETED -> next == PREPARED || next == CANCELLED;
+            case PREPARED -> next == DELIVERED;
+            case DELIVERED, CANCELLED -> false;
+        };
+    }
+
+    public boolean isTerminal() {
+        return this == DELIVERED || this == CANCELLED;
+    }
 }
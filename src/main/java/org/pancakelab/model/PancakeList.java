@@ -0,0 +1,33 @@
+package org.pancakelab.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list with one pancake description per pancake, backed by one entry per recipe instead of one element
+ * per pancake. Element {@code i} is found by binary search over the running pancake totals.
+ */
+final class PancakeList extends AbstractList<String> implements RandomAccess {
+    private final String[] descriptions;
+    private final int[] ends;
+
+    PancakeList(String[] descriptions, int[] ends) {
+        this.descriptions = descriptions;
+        this.ends = ends;
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size());
+        }
+        int position = Arrays.binarySearch(ends, index + 1);
+        return descriptions[position >= 0 ? position : -position - 1];
+    }
+
+    @Override
+    public int size() {
+        return ends.length == 0 ? 0 : ends[ends.length - 1];
+    }
+}
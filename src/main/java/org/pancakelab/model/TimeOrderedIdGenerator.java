@@ -0,0 +1,93 @@
+package org.pancakelab.model;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates version 7 UUIDs that are unique per generator and whose tail cannot be guessed from other ids.
+ * <p>
+ * The most significant 48 bits are the Unix time in milliseconds and the next 12 bits, after the version, a per
+ * thread sequence within that millisecond; a thread that uses up its sequence borrows the next millisecond, and a
+ * thread never goes back in time when the clock does. After the variant come a 20 bit slot handed to each thread
+ * when it first asks for an id and 42 random bits. Ids from one generator are unique because no two threads share a
+ * slot and a thread never repeats a (millisecond, sequence) pair; ids of different generators, say in different
+ * processes, only collide if they also share the slot and draw the same random bits. Since ids grow with time, new
+ * orders land at the end of the sorted per-status indexes and listing them by id lists them roughly in creation
+ * order.
+ * <p>
+ * Each thread draws its random bits in batches from a DRBG {@link SecureRandom} of its own, seeded once from the
+ * system's entropy source when the thread first asks for an id. After that, generating an id touches only the
+ * thread's own state; a {@code SecureRandom} created with its default constructor would instead read the one
+ * system-wide source, behind its lock, on every batch.
+ */
+public final class TimeOrderedIdGenerator implements IdGenerator {
+    private static final int SEQUENCE_BITS = 12;
+    private static final int MAX_SEQUENCE = (1 << SEQUENCE_BITS) - 1;
+    private static final int SLOT_BITS = 20;
+    private static final int RANDOM_BITS = 62 - SLOT_BITS;
+    private static final int RANDOM_BATCH = 64;
+    private static final long VERSION = 7L << SEQUENCE_BITS;
+    private static final long VARIANT = 2L << 62;
+    private static final long RANDOM_MASK = (1L << RANDOM_BITS) - 1;
+
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final ThreadLocal<ThreadState> threadStates = ThreadLocal.withInitial(this::newThreadState);
+
+    @Override
+    public UUID next() {
+        ThreadState state = threadStates.get();
+        long now = System.currentTimeMillis();
+        if (now > state.millis) {
+            state.millis = now;
+            state.sequence = 0;
+        } else if (state.sequence == MAX_SEQUENCE) {
+            state.millis++;
+            state.sequence = 0;
+        } else {
+            state.sequence++;
+        }
+        long mostSigBits = state.millis << 16 | VERSION | state.sequence;
+        return new UUID(mostSigBits, state.slotBits | state.nextRandom() & RANDOM_MASK);
+    }
+
+    private ThreadState newThreadState() {
+        int slot = nextSlot.getAndIncrement();
+        if (slot < 0 || slot >= 1 << SLOT_BITS) {
+            throw new IllegalStateException("Ran out of thread slots for ids");
+        }
+        try {
+            return new ThreadState(VARIANT | (long) slot << RANDOM_BITS, SecureRandom.getInstance("DRBG"));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No DRBG SecureRandom available", e);
+        }
+    }
+
+    private static final class ThreadState {
+        private final long slotBits;
+        private final SecureRandom random;
+        private final byte[] randomBytes = new byte[RANDOM_BATCH * Long.BYTES];
+        private final ByteBuffer randomLongs = ByteBuffer.wrap(randomBytes);
+        private long millis = Long.MIN_VALUE;
+        private int sequence;
+
+        ThreadState(long slotBits, SecureRandom random) {
+            this.slotBits = slotBits;
+            this.random = random;
+            randomLongs.position(randomBytes.length);
+        }
+
+        /**
+         * Returns 64 random bits, refilling the batch once it is used up.
+         */
+        long nextRandom() {
+            if (!randomLongs.hasRemaining()) {
+                random.nextBytes(randomBytes);
+                randomLongs.clear();
+            }
+            return randomLongs.getLong();
+        }
+    }
+}
@@ -1,32 +1,30 @@
 package org.pancakelab.model.pancakes;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.UUID;
-import java.util.stream.Collectors;
 
+/**
+ * A pancake being put together ingredient by ingredient. It only points at the interned {@link Recipe} for the
+ * ingredients added so far, so identical pancakes share their recipe and merge in an order.
+ */
 public class Pancake {
 
-    private final UUID id;
-    private final List<Ingredient> ingredients = new ArrayList<>();
+    private Recipe recipe = Recipe.PLAIN;
 
-    public Pancake() {
-        this.id = UUID.randomUUID();
+    public void addIngredient(Ingredient ingredient) {
+        recipe = recipe.with(ingredient);
     }
 
-    public void addIngredient(Ingredient ingredient) {
-        ingredients.add(ingredient);
+    public Recipe getRecipe() {
+        return recipe;
     }
 
     public String description() {
-        return "Delicious pancake with " +
-               ingredients.stream().map(Ingredient::getDisplayName).collect(Collectors.joining(", ")) + "!";
+        return recipe.description();
     }
 
     public List<Ingredient> getIngredients() {
-        return Collections.unmodifiableList(ingredients);
+        return recipe.ingredients();
     }
 
     @Override
@@ -38,11 +36,11 @@ public class Pancake {
             return false;
         }
         Pancake pancake = (Pancake) o;
-        return Objects.equals(id, pancake.id) && Objects.equals(ingredients, pancake.ingredients);
+        return Objects.equals(recipe, pancake.recipe);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, ingredients);
+        return Objects.hashCode(recipe);
     }
 }
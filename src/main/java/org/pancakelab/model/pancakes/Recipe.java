@@ -0,0 +1,116 @@
+package org.pancakelab.model.pancakes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable pancake recipe, identified by the multiset of its ingredients. The multiset is packed into a
+ * {@code long} with one byte of count per {@link Ingredient} ordinal, and recipes are interned so that equal
+ * ingredient combinations share one instance and one precomputed description.
+ */
+public final class Recipe {
+    private static final int BITS_PER_INGREDIENT = 8;
+    private static final int MAX_COUNT_PER_INGREDIENT = (1 << BITS_PER_INGREDIENT) - 1;
+    private static final Ingredient[] INGREDIENTS = Ingredient.values();
+    private static final long VALID_CODE_BITS;
+    private static final Map<Long, Recipe> RECIPES = new ConcurrentHashMap<>();
+
+    static {
+        if (INGREDIENTS.length * BITS_PER_INGREDIENT > Long.SIZE) {
+            throw new ExceptionInInitializerError("Too many ingredients to pack a recipe into a long");
+        }
+        VALID_CODE_BITS = INGREDIENTS.length * BITS_PER_INGREDIENT == Long.SIZE
+                ? -1L
+                : (1L << INGREDIENTS.length * BITS_PER_INGREDIENT) - 1;
+    }
+
+    public static final Recipe PLAIN = of(0L);
+
+    private final long code;
+    private final String description;
+
+    private Recipe(long code) {
+        this.code = code;
+        this.description = describe(code);
+    }
+
+    public static Recipe of(long code) {
+        if ((code & ~VALID_CODE_BITS) != 0) {
+            throw new IllegalArgumentException("Invalid recipe code " + Long.toHexString(code));
+        }
+        Recipe recipe = RECIPES.get(code);
+        return recipe != null ? recipe : RECIPES.computeIfAbsent(code, Recipe::new);
+    }
+
+    public Recipe with(Ingredient ingredient) {
+        if (count(ingredient) == MAX_COUNT_PER_INGREDIENT) {
+            throw new IllegalArgumentException(
+                    "A pancake cannot have more than %d portions of %s".formatted(MAX_COUNT_PER_INGREDIENT,
+                            ingredient.getDisplayName()));
+        }
+        return of(code + (1L << shift(ingredient)));
+    }
+
+    public int count(Ingredient ingredient) {
+        return (int) (code >>> shift(ingredient)) & MAX_COUNT_PER_INGREDIENT;
+    }
+
+    public long code() {
+        return code;
+    }
+
+    public String description() {
+        return description;
+    }
+
+    /**
+     * Returns the ingredients in canonical (declaration) order, repeated as many times as they were added.
+     */
+    public List<Ingredient> ingredients() {
+        List<Ingredient> ingredients = new ArrayList<>();
+        for (Ingredient ingredient : INGREDIENTS) {
+            ingredients.addAll(Collections.nCopies(count(ingredient), ingredient));
+        }
+        return Collections.unmodifiableList(ingredients);
+    }
+
+    private static int shift(Ingredient ingredient) {
+        return ingredient.ordinal() * BITS_PER_INGREDIENT;
+    }
+
+    private static String describe(long code) {
+        StringJoiner joiner = new StringJoiner(", ", "Delicious pancake with ", "!");
+        for (Ingredient ingredient : INGREDIENTS) {
+            int count = (int) (code >>> shift(ingredient)) & MAX_COUNT_PER_INGREDIENT;
+            for (int i = 0; i < count; i++) {
+                joiner.add(ingredient.getDisplayName());
+            }
+        }
+        return joiner.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return code == ((Recipe) o).code;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(code);
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
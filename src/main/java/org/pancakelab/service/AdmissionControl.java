@@ -0,0 +1,228 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.Order;
+import org.pancakelab.model.OrderStatus;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether an {@link OrderManager} takes on a new order, so that under overload new orders are turned away
+ * at once with an {@link OverloadedException} instead of queueing up behind the ones already taken. Only creating
+ * and placing orders, and starting pancakes through {@link OrderManager#startNewPancake}, are checked; the
+ * orders already admitted keep being changed, completed, prepared and delivered as usual, which is what frees up
+ * room again.
+ * <p>
+ * An order is admitted while the open orders stay under the current limit, the pancakes in progress under
+ * {@code maxPancakesInProgress}, and its building under a fair share of the limit: the limit divided by the number
+ * of buildings with open orders, so a single building can use all of it until others show up. The limit starts at
+ * {@code maxOpenOrders}. With a target latency it then follows how long prepared orders wait for delivery: every
+ * delivery within the target raises it by one over the current limit, i.e. by about one per round of deliveries,
+ * and a delivery over the target cuts it to three quarters of the orders open at the time, down to one order. Only
+ * orders prepared after the last cut can cut it again, so that a backlog taken on under the old limit does not keep
+ * cutting it before the new one has had an effect.
+ * <p>
+ * Counts and the limit are guarded by the admission control's monitor; orders that are turned away while the open
+ * orders are at the limit are so without taking it.
+ */
+public class AdmissionControl {
+    private static final double BACKOFF = 0.75;
+
+    /**
+     * Admission control that admits every order and tracks nothing.
+     */
+    public static final AdmissionControl UNLIMITED = new AdmissionControl(Integer.MAX_VALUE, Integer.MAX_VALUE,
+            Duration.ZERO, System::nanoTime, true);
+
+    private final int maxOpenOrders;
+    private final int maxPancakesInProgress;
+    private final long targetLatencyNanos;
+    private final LongSupplier clock;
+    private final boolean unlimited;
+    private final Map<Integer, int[]> openByBuilding = new HashMap<>();
+    private final LongAdder shedOrders = new LongAdder();
+    private volatile int openOrders;
+    private volatile int limit;
+    private double exactLimit;
+    private long lastBackoffNanos;
+
+    /**
+     * Creates admission control with a fixed limit of {@code maxOpenOrders}.
+     */
+    public AdmissionControl(int maxOpenOrders, int maxPancakesInProgress) {
+        this(maxOpenOrders, maxPancakesInProgress, Duration.ZERO);
+    }
+
+    /**
+     * Creates admission control whose limit, at most {@code maxOpenOrders}, backs off while prepared orders wait
+     * longer than {@code targetLatency} to be delivered; zero keeps the limit fixed.
+     */
+    public AdmissionControl(int maxOpenOrders, int maxPancakesInProgress, Duration targetLatency) {
+        this(maxOpenOrders, maxPancakesInProgress, targetLatency, System::nanoTime);
+    }
+
+    AdmissionControl(int maxOpenOrders, int maxPancakesInProgress, Duration targetLatency, LongSupplier clock) {
+        this(maxOpenOrders, maxPancakesInProgress, targetLatency, clock, false);
+    }
+
+    private AdmissionControl(int maxOpenOrders, int maxPancakesInProgress, Duration targetLatency,
+                             LongSupplier clock, boolean unlimited) {
+        if (maxOpenOrders < 1 || maxPancakesInProgress < 1) {
+            throw new IllegalArgumentException("Open order and pancake limits should be positive");
+        }
+        if (targetLatency.isNegative()) {
+            throw new IllegalArgumentException("Target latency should not be negative");
+        }
+        this.maxOpenOrders = maxOpenOrders;
+        this.maxPancakesInProgress = maxPancakesInProgress;
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.clock = clock;
+        this.unlimited = unlimited;
+        this.limit = maxOpenOrders;
+        this.exactLimit = maxOpenOrders;
+        this.lastBackoffNanos = clock.getAsLong();
+    }
+
+    /**
+     * Current limit on open orders.
+     */
+    public int limit() {
+        return limit;
+    }
+
+    /**
+     * Orders admitted and not yet delivered or cancelled.
+     */
+    public int openOrders() {
+        return openOrders;
+    }
+
+    /**
+     * Orders turned away since the admission control was created.
+     */
+    public long shedOrders() {
+        return shedOrders.sum();
+    }
+
+    /**
+     * Counts a new order for {@code building} or throws {@link OverloadedException} if there is no room for it.
+     */
+    void admit(int building, int pancakesInProgress) {
+        if (unlimited) {
+            return;
+        }
+        if (openOrders >= limit) {
+            throw shed("Too many open orders");
+        }
+        if (pancakesInProgress >= maxPancakesInProgress) {
+            throw shed("Too many pancakes in progress");
+        }
+        synchronized (this) {
+            if (openOrders >= limit) {
+                throw shed("Too many open orders");
+            }
+            int[] open = openByBuilding.get(building);
+            int buildings = openByBuilding.size() + (open == null ? 1 : 0);
+            if (open != null && open[0] >= (limit + buildings - 1) / buildings) {
+                throw shed("Building " + building + " has its share of open orders");
+            }
+            if (open == null) {
+                openByBuilding.put(building, new int[]{1});
+            } else {
+                open[0]++;
+            }
+            openOrders++;
+        }
+    }
+
+    /**
+     * Throws {@link OverloadedException} if there is no room for another pancake in progress. Pancakes turned away
+     * are not counted as shed orders.
+     */
+    void admitPancake(int pancakesInProgress) {
+        if (!unlimited && pancakesInProgress >= maxPancakesInProgress) {
+            throw new OverloadedException("Too many pancakes in progress");
+        }
+    }
+
+    /**
+     * Counts an order without checking for room, for orders rebuilt at startup or taken over from another manager.
+     */
+    synchronized void readmit(int building) {
+        if (unlimited) {
+            return;
+        }
+        openByBuilding.computeIfAbsent(building, key -> new int[1])[0]++;
+        openOrders++;
+    }
+
+    /**
+     * Stops counting an order of {@code building}: one that was turned down after all, or has been handed over to
+     * another manager.
+     */
+    synchronized void release(int building) {
+        if (unlimited) {
+            return;
+        }
+        int[] open = openByBuilding.get(building);
+        if (open == null) {
+            return;
+        }
+        if (--open[0] == 0) {
+            openByBuilding.remove(building);
+        }
+        openOrders--;
+    }
+
+    /**
+     * Follows an admitted order moving to {@code status}: remembers when it was prepared, and once it has been
+     * delivered or cancelled stops counting it, learning from the delivery how long it waited. Must be called
+     * holding the order's monitor.
+     */
+    void record(OrderStatus status, Order order) {
+        if (unlimited) {
+            return;
+        }
+        if (status == OrderStatus.PREPARED) {
+            order.setPreparedNanos(clock.getAsLong());
+        } else if (status == OrderStatus.DELIVERED) {
+            long preparedNanos = order.getPreparedNanos();
+            // orders prepared before a restart or a move were not stamped here
+            if (preparedNanos != 0 && targetLatencyNanos > 0) {
+                adapt(preparedNanos, clock.getAsLong());
+            }
+            release(order.getBuilding());
+        } else if (status == OrderStatus.CANCELLED) {
+            release(order.getBuilding());
+        }
+    }
+
+    private synchronized void adapt(long preparedNanos, long nowNanos) {
+        if (nowNanos - preparedNanos <= targetLatencyNanos) {
+            exactLimit = Math.min(maxOpenOrders, exactLimit + 1 / exactLimit);
+        } else if (preparedNanos - lastBackoffNanos >= 0) {
+            exactLimit = Math.max(1, Math.min(exactLimit, openOrders) * BACKOFF);
+            lastBackoffNanos = nowNanos;
+        }
+        limit = (int) exactLimit;
+    }
+
+    private OverloadedException shed(String reason) {
+        shedOrders.increment();
+        return new OverloadedException(reason);
+    }
+
+    /**
+     * Thrown when a new order is turned away; nothing has happened to any order, so it can be tried again later.
+     */
+    public static class OverloadedException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        OverloadedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.pancakelab.service;
+
+/**
+ * What a producer does when the order log buffer is full.
+ */
+public enum BackPressurePolicy {
+
+    /**
+     * Drop the event and count it.
+     */
+    DROP,
+    /**
+     * Wait until the writer has made room.
+     */
+    BLOCK,
+    /**
+     * Wait for room for one event in every {@code sampleRate}, drop and count the rest.
+     */
+    SAMPLE;
+}
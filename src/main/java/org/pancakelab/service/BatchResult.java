@@ -0,0 +1,17 @@
+package org.pancakelab.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Outcome of {@link OrderManager#applyBatch(java.util.List)}: the orders whose commands were all applied, and for
+ * each rejected order the reason none of its commands were.
+ */
+public record BatchResult(Set<UUID> applied, Map<UUID, String> rejected) {
+
+    public BatchResult {
+        applied = Set.copyOf(applied);
+        rejected = Map.copyOf(rejected);
+    }
+}
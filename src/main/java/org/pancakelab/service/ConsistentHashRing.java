@@ -0,0 +1,75 @@
+package org.pancakelab.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Maps order ids to shards by consistent hashing. Every shard owns a number of virtual nodes placed on a ring of
+ * 64-bit hashes, and an id belongs to the shard owning the first node at or after the id's hash. A node's place
+ * depends only on its shard and its number, so adding a shard moves only the ids that now fall on the new shard's
+ * nodes, about {@code 1 / shardCount} of them, and moves them all to the new shard.
+ * <p>
+ * Immutable; growing the ring returns a new one.
+ */
+final class ConsistentHashRing {
+    private final int shardCount;
+    private final int virtualNodes;
+    private final long[] points;
+    private final int[] owners;
+
+    ConsistentHashRing(int shardCount, int virtualNodes) {
+        if (shardCount < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("Shard and virtual node counts should be positive");
+        }
+        this.shardCount = shardCount;
+        this.virtualNodes = virtualNodes;
+        TreeMap<Long, Integer> ring = new TreeMap<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                // on the rare collision the lower shard keeps the point, whatever the shard count
+                ring.putIfAbsent(mix(((long) shard << 32 | node) * 0x9E3779B97F4A7C15L), shard);
+            }
+        }
+        points = new long[ring.size()];
+        owners = new int[ring.size()];
+        int i = 0;
+        for (Map.Entry<Long, Integer> point : ring.entrySet()) {
+            points[i] = point.getKey();
+            owners[i++] = point.getValue();
+        }
+    }
+
+    int shardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Returns a ring with one more shard, numbered {@link #shardCount()}.
+     */
+    ConsistentHashRing withShardAdded() {
+        return new ConsistentHashRing(shardCount + 1, virtualNodes);
+    }
+
+    int shardOf(UUID orderId) {
+        long hash = mix(orderId.getMostSignificantBits() ^ mix(orderId.getLeastSignificantBits()));
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * The murmur3 64-bit finalizer; time-ordered ids differ in only a few bits and must still spread evenly.
+     */
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xFF51AFD7ED558CCDL;
+        x ^= x >>> 33;
+        x *= 0xC4CEB9FE1A85EC53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
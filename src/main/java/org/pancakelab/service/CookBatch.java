@@ -0,0 +1,9 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.pancakes.Recipe;
+
+/**
+ * One griddle load: {@code pancakes} pancakes of the same recipe, possibly for several orders.
+ */
+public record CookBatch(Recipe recipe, int pancakes) {
+}
@@ -0,0 +1,18 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.Order;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An order handed out by {@link OrderManager#deliverOrderSummary(java.util.UUID)}, with its pancakes as in
+ * {@link OrderManager#viewOrderSummary(java.util.UUID)}: the number of pancakes for each description, in the order
+ * they were first added.
+ */
+public record DeliveredOrder(Order order, Map<String, Integer> pancakes) {
+
+    public DeliveredOrder {
+        pancakes = Collections.unmodifiableMap(pancakes);
+    }
+}
@@ -0,0 +1,250 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.Order;
+import org.pancakelab.model.OrderStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Flow;
+import java.util.function.LongSupplier;
+
+/**
+ * Groups prepared orders by building into delivery runs. A building's run is due once it has {@code maxRunSize}
+ * orders waiting, or once its oldest order has waited {@code maxAge}; {@link #nextRun()} hands out the run that has
+ * waited longest among those due, delivering its orders on the way.
+ * <p>
+ * Prepared orders are learned from the manager's {@link OrderFeed}, and the planner catches up by paging through
+ * {@link OrderManager#listPreparedOrders(UUID, int)} when it starts and whenever it falls behind the feed. Waiting
+ * orders are kept per building in arrival order, buildings in a sorted set by their oldest order and the full ones in
+ * a set of their own, so picking a run costs time proportional to the run and not to the orders waiting. All of this
+ * is guarded by the planner's monitor, which is only held for index updates and never while delivering, and an
+ * order is taken out of the indexes by the run that claims it, so no order is handed out twice.
+ */
+public class DeliveryPlanner implements AutoCloseable {
+    private static final int PAGE_SIZE = 256;
+
+    private final OrderManager orderManager;
+    private final int maxRunSize;
+    private final long maxAgeNanos;
+    private final LongSupplier clock;
+    private final Map<UUID, Waiting> waiting = new HashMap<>();
+    private final Map<Integer, Building> buildings = new HashMap<>();
+    private final TreeSet<Building> byOldestOrder = new TreeSet<>(
+            Comparator.<Building>comparingLong(building -> building.oldest().since)
+                    .thenComparingInt(building -> building.number));
+    private final Set<Building> full = new LinkedHashSet<>();
+    private volatile Flow.Subscription subscription;
+    private volatile boolean closed;
+
+    public DeliveryPlanner(OrderManager orderManager, int maxRunSize, Duration maxAge) {
+        this(orderManager, maxRunSize, maxAge, System::nanoTime);
+    }
+
+    DeliveryPlanner(OrderManager orderManager, int maxRunSize, Duration maxAge, LongSupplier clock) {
+        if (maxRunSize < 1) {
+            throw new IllegalArgumentException("Run size should be positive");
+        }
+        this.orderManager = orderManager;
+        this.maxRunSize = maxRunSize;
+        this.maxAgeNanos = maxAge.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Starts following the prepared orders, including those prepared before the call.
+     */
+    public void start() {
+        catchUp();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * Delivers the next due run and returns its manifest, or returns {@code null} if no run is due yet.
+     */
+    public DeliveryRun nextRun() {
+        while (true) {
+            List<Waiting> claimed = claimRun();
+            if (claimed == null) {
+                return null;
+            }
+            List<DeliveryStop> stops = new ArrayList<>(claimed.size());
+            for (Waiting order : claimed) {
+                Order delivered = orderManager.deliver(order.orderId);
+                if (delivered != null) {
+                    stops.add(new DeliveryStop(order.orderId, order.room, delivered.viewOrder()));
+                }
+            }
+            if (!stops.isEmpty()) {
+                stops.sort(Comparator.comparingInt(DeliveryStop::room));
+                return new DeliveryRun(claimed.get(0).building, stops);
+            }
+            // every order in the run had been delivered directly in the meantime
+        }
+    }
+
+    public synchronized int waitingOrders() {
+        return waiting.size();
+    }
+
+    private synchronized List<Waiting> claimRun() {
+        if (byOldestOrder.isEmpty()) {
+            return null;
+        }
+        Building building = byOldestOrder.first();
+        if (clock.getAsLong() - building.oldest().since < maxAgeNanos) {
+            if (full.isEmpty()) {
+                return null;
+            }
+            building = full.iterator().next();
+        }
+        List<Waiting> run = new ArrayList<>(Math.min(maxRunSize, building.orders.size()));
+        Iterator<Waiting> oldestFirst = building.orders.values().iterator();
+        while (run.size() < maxRunSize && oldestFirst.hasNext()) {
+            run.add(oldestFirst.next());
+        }
+        for (Waiting order : run) {
+            remove(order.orderId);
+        }
+        return run;
+    }
+
+    private synchronized void add(UUID orderId, int buildingNumber, int room) {
+        if (closed || waiting.containsKey(orderId)) {
+            return;
+        }
+        Waiting order = new Waiting(orderId, buildingNumber, room, clock.getAsLong());
+        waiting.put(orderId, order);
+        Building building = buildings.computeIfAbsent(buildingNumber, Building::new);
+        if (building.orders.isEmpty()) {
+            building.orders.put(orderId, order);
+            byOldestOrder.add(building);
+        } else {
+            building.orders.put(orderId, order);
+        }
+        if (building.orders.size() >= maxRunSize) {
+            full.add(building);
+        }
+    }
+
+    private synchronized void remove(UUID orderId) {
+        Waiting order = waiting.remove(orderId);
+        if (order == null) {
+            return;
+        }
+        Building building = buildings.get(order.building);
+        boolean wasOldest = building.oldest() == order;
+        if (wasOldest) {
+            byOldestOrder.remove(building);
+        }
+        building.orders.remove(orderId);
+        if (building.orders.size() < maxRunSize) {
+            full.remove(building);
+        }
+        if (building.orders.isEmpty()) {
+            buildings.remove(order.building);
+        } else if (wasOldest) {
+            byOldestOrder.add(building);
+        }
+    }
+
+    /**
+     * Subscribes to the feed again and pages through the prepared orders to pick up anything the feed did not
+     * deliver. Subscribing first means an order prepared during the paging is seen at least once.
+     */
+    private void catchUp() {
+        Flow.Subscription previous = subscription;
+        if (previous != null) {
+            previous.cancel();
+        }
+        if (closed) {
+            return;
+        }
+        orderManager.feed().subscribe(new PreparedOrders());
+        UUID after = null;
+        List<UUID> page;
+        do {
+            page = orderManager.listPreparedOrders(after, PAGE_SIZE);
+            for (UUID orderId : page) {
+                Order order = orderManager.findOrder(orderId);
+                if (order != null) {
+                    add(orderId, order.getBuilding(), order.getRoom());
+                }
+            }
+            after = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    private final class PreparedOrders implements Flow.Subscriber<OrderEvent> {
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            DeliveryPlanner.this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(OrderEvent event) {
+            if (event.status() == OrderStatus.PREPARED) {
+                add(event.orderId(), event.building(), event.room());
+            } else if (event.status().isTerminal()) {
+                // delivered without the planner
+                remove(event.orderId());
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // fell behind the feed
+            catchUp();
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    private static final class Waiting {
+        private final UUID orderId;
+        private final int building;
+        private final int room;
+        private final long since;
+
+        Waiting(UUID orderId, int building, int room, long since) {
+            this.orderId = orderId;
+            this.building = building;
+            this.room = room;
+            this.since = since;
+        }
+    }
+
+    private static final class Building {
+        private final int number;
+        private final LinkedHashMap<UUID, Waiting> orders = new LinkedHashMap<>();
+
+        Building(int number) {
+            this.number = number;
+        }
+
+        Waiting oldest() {
+            return orders.values().iterator().next();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.pancakelab.service;
+
+import java.util.List;
+
+/**
+ * A trip to one building delivering the given orders, with the stops sorted by room.
+ */
+public record DeliveryRun(int building, List<DeliveryStop> stops) {
+
+    public DeliveryRun {
+        stops = List.copyOf(stops);
+    }
+}
@@ -0,0 +1,17 @@
+package org.pancakelab.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One delivered order in a {@link DeliveryRun}: the room to bring it to and the descriptions of its pancakes.
+ * The pancakes are kept behind a read-only view rather than copied, so that the compact list from
+ * {@link org.pancakelab.model.Order#viewOrder()} is not expanded into one element per pancake.
+ */
+public record DeliveryStop(UUID orderId, int room, List<String> pancakes) {
+
+    public DeliveryStop {
+        pancakes = Collections.unmodifiableList(pancakes);
+    }
+}
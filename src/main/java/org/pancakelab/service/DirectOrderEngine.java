@@ -0,0 +1,98 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.Order;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * {@link OrderEngine} that calls an {@link OrderManager} on the calling thread.
+ */
+final class DirectOrderEngine implements OrderEngine {
+    private final OrderManager orderManager;
+
+    DirectOrderEngine(OrderManager orderManager) {
+        this.orderManager = orderManager;
+    }
+
+    @Override
+    public CompletableFuture<UUID> createOrder(int building, int room) {
+        return call(() -> orderManager.createOrder(building, room));
+    }
+
+    @Override
+    public CompletableFuture<Void> addPancakes(UUID orderId, PancakeRequest pancakes) {
+        return run(() -> orderManager.addPancakes(orderId, pancakes));
+    }
+
+    @Override
+    public CompletableFuture<Void> removePancakes(UUID orderId, String description, int count) {
+        return run(() -> orderManager.removePancakes(description, orderId, count));
+    }
+
+    @Override
+    public CompletableFuture<Void> completeOrder(UUID orderId) {
+        return run(() -> orderManager.completeOrder(orderId));
+    }
+
+    @Override
+    public CompletableFuture<Void> prepareOrder(UUID orderId) {
+        return run(() -> orderManager.prepareOrder(orderId));
+    }
+
+    @Override
+    public CompletableFuture<Void> cancelOrder(UUID orderId) {
+        return run(() -> orderManager.cancelOrder(orderId));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Integer>> deliverOrder(UUID orderId) {
+        return call(() -> {
+            Order order = orderManager.deliver(orderId);
+            if (order == null) {
+                return null;
+            }
+            Map<String, Integer> summary = new LinkedHashMap<>();
+            order.forEachPancake((recipe, count) -> summary.put(recipe.description(), count));
+            return summary;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Integer>> viewOrderSummary(UUID orderId) {
+        return call(() -> orderManager.viewOrderSummary(orderId));
+    }
+
+    @Override
+    public CompletableFuture<Set<UUID>> listCompletedOrders() {
+        return call(orderManager::listCompletedOrders);
+    }
+
+    @Override
+    public CompletableFuture<Set<UUID>> listPreparedOrders() {
+        return call(orderManager::listPreparedOrders);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static <T> CompletableFuture<T> call(Supplier<T> command) {
+        try {
+            return CompletableFuture.completedFuture(command.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static CompletableFuture<Void> run(Runnable command) {
+        return call(() -> {
+            command.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,11 @@
+package org.pancakelab.service;
+
+/**
+ * Cooks one {@link CookBatch}, returning when the pancakes are done. Called concurrently from the
+ * {@link KitchenScheduler}'s workers, one batch per worker at a time.
+ */
+@FunctionalInterface
+public interface Griddle {
+
+    void cook(CookBatch batch) throws InterruptedException;
+}
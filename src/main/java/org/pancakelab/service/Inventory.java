@@ -0,0 +1,162 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.pancakes.Ingredient;
+import org.pancakelab.model.pancakes.Recipe;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Portions of every {@link Ingredient} in stock and not yet held by an order. Each ingredient's stock is split over
+ * a number of stripes, one cache line apart, and a thread reserves from and releases to its own stripe first, so
+ * that threads working on the same ingredient rarely update the same counter. A counter is only ever lowered by a
+ * compare-and-set that leaves it at zero or above, so stock never goes negative and nothing is ever locked.
+ * <p>
+ * When its own stripe runs short, a reservation gathers the rest from the other stripes and puts back what it took
+ * if there still is not enough; until it has, a concurrent reservation can find too little stock and fail as well.
+ */
+public class Inventory {
+    // longs per stripe, so that every stripe has a cache line of its own
+    private static final int PADDING = 8;
+    private static final Ingredient[] INGREDIENTS = Ingredient.values();
+
+    /**
+     * An inventory that never runs out and tracks nothing.
+     */
+    public static final Inventory UNLIMITED = new Inventory(1, true);
+
+    private final int stripeMask;
+    private final boolean unlimited;
+    private final AtomicLongArray stock;
+
+    /**
+     * Creates an empty inventory with one stripe per available processor.
+     */
+    public Inventory() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an empty inventory with at least {@code stripes} stripes per ingredient.
+     */
+    public Inventory(int stripes) {
+        this(stripes, false);
+    }
+
+    private Inventory(int stripes, boolean unlimited) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Stripe count should be positive");
+        }
+        int stripeCount = Integer.highestOneBit(stripes) == stripes ? stripes : Integer.highestOneBit(stripes) << 1;
+        this.stripeMask = stripeCount - 1;
+        this.unlimited = unlimited;
+        this.stock = new AtomicLongArray(INGREDIENTS.length * stripeCount * PADDING);
+    }
+
+    /**
+     * Adds {@code portions} to the stock, spread over the stripes; reservations carry on meanwhile.
+     */
+    public void restock(Ingredient ingredient, long portions) {
+        if (portions < 0) {
+            throw new IllegalArgumentException("Restocked portions should not be negative");
+        }
+        int stripes = stripeMask + 1;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            long share = portions / stripes + (stripe < portions % stripes ? 1 : 0);
+            if (share > 0) {
+                stock.getAndAdd(index(ingredient, stripe), share);
+            }
+        }
+    }
+
+    /**
+     * Portions in stock; only a snapshot while reservations are running.
+     */
+    public long available(Ingredient ingredient) {
+        long available = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            available += stock.get(index(ingredient, stripe));
+        }
+        return available;
+    }
+
+    /**
+     * Takes {@code portions} out of the stock if there are that many, and returns whether it did.
+     */
+    public boolean tryReserve(Ingredient ingredient, long portions) {
+        if (unlimited || portions == 0) {
+            return true;
+        }
+        int home = homeStripe();
+        long taken = 0;
+        for (int i = 0; i <= stripeMask && taken < portions; i++) {
+            int index = index(ingredient, (home + i) & stripeMask);
+            while (true) {
+                long current = stock.get(index);
+                if (current == 0) {
+                    break;
+                }
+                long take = Math.min(current, portions - taken);
+                if (stock.compareAndSet(index, current, current - take)) {
+                    taken += take;
+                    break;
+                }
+            }
+        }
+        if (taken < portions) {
+            if (taken > 0) {
+                stock.getAndAdd(index(ingredient, home), taken);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Puts back portions that were reserved.
+     */
+    public void release(Ingredient ingredient, long portions) {
+        if (!unlimited && portions > 0) {
+            stock.getAndAdd(index(ingredient, homeStripe()), portions);
+        }
+    }
+
+    /**
+     * Reserves the ingredients of {@code count} pancakes made to {@code recipe}, all or none of them. Throws
+     * {@link IllegalStateException} naming the first ingredient that is short.
+     */
+    public void reserve(Recipe recipe, int count) {
+        if (unlimited) {
+            return;
+        }
+        for (int i = 0; i < INGREDIENTS.length; i++) {
+            Ingredient ingredient = INGREDIENTS[i];
+            if (!tryReserve(ingredient, (long) recipe.count(ingredient) * count)) {
+                for (int j = 0; j < i; j++) {
+                    release(INGREDIENTS[j], (long) recipe.count(INGREDIENTS[j]) * count);
+                }
+                throw new IllegalStateException("Not enough " + ingredient.getDisplayName() + " in stock");
+            }
+        }
+    }
+
+    /**
+     * Puts back the ingredients of {@code count} pancakes made to {@code recipe}.
+     */
+    public void release(Recipe recipe, int count) {
+        if (unlimited) {
+            return;
+        }
+        for (Ingredient ingredient : INGREDIENTS) {
+            release(ingredient, (long) recipe.count(ingredient) * count);
+        }
+    }
+
+    private int index(Ingredient ingredient, int stripe) {
+        return (ingredient.ordinal() * (stripeMask + 1) + stripe) * PADDING;
+    }
+
+    private int homeStripe() {
+        long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 32) & stripeMask;
+    }
+}
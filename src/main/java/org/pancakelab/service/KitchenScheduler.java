@@ -0,0 +1,353 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.Order;
+import org.pancakelab.model.OrderStatus;
+import org.pancakelab.model.pancakes.Recipe;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cooks completed orders and marks them prepared. Instead of cooking order by order, the pancakes of all waiting
+ * orders are pooled by {@link Recipe} and cooked in griddle loads of one recipe each, up to the griddle capacity; an
+ * order is prepared once the last of its pancakes is done.
+ * <p>
+ * Completed orders arrive through the manager's {@link OrderFeed}; orders that were already completed when the
+ * scheduler started, or that were missed because the scheduler fell behind the feed, are picked up by paging
+ * through {@link OrderManager#listCompletedOrders(UUID, int)}. A single dispatcher thread owns the waiting pancakes
+ * and hands a load to a worker only when one is free, so loads grow with the backlog while an idle kitchen still
+ * starts cooking right away. The recipe waiting longest is cooked next. The manager does not let an order's
+ * pancakes change once it is completed, so the pancakes queued for it are all it is prepared with. Pancakes of
+ * orders cancelled in the meantime are skipped. If a load fails, its orders are queued again from scratch and
+ * whatever was still waiting of them is skipped.
+ */
+public class KitchenScheduler implements AutoCloseable {
+    private static final Logger log = Logger.getLogger(KitchenScheduler.class.getName());
+    private static final int INTAKE_CAPACITY = 1024;
+    private static final int PAGE_SIZE = 256;
+
+    private final OrderManager orderManager;
+    private final Griddle griddle;
+    private final int griddleCapacity;
+    private final ExecutorService workers;
+    private final Semaphore freeWorkers;
+    private final BlockingQueue<UUID> intake = new ArrayBlockingQueue<>(INTAKE_CAPACITY);
+    private final Set<UUID> scheduled = ConcurrentHashMap.newKeySet();
+    private final Thread dispatcher;
+    private final AtomicLong preparedOrders = new AtomicLong();
+    private final AtomicLong cookedBatches = new AtomicLong();
+    private final AtomicLong cookedPancakes = new AtomicLong();
+    private volatile boolean running;
+    private volatile boolean resync = true;
+    private volatile Flow.Subscription subscription;
+
+    // owned by the dispatcher thread
+    private final Map<Recipe, ArrayDeque<Portion>> waiting = new LinkedHashMap<>();
+    private long nextTicket;
+
+    public KitchenScheduler(OrderManager orderManager, Griddle griddle, int griddleCapacity, int workerCount) {
+        if (griddleCapacity < 1 || workerCount < 1) {
+            throw new IllegalArgumentException("Griddle capacity and worker count should be positive");
+        }
+        this.orderManager = orderManager;
+        this.griddle = griddle;
+        this.griddleCapacity = griddleCapacity;
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "kitchen-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.freeWorkers = new Semaphore(workerCount);
+        this.dispatcher = new Thread(this::dispatch, "kitchen-dispatcher");
+        this.dispatcher.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        dispatcher.start();
+    }
+
+    /**
+     * Stops taking new work and waits for the loads being cooked; orders still waiting stay completed. If the
+     * calling thread is interrupted meanwhile, the loads being cooked are interrupted too and the interrupt is kept.
+     */
+    @Override
+    public void close() {
+        running = false;
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+        dispatcher.interrupt();
+        try {
+            dispatcher.join();
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long preparedOrders() {
+        return preparedOrders.get();
+    }
+
+    public long cookedBatches() {
+        return cookedBatches.get();
+    }
+
+    public long cookedPancakes() {
+        return cookedPancakes.get();
+    }
+
+    private void dispatch() {
+        try {
+            while (running) {
+                if (resync) {
+                    resubscribe();
+                }
+                freeWorkers.acquire();
+                // take in everything that arrived while the workers were busy, so the load can be as full as possible
+                acceptArrived();
+                CookLoad load = nextLoad();
+                while (load == null && running && !resync) {
+                    UUID orderId = intake.poll(10, TimeUnit.MILLISECONDS);
+                    if (orderId != null) {
+                        accept(orderId);
+                        requestMore(1);
+                        acceptArrived();
+                    }
+                    load = nextLoad();
+                }
+                if (load == null) {
+                    freeWorkers.release();
+                    continue;
+                }
+                CookLoad cooking = load;
+                workers.execute(() -> cook(cooking));
+            }
+        } catch (InterruptedException stopped) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Subscribes to the feed again and pages through the completed orders to pick up anything the feed did not
+     * deliver. Subscribing first means an order completed during the paging is seen at least once.
+     */
+    private void resubscribe() {
+        resync = false;
+        Flow.Subscription previous = subscription;
+        if (previous != null) {
+            previous.cancel();
+        }
+        // everything still queued is found again by the paging below
+        intake.clear();
+        orderManager.feed().subscribe(new CompletedOrders());
+        UUID after = null;
+        List<UUID> page;
+        do {
+            page = orderManager.listCompletedOrders(after, PAGE_SIZE);
+            for (UUID orderId : page) {
+                accept(orderId);
+            }
+            after = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    private void acceptArrived() {
+        List<UUID> arrived = new ArrayList<>();
+        int count = intake.drainTo(arrived);
+        for (UUID orderId : arrived) {
+            accept(orderId);
+        }
+        if (count > 0) {
+            requestMore(count);
+        }
+    }
+
+    private void requestMore(long n) {
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.request(n);
+        }
+    }
+
+    /**
+     * Queues the pancakes of a completed order, once per order.
+     */
+    private void accept(UUID orderId) {
+        Order order = orderManager.findOrder(orderId);
+        if (order == null || order.getOrderStatus() != OrderStatus.COMPLETED || !scheduled.add(orderId)) {
+            return;
+        }
+        Map<Recipe, Integer> pancakes = order.getPancakes();
+        Ticket ticket = new Ticket(order, nextTicket++, pancakes.values().stream().mapToInt(Integer::intValue).sum());
+        if (ticket.remaining.get() == 0) {
+            prepare(ticket);
+            return;
+        }
+        pancakes.forEach((recipe, count) ->
+                waiting.computeIfAbsent(recipe, r -> new ArrayDeque<>()).add(new Portion(ticket, count)));
+    }
+
+    /**
+     * Takes up to a griddle load of the recipe whose first waiting pancake is the oldest, or returns {@code null}
+     * if nothing is waiting.
+     */
+    private CookLoad nextLoad() {
+        Recipe oldest = null;
+        long oldestTicket = Long.MAX_VALUE;
+        for (Map.Entry<Recipe, ArrayDeque<Portion>> entry : waiting.entrySet()) {
+            long ticket = entry.getValue().peekFirst().ticket.sequence;
+            if (ticket < oldestTicket) {
+                oldestTicket = ticket;
+                oldest = entry.getKey();
+            }
+        }
+        if (oldest == null) {
+            return null;
+        }
+        ArrayDeque<Portion> portions = waiting.get(oldest);
+        List<Portion> taken = new ArrayList<>();
+        int pancakes = 0;
+        while (pancakes < griddleCapacity && !portions.isEmpty()) {
+            Portion portion = portions.peekFirst();
+            if (portion.ticket.failed) {
+                // queued again under a new ticket
+                portions.pollFirst();
+                continue;
+            }
+            if (portion.ticket.order.getOrderStatus() != OrderStatus.COMPLETED) {
+                // cancelled while waiting
+                portions.pollFirst();
+                scheduled.remove(portion.ticket.order.getId());
+                continue;
+            }
+            int portionTaken = Math.min(portion.count, griddleCapacity - pancakes);
+            if (portionTaken == portion.count) {
+                portions.pollFirst();
+                taken.add(portion);
+            } else {
+                portion.count -= portionTaken;
+                taken.add(new Portion(portion.ticket, portionTaken));
+            }
+            pancakes += portionTaken;
+        }
+        if (portions.isEmpty()) {
+            waiting.remove(oldest);
+        }
+        return pancakes == 0 ? nextLoad() : new CookLoad(new CookBatch(oldest, pancakes), taken);
+    }
+
+    private void cook(CookLoad load) {
+        try {
+            griddle.cook(load.batch);
+            cookedBatches.incrementAndGet();
+            cookedPancakes.addAndGet(load.batch.pancakes());
+            for (Portion portion : load.portions) {
+                if (portion.ticket.remaining.addAndGet(-portion.count) == 0) {
+                    prepare(portion.ticket);
+                }
+            }
+        } catch (InterruptedException stopped) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Failed to cook " + load.batch + ", rescheduling its orders", e);
+            for (Portion portion : load.portions) {
+                portion.ticket.failed = true;
+                scheduled.remove(portion.ticket.order.getId());
+            }
+            resync = true;
+        } finally {
+            freeWorkers.release();
+        }
+    }
+
+    private void prepare(Ticket ticket) {
+        UUID orderId = ticket.order.getId();
+        try {
+            orderManager.prepareOrder(orderId);
+            preparedOrders.incrementAndGet();
+        } catch (IllegalArgumentException | IllegalStateException cancelled) {
+            // cancelled or gone while cooking
+        } finally {
+            scheduled.remove(orderId);
+        }
+    }
+
+    /**
+     * Hands completed orders to the dispatcher, requesting no more than the intake queue has room for.
+     */
+    private final class CompletedOrders implements Flow.Subscriber<OrderEvent> {
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            KitchenScheduler.this.subscription = subscription;
+            subscription.request(INTAKE_CAPACITY);
+        }
+
+        @Override
+        public void onNext(OrderEvent event) {
+            if (event.status() == OrderStatus.COMPLETED) {
+                intake.offer(event.orderId());
+            } else {
+                requestMore(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // fell behind the feed
+            resync = true;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    private static final class Ticket {
+        private final Order order;
+        private final long sequence;
+        private final AtomicInteger remaining;
+        private volatile boolean failed;
+
+        Ticket(Order order, long sequence, int pancakes) {
+            this.order = order;
+            this.sequence = sequence;
+            this.remaining = new AtomicInteger(pancakes);
+        }
+    }
+
+    private static final class Portion {
+        private final Ticket ticket;
+        private int count;
+
+        Portion(Ticket ticket, int count) {
+            this.ticket = ticket;
+            this.count = count;
+        }
+    }
+
+    private record CookLoad(CookBatch batch, List<Portion> portions) {
+    }
+}
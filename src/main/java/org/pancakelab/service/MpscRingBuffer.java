@@ -0,0 +1,82 @@
+package org.pancakelab.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free ring buffer for many producers and a single consumer. Producers claim a sequence with a CAS on
+ * the tail and then publish into the claimed slot; the consumer treats an empty slot as "not published yet".
+ */
+final class MpscRingBuffer<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    MpscRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity should be a power of two, got " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Publishes {@code element} unless the buffer is full. Safe to call from any thread.
+     */
+    boolean offer(E element) {
+        while (true) {
+            long claimed = tail.get();
+            if (claimed - head >= capacity) {
+                return false;
+            }
+            if (tail.compareAndSet(claimed, claimed + 1)) {
+                slots.lazySet((int) claimed & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Hands up to {@code limit} published elements to {@code consumer} and returns how many there were. Must only
+     * be called from the consumer thread.
+     */
+    int drain(Consumer<? super E> consumer, int limit) {
+        long next = head;
+        int drained = 0;
+        while (drained < limit) {
+            int slot = (int) next & mask;
+            E element = slots.get(slot);
+            if (element == null) {
+                break;
+            }
+            slots.lazySet(slot, null);
+            next++;
+            drained++;
+            consumer.accept(element);
+        }
+        head = next;
+        return drained;
+    }
+
+    /**
+     * Number of elements ever accepted by {@link #offer}.
+     */
+    long published() {
+        return tail.get();
+    }
+
+    /**
+     * Number of elements ever handed to a {@link #drain} consumer.
+     */
+    long consumed() {
+        return head;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,396 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.OrderStatus;
+import org.pancakelab.model.pancakes.Recipe;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Open orders kept in primitive arrays and off-heap slabs instead of one {@code Order} object graph each, so that a
+ * large number of them costs a few dozen bytes per order and gives the garbage collector nothing to trace.
+ * <p>
+ * Orders are keyed by the two halves of their id in an open-addressing table with linear probing, and removal
+ * shifts the following entries back instead of leaving tombstones. Building, room and status share one {@code int}
+ * per order. The pancake lines of an order, a recipe code and a count each, are kept in insertion order in a block
+ * of a direct {@link ByteBuffer} slab; blocks come in power-of-two line counts and freed blocks are reused for the
+ * same size.
+ * <p>
+ * Not thread-safe: meant to be owned by one thread, like a partition of {@link OrderEngine#partitioned}.
+ */
+public final class OffHeapOrderStore {
+    public static final int MAX_BUILDING = (1 << 15) - 1;
+    public static final int MAX_ROOM = (1 << 14) - 1;
+
+    private static final int ROOM_BITS = 14;
+    private static final int BUILDING_BITS = 15;
+    private static final int STATUS_SHIFT = ROOM_BITS + BUILDING_BITS;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private static final int LINE_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int SLAB_SHIFT = 20;
+    private static final int SLAB_BYTES = 1 << SLAB_SHIFT;
+    private static final int MAX_SLABS = 1 << (Integer.SIZE - 1 - SLAB_SHIFT);
+    private static final int MIN_SIZE_CLASS = 1;
+    private static final int MAX_SIZE_CLASS = 16;
+    private static final int SIZE_CLASS_SHIFT = 24;
+    private static final int LINE_COUNT_MASK = (1 << SIZE_CLASS_SHIFT) - 1;
+    private static final int NO_BLOCK = -1;
+
+    // per slot: the id halves, the packed place and status (0 for an empty slot), the block and its line count
+    private long[] keys;
+    private int[] places;
+    private int[] blocks;
+    private int[] lines;
+    private int mask;
+    private int size;
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final int[] freeBlocks = new int[MAX_SIZE_CLASS + 1];
+    private int slabCursor = SLAB_BYTES;
+
+    public OffHeapOrderStore() {
+        this(1024);
+    }
+
+    /**
+     * Creates a store sized to hold {@code expectedOrders} without growing its table.
+     */
+    public OffHeapOrderStore(int expectedOrders) {
+        if (expectedOrders < 0) {
+            throw new IllegalArgumentException("Expected order count should not be negative");
+        }
+        int capacity = Integer.highestOneBit(Math.max(16, expectedOrders * 4 / 3)) << 1;
+        allocateTable(capacity);
+        Arrays.fill(freeBlocks, NO_BLOCK);
+    }
+
+    public void create(UUID orderId, int building, int room) {
+        if (building < 1 || room < 1) {
+            throw new IllegalArgumentException("Building and room number should be positive");
+        }
+        if (building > MAX_BUILDING || room > MAX_ROOM) {
+            throw new IllegalArgumentException("Building number should be at most %d and room number at most %d"
+                    .formatted(MAX_BUILDING, MAX_ROOM));
+        }
+        long msb = orderId.getMostSignificantBits();
+        long lsb = orderId.getLeastSignificantBits();
+        int slot = home(msb, lsb);
+        while (places[slot] != 0) {
+            if (keys[2 * slot] == msb && keys[2 * slot + 1] == lsb) {
+                throw new IllegalArgumentException("Order " + orderId + " already exists");
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[2 * slot] = msb;
+        keys[2 * slot + 1] = lsb;
+        places[slot] = pack(building, room, OrderStatus.CREATED);
+        blocks[slot] = NO_BLOCK;
+        lines[slot] = 0;
+        if (++size > (mask + 1) / 4 * 3) {
+            allocateTable(2 * (mask + 1));
+        }
+    }
+
+    public boolean contains(UUID orderId) {
+        return find(orderId) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int building(UUID orderId) {
+        return (places[slotOf(orderId)] >>> ROOM_BITS) & MAX_BUILDING;
+    }
+
+    public int room(UUID orderId) {
+        return places[slotOf(orderId)] & MAX_ROOM;
+    }
+
+    /**
+     * Returns the status of the order, or {@code null} if there is no such order.
+     */
+    public OrderStatus status(UUID orderId) {
+        int slot = find(orderId);
+        return slot < 0 ? null : STATUSES[places[slot] >>> STATUS_SHIFT];
+    }
+
+    public void setStatus(UUID orderId, OrderStatus status) {
+        int slot = slotOf(orderId);
+        places[slot] = (places[slot] & ~(-1 << STATUS_SHIFT)) | status.ordinal() << STATUS_SHIFT;
+    }
+
+    public void addPancakes(UUID orderId, Recipe recipe, int count) {
+        checkCount(count);
+        int slot = slotOf(orderId);
+        int line = lineOf(slot, recipe.code());
+        if (line >= 0) {
+            ByteBuffer slab = slab(blocks[slot]);
+            int offset = lineOffset(blocks[slot], line) + Long.BYTES;
+            slab.putInt(offset, slab.getInt(offset) + count);
+            return;
+        }
+        int used = lines[slot] & LINE_COUNT_MASK;
+        int sizeClass = lines[slot] >>> SIZE_CLASS_SHIFT;
+        if (blocks[slot] == NO_BLOCK) {
+            sizeClass = MIN_SIZE_CLASS;
+            blocks[slot] = allocateBlock(sizeClass);
+        } else if (used == 1 << sizeClass) {
+            if (sizeClass == MAX_SIZE_CLASS) {
+                throw new IllegalStateException("Order " + orderId + " has too many different pancakes");
+            }
+            int block = allocateBlock(sizeClass + 1);
+            slab(block).put(offset(block), slab(blocks[slot]), offset(blocks[slot]), used * LINE_BYTES);
+            freeBlock(blocks[slot], sizeClass);
+            blocks[slot] = block;
+            sizeClass++;
+        }
+        ByteBuffer slab = slab(blocks[slot]);
+        int offset = lineOffset(blocks[slot], used);
+        slab.putLong(offset, recipe.code());
+        slab.putInt(offset + Long.BYTES, count);
+        lines[slot] = sizeClass << SIZE_CLASS_SHIFT | (used + 1);
+    }
+
+    /**
+     * Returns the recipe of the order's pancakes with that description, or throws
+     * {@link IllegalArgumentException} if the order has none.
+     */
+    public Recipe findRecipe(UUID orderId, String description) {
+        int slot = slotOf(orderId);
+        int used = lines[slot] & LINE_COUNT_MASK;
+        for (int line = 0; line < used; line++) {
+            Recipe recipe = Recipe.of(slab(blocks[slot]).getLong(lineOffset(blocks[slot], line)));
+            if (recipe.description().equals(description)) {
+                return recipe;
+            }
+        }
+        throw new IllegalArgumentException("No pancake with description: \"" + description + "\" found");
+    }
+
+    /**
+     * Removes up to {@code count} pancakes made to {@code recipe} and returns how many were removed.
+     */
+    public int removePancakes(UUID orderId, Recipe recipe, int count) {
+        checkCount(count);
+        int slot = slotOf(orderId);
+        int line = lineOf(slot, recipe.code());
+        if (line < 0) {
+            throw new IllegalArgumentException("No pancake with description: \"" + recipe.description() + "\" found");
+        }
+        int block = blocks[slot];
+        ByteBuffer slab = slab(block);
+        int countOffset = lineOffset(block, line) + Long.BYTES;
+        int pancakes = slab.getInt(countOffset);
+        if (pancakes > count) {
+            slab.putInt(countOffset, pancakes - count);
+            return count;
+        }
+        int used = (lines[slot] & LINE_COUNT_MASK) - 1;
+        int sizeClass = lines[slot] >>> SIZE_CLASS_SHIFT;
+        if (used == 0) {
+            freeBlock(block, sizeClass);
+            blocks[slot] = NO_BLOCK;
+            lines[slot] = 0;
+        } else {
+            // shift the later lines down to keep the insertion order
+            slab.put(lineOffset(block, line), slab, lineOffset(block, line + 1), (used - line) * LINE_BYTES);
+            lines[slot] = sizeClass << SIZE_CLASS_SHIFT | used;
+        }
+        return pancakes;
+    }
+
+    /**
+     * Calls {@code visitor} with every recipe in the order and its pancake count, in the order the recipes were
+     * first added.
+     */
+    public void forEachPancake(UUID orderId, ObjIntConsumer<Recipe> visitor) {
+        int slot = slotOf(orderId);
+        int block = blocks[slot];
+        int used = lines[slot] & LINE_COUNT_MASK;
+        for (int line = 0; line < used; line++) {
+            int offset = lineOffset(block, line);
+            visitor.accept(Recipe.of(slab(block).getLong(offset)), slab(block).getInt(offset + Long.BYTES));
+        }
+    }
+
+    /**
+     * Removes the order and frees its pancake lines; returns whether there was such an order.
+     */
+    public boolean remove(UUID orderId) {
+        int slot = find(orderId);
+        if (slot < 0) {
+            return false;
+        }
+        if (blocks[slot] != NO_BLOCK) {
+            freeBlock(blocks[slot], lines[slot] >>> SIZE_CLASS_SHIFT);
+        }
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (places[next] == 0) {
+                break;
+            }
+            // an entry can fill the hole if the hole is on its probe path from its home slot
+            int home = home(keys[2 * next], keys[2 * next + 1]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                copySlot(next, hole);
+                hole = next;
+            }
+        }
+        places[hole] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Bytes held by the table arrays on the heap.
+     */
+    public long heapBytes() {
+        return (long) keys.length * Long.BYTES + ((long) places.length + blocks.length + lines.length) * Integer.BYTES;
+    }
+
+    /**
+     * Bytes of slab memory allocated off the heap, including free blocks.
+     */
+    public long offHeapBytes() {
+        return (long) slabs.size() * SLAB_BYTES;
+    }
+
+    private static void checkCount(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Count of pancakes should be positive");
+        }
+    }
+
+    private int slotOf(UUID orderId) {
+        int slot = find(orderId);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Order not found");
+        }
+        return slot;
+    }
+
+    private int find(UUID orderId) {
+        long msb = orderId.getMostSignificantBits();
+        long lsb = orderId.getLeastSignificantBits();
+        for (int slot = home(msb, lsb); places[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[2 * slot] == msb && keys[2 * slot + 1] == lsb) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int lineOf(int slot, long recipeCode) {
+        int block = blocks[slot];
+        int used = lines[slot] & LINE_COUNT_MASK;
+        for (int line = 0; line < used; line++) {
+            if (slab(block).getLong(lineOffset(block, line)) == recipeCode) {
+                return line;
+            }
+        }
+        return -1;
+    }
+
+    private int home(long msb, long lsb) {
+        return (int) mix(msb ^ Long.rotateLeft(lsb, 32)) & mask;
+    }
+
+    private void allocateTable(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldPlaces = places;
+        int[] oldBlocks = blocks;
+        int[] oldLines = lines;
+        keys = new long[2 * capacity];
+        places = new int[capacity];
+        blocks = new int[capacity];
+        lines = new int[capacity];
+        mask = capacity - 1;
+        if (oldPlaces == null) {
+            return;
+        }
+        for (int old = 0; old < oldPlaces.length; old++) {
+            if (oldPlaces[old] != 0) {
+                int slot = home(oldKeys[2 * old], oldKeys[2 * old + 1]);
+                while (places[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[2 * slot] = oldKeys[2 * old];
+                keys[2 * slot + 1] = oldKeys[2 * old + 1];
+                places[slot] = oldPlaces[old];
+                blocks[slot] = oldBlocks[old];
+                lines[slot] = oldLines[old];
+            }
+        }
+    }
+
+    private void copySlot(int from, int to) {
+        keys[2 * to] = keys[2 * from];
+        keys[2 * to + 1] = keys[2 * from + 1];
+        places[to] = places[from];
+        blocks[to] = blocks[from];
+        lines[to] = lines[from];
+    }
+
+    /**
+     * Returns a block of {@code 1 << sizeClass} lines, addressed as the slab index above {@link #SLAB_SHIFT} bits
+     * and the byte offset in the slab below them.
+     */
+    private int allocateBlock(int sizeClass) {
+        int block = freeBlocks[sizeClass];
+        if (block != NO_BLOCK) {
+            // a free block holds the next free block of its size in its first bytes
+            freeBlocks[sizeClass] = slab(block).getInt(offset(block));
+            return block;
+        }
+        int bytes = LINE_BYTES << sizeClass;
+        if (slabCursor + bytes > SLAB_BYTES) {
+            if (slabs.size() == MAX_SLABS) {
+                throw new IllegalStateException("Order store is out of slab memory");
+            }
+            slabs.add(ByteBuffer.allocateDirect(SLAB_BYTES).order(ByteOrder.nativeOrder()));
+            slabCursor = 0;
+        }
+        block = (slabs.size() - 1) << SLAB_SHIFT | slabCursor;
+        slabCursor += bytes;
+        return block;
+    }
+
+    private void freeBlock(int block, int sizeClass) {
+        slab(block).putInt(offset(block), freeBlocks[sizeClass]);
+        freeBlocks[sizeClass] = block;
+    }
+
+    private ByteBuffer slab(int block) {
+        return slabs.get(block >>> SLAB_SHIFT);
+    }
+
+    private static int offset(int block) {
+        return block & (SLAB_BYTES - 1);
+    }
+
+    private static int lineOffset(int block, int line) {
+        return offset(block) + line * LINE_BYTES;
+    }
+
+    private static int pack(int building, int room, OrderStatus status) {
+        return status.ordinal() << STATUS_SHIFT | building << ROOM_BITS | room;
+    }
+
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xFF51AFD7ED558CCDL;
+        x ^= x >>> 33;
+        x *= 0xC4CEB9FE1A85EC53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
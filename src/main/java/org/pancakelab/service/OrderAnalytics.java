@@ -0,0 +1,263 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.OrderStatus;
+import org.pancakelab.model.pancakes.Ingredient;
+import org.pancakelab.model.pancakes.Recipe;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Recipe popularity, ingredient consumption and building demand over a sliding time window, for deciding what to
+ * cook ahead. Every order is counted when it is completed.
+ * <p>
+ * Completed orders are learned from the manager's {@link OrderFeed} and counted on the feed's thread, so the order
+ * operations themselves do no extra work. The window is a ring of buckets, each with a {@link SpaceSaving} summary
+ * of recipes and one of buildings, both with {@code tracked} counters, and a counter per {@link Ingredient}; memory
+ * is fixed by the bucket count and {@code tracked}, whatever the order volume, and a query merges the buckets still
+ * in the window. Counts are exact as long as a bucket has seen no more distinct recipes or buildings than it tracks.
+ * <p>
+ * Orders are counted from the pancakes carried by their completion event, whatever has happened to them since.
+ * Events missed by falling behind the feed are not caught up on but counted by {@link #missedEvents()}. The buckets
+ * are guarded by the analytics' monitor.
+ */
+public class OrderAnalytics implements AutoCloseable {
+    private static final Ingredient[] INGREDIENTS = Ingredient.values();
+
+    private final OrderManager orderManager;
+    private final long bucketNanos;
+    private final Bucket[] buckets;
+    private final LongSupplier clock;
+    private volatile Flow.Subscription subscription;
+    private volatile boolean closed;
+    private long missedEvents;
+    // only touched on the feed's thread once subscribed
+    private long nextSequence;
+
+    /**
+     * Creates analytics over the last minute in one-second buckets, tracking 64 recipes and buildings per bucket.
+     */
+    public OrderAnalytics(OrderManager orderManager) {
+        this(orderManager, Duration.ofMinutes(1), 60, 64);
+    }
+
+    public OrderAnalytics(OrderManager orderManager, Duration window, int buckets, int tracked) {
+        this(orderManager, window, buckets, tracked, System::nanoTime);
+    }
+
+    OrderAnalytics(OrderManager orderManager, Duration window, int buckets, int tracked, LongSupplier clock) {
+        if (buckets < 1 || tracked < 1) {
+            throw new IllegalArgumentException("Bucket and tracked counts should be positive");
+        }
+        if (window.toNanos() < buckets) {
+            throw new IllegalArgumentException("Window should be at least a nanosecond per bucket");
+        }
+        this.orderManager = orderManager;
+        this.bucketNanos = window.toNanos() / buckets;
+        this.buckets = new Bucket[buckets];
+        for (int i = 0; i < buckets; i++) {
+            this.buckets[i] = new Bucket(tracked);
+        }
+        this.clock = clock;
+    }
+
+    /**
+     * Starts counting the orders completed from now on.
+     */
+    public void start() {
+        subscribe(orderManager.feed().nextSequence());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * The {@code k} recipes with the most pancakes ordered in the window, most first.
+     */
+    public List<Ranked<Recipe>> topRecipes(int k) {
+        return top(k, bucket -> bucket.recipes, Recipe::of);
+    }
+
+    /**
+     * The {@code k} buildings that ordered the most pancakes in the window, most first.
+     */
+    public List<Ranked<Integer>> topBuildings(int k) {
+        return top(k, bucket -> bucket.buildings, building -> (int) building);
+    }
+
+    /**
+     * Portions of every ingredient ordered per second, averaged over the window.
+     */
+    public synchronized Map<Ingredient, Double> ingredientRates() {
+        long[] portions = new long[INGREDIENTS.length];
+        long epoch = Math.floorDiv(clock.getAsLong(), bucketNanos);
+        for (Bucket bucket : buckets) {
+            if (bucket.isWithin(epoch, buckets.length)) {
+                for (int i = 0; i < portions.length; i++) {
+                    portions[i] += bucket.portions[i];
+                }
+            }
+        }
+        double seconds = (double) bucketNanos * buckets.length / TimeUnit.SECONDS.toNanos(1);
+        Map<Ingredient, Double> rates = new EnumMap<>(Ingredient.class);
+        for (int i = 0; i < portions.length; i++) {
+            rates.put(INGREDIENTS[i], portions[i] / seconds);
+        }
+        return rates;
+    }
+
+    /**
+     * Events skipped after falling behind the feed.
+     */
+    public synchronized long missedEvents() {
+        return missedEvents;
+    }
+
+    synchronized void record(int building, Map<Recipe, Integer> pancakes) {
+        Bucket bucket = currentBucket();
+        long total = 0;
+        for (Map.Entry<Recipe, Integer> line : pancakes.entrySet()) {
+            Recipe recipe = line.getKey();
+            int count = line.getValue();
+            bucket.recipes.add(recipe.code(), count);
+            for (int i = 0; i < INGREDIENTS.length; i++) {
+                bucket.portions[i] += (long) recipe.count(INGREDIENTS[i]) * count;
+            }
+            total += count;
+        }
+        if (total > 0) {
+            bucket.buildings.add(building, total);
+        }
+    }
+
+    private synchronized <T> List<Ranked<T>> top(int k, Function<Bucket, SpaceSaving> summary,
+                                                 LongFunction<T> item) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k should be positive");
+        }
+        long epoch = Math.floorDiv(clock.getAsLong(), bucketNanos);
+        // per key: count, overcount and the untracked bounds of the buckets that did track it
+        Map<Long, long[]> merged = new HashMap<>();
+        long untrackedBounds = 0;
+        for (Bucket bucket : buckets) {
+            if (!bucket.isWithin(epoch, buckets.length)) {
+                continue;
+            }
+            SpaceSaving counters = summary.apply(bucket);
+            long untracked = counters.untrackedBound();
+            untrackedBounds += untracked;
+            for (int i = 0; i < counters.size(); i++) {
+                long[] total = merged.computeIfAbsent(counters.key(i), key -> new long[3]);
+                total[0] += counters.count(i);
+                total[1] += counters.overcount(i);
+                total[2] += untracked;
+            }
+        }
+        List<Ranked<T>> ranked = new ArrayList<>(merged.size());
+        for (Map.Entry<Long, long[]> entry : merged.entrySet()) {
+            long[] total = entry.getValue();
+            // a bucket that did not track the key may still have seen it up to its untracked bound
+            long missing = untrackedBounds - total[2];
+            ranked.add(new Ranked<>(item.apply(entry.getKey()), total[0] + missing, total[1] + missing));
+        }
+        ranked.sort(Comparator.comparingLong((Ranked<T> r) -> r.count()).reversed());
+        return List.copyOf(ranked.subList(0, Math.min(k, ranked.size())));
+    }
+
+    private Bucket currentBucket() {
+        long epoch = Math.floorDiv(clock.getAsLong(), bucketNanos);
+        Bucket bucket = buckets[(int) Math.floorMod(epoch, (long) buckets.length)];
+        if (bucket.epoch != epoch) {
+            bucket.reset(epoch);
+        }
+        return bucket;
+    }
+
+    private synchronized void missed(long events) {
+        missedEvents += events;
+    }
+
+    private void subscribe(long fromSequence) {
+        Flow.Subscription previous = subscription;
+        if (previous != null) {
+            previous.cancel();
+        }
+        if (closed) {
+            return;
+        }
+        nextSequence = fromSequence;
+        orderManager.feed().subscribe(new CompletedOrders(), fromSequence);
+    }
+
+    private final class CompletedOrders implements Flow.Subscriber<OrderEvent> {
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            OrderAnalytics.this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(OrderEvent event) {
+            if (event.sequence() > nextSequence) {
+                missed(event.sequence() - nextSequence);
+            }
+            nextSequence = event.sequence() + 1;
+            if (event.status() == OrderStatus.COMPLETED) {
+                record(event.building(), event.pancakes());
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // fell behind the feed; carry on from its newest event
+            long resumeFrom = orderManager.feed().nextSequence();
+            missed(resumeFrom - nextSequence);
+            subscribe(resumeFrom);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    private static final class Bucket {
+        private final SpaceSaving recipes;
+        private final SpaceSaving buildings;
+        private final long[] portions = new long[INGREDIENTS.length];
+        private long epoch = Long.MIN_VALUE;
+
+        Bucket(int tracked) {
+            recipes = new SpaceSaving(tracked);
+            buildings = new SpaceSaving(tracked);
+        }
+
+        boolean isWithin(long currentEpoch, int windowBuckets) {
+            return epoch <= currentEpoch && epoch > currentEpoch - windowBuckets;
+        }
+
+        void reset(long epoch) {
+            this.epoch = epoch;
+            recipes.clear();
+            buildings.clear();
+            Arrays.fill(portions, 0);
+        }
+    }
+}
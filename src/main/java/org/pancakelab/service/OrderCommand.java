@@ -0,0 +1,41 @@
+package org.pancakelab.service;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A change to an existing order, applied in bulk by {@link OrderManager#applyBatch(java.util.List)}.
+ */
+public sealed interface OrderCommand {
+
+    UUID orderId();
+
+    record AddPancakes(UUID orderId, PancakeRequest pancakes) implements OrderCommand {
+        public AddPancakes {
+            Objects.requireNonNull(orderId, "orderId");
+            Objects.requireNonNull(pancakes, "pancakes");
+        }
+    }
+
+    record RemovePancakes(UUID orderId, String description, int count) implements OrderCommand {
+        public RemovePancakes {
+            Objects.requireNonNull(orderId, "orderId");
+            Objects.requireNonNull(description, "description");
+            if (count < 1) {
+                throw new IllegalArgumentException("Count of pancakes should be positive");
+            }
+        }
+    }
+
+    record CompleteOrder(UUID orderId) implements OrderCommand {
+        public CompleteOrder {
+            Objects.requireNonNull(orderId, "orderId");
+        }
+    }
+
+    record CancelOrder(UUID orderId) implements OrderCommand {
+        public CancelOrder {
+            Objects.requireNonNull(orderId, "orderId");
+        }
+    }
+}
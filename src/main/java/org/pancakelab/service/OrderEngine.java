@@ -0,0 +1,62 @@
+package org.pancakelab.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The order lifecycle as asynchronous commands, so that callers can choose how the commands are executed:
+ * <ul>
+ *     <li>{@link #direct(OrderManager)} runs each command on the calling thread against an {@link OrderManager}
+ *     and returns a completed future;</li>
+ *     <li>{@link #partitioned(int, int)} hands each command to the single writer thread of the order's partition
+ *     through a bounded ring buffer, and the future completes once the writer has applied it.</li>
+ * </ul>
+ * Failures complete the future exceptionally with the exception {@link OrderManager} would have thrown.
+ */
+public interface OrderEngine extends AutoCloseable {
+
+    static OrderEngine direct(OrderManager orderManager) {
+        return new DirectOrderEngine(orderManager);
+    }
+
+    /**
+     * Creates an engine with {@code partitions} single-writer partitions, each taking up to {@code capacity}
+     * pending commands before callers have to wait.
+     */
+    static OrderEngine partitioned(int partitions, int capacity) {
+        return new PartitionedOrderEngine(partitions, capacity);
+    }
+
+    CompletableFuture<UUID> createOrder(int building, int room);
+
+    CompletableFuture<Void> addPancakes(UUID orderId, PancakeRequest pancakes);
+
+    CompletableFuture<Void> removePancakes(UUID orderId, String description, int count);
+
+    CompletableFuture<Void> completeOrder(UUID orderId);
+
+    CompletableFuture<Void> prepareOrder(UUID orderId);
+
+    CompletableFuture<Void> cancelOrder(UUID orderId);
+
+    /**
+     * Delivers a prepared order and returns its pancake summary, or {@code null} under the same conditions as
+     * {@link OrderManager#deliverOrder(UUID)}.
+     */
+    CompletableFuture<Map<String, Integer>> deliverOrder(UUID orderId);
+
+    CompletableFuture<Map<String, Integer>> viewOrderSummary(UUID orderId);
+
+    CompletableFuture<Set<UUID>> listCompletedOrders();
+
+    CompletableFuture<Set<UUID>> listPreparedOrders();
+
+    /**
+     * Stops taking commands once those already submitted have been applied. An interrupt while waiting for them
+     * is kept on the calling thread.
+     */
+    @Override
+    void close();
+}
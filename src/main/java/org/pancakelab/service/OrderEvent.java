@@ -0,0 +1,17 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.OrderStatus;
+import org.pancakelab.model.pancakes.Recipe;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An order moving to {@code status}, as published by {@link OrderFeed}. Sequence numbers are dense and increase by
+ * one per event for the lifetime of the manager. A {@link OrderStatus#COMPLETED} event carries the order's pancakes
+ * by recipe as they were when it was completed, so subscribers need not look the order up after it may have moved
+ * on; other events carry none.
+ */
+public record OrderEvent(long sequence, UUID orderId, int building, int room, OrderStatus status,
+                         Map<Recipe, Integer> pancakes) {
+}
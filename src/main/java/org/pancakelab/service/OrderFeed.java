@@ -0,0 +1,247 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.Order;
+import org.pancakelab.model.OrderStatus;
+import org.pancakelab.model.pancakes.Recipe;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Publishes every order status change as an {@link OrderEvent}, so that workers can react to completed and prepared
+ * orders instead of polling for them.
+ * <p>
+ * The last {@code capacity} events are kept in one ring shared by all subscribers; a subscriber is only a cursor
+ * into it, so memory does not grow with the number of subscribers or with how far behind they are. Publishing never
+ * waits for subscribers. Events are delivered on the executor only as far as the subscriber has requested, and a
+ * subscriber that falls more than {@code capacity} events behind is failed with {@link LaggedException}; it can
+ * resubscribe from {@link #oldestSequence()} and reconcile the gap with the listing methods of
+ * {@link OrderManager}. Any subscriber can resume from a sequence number it has seen, as long as that event is
+ * still in the ring.
+ * <p>
+ * Events are published while the order's monitor is held, so the events of one order are in the order the changes
+ * were applied and a completed order's pancakes are read consistently, but before the journal has synced the
+ * change.
+ */
+public class OrderFeed implements Flow.Publisher<OrderEvent> {
+    static final int DEFAULT_CAPACITY = 4096;
+
+    private final AtomicReferenceArray<OrderEvent> events;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final Executor executor;
+    private final List<FeedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    OrderFeed() {
+        this(DEFAULT_CAPACITY, ForkJoinPool.commonPool());
+    }
+
+    OrderFeed(int capacity, Executor executor) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity should be a power of two, got " + capacity);
+        }
+        this.events = new AtomicReferenceArray<>(capacity);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.executor = executor;
+    }
+
+    /**
+     * Subscribes to the events published from now on.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super OrderEvent> subscriber) {
+        subscribe(subscriber, nextSequence.get());
+    }
+
+    /**
+     * Subscribes starting with the event numbered {@code fromSequence}. The subscriber is failed with
+     * {@link LaggedException} if that event is no longer kept, and with {@link IllegalArgumentException} if it has
+     * not been published yet and is not the next one.
+     */
+    public void subscribe(Flow.Subscriber<? super OrderEvent> subscriber, long fromSequence) {
+        FeedSubscription subscription = new FeedSubscription(subscriber, fromSequence);
+        subscriber.onSubscribe(subscription);
+        long next = nextSequence.get();
+        if (fromSequence < 0 || fromSequence > next) {
+            subscription.fail(new IllegalArgumentException(
+                    "Sequence " + fromSequence + " has not been published, next is " + next));
+        } else if (fromSequence < next - capacity) {
+            subscription.fail(new LaggedException(fromSequence, oldestSequence()));
+        } else {
+            subscriptions.add(subscription);
+            if (subscription.done) {
+                // cancelled from onSubscribe
+                subscriptions.remove(subscription);
+            }
+            subscription.signal();
+        }
+    }
+
+    /**
+     * Sequence number the next event will get.
+     */
+    public long nextSequence() {
+        return nextSequence.get();
+    }
+
+    /**
+     * Sequence number of the oldest event that subscribers can still resume from.
+     */
+    public long oldestSequence() {
+        return Math.max(0, nextSequence.get() - capacity);
+    }
+
+    public int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    void publish(Order order, OrderStatus status) {
+        Map<Recipe, Integer> pancakes = Map.of();
+        if (status == OrderStatus.COMPLETED) {
+            Map<Recipe, Integer> lines = new LinkedHashMap<>();
+            order.forEachPancake(lines::put);
+            pancakes = Collections.unmodifiableMap(lines);
+        }
+        long sequence = nextSequence.getAndIncrement();
+        OrderEvent event = new OrderEvent(sequence, order.getId(), order.getBuilding(), order.getRoom(), status,
+                pancakes);
+        int slot = (int) sequence & mask;
+        while (true) {
+            OrderEvent current = events.get(slot);
+            if (current != null && current.sequence() > sequence) {
+                // overtaken by a producer a whole lap ahead; nobody can read this event any more
+                break;
+            }
+            if (events.compareAndSet(slot, current, event)) {
+                break;
+            }
+        }
+        for (FeedSubscription subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * Returns the event numbered {@code sequence}, or {@code null} if it has not been published yet.
+     *
+     * @throws LaggedException if the event has already been overwritten
+     */
+    private OrderEvent read(long sequence) {
+        OrderEvent event = events.get((int) sequence & mask);
+        if (event == null || event.sequence() < sequence) {
+            return null;
+        }
+        if (event.sequence() > sequence) {
+            throw new LaggedException(sequence, oldestSequence());
+        }
+        return event;
+    }
+
+    /**
+     * Thrown to a subscriber whose next event has already been dropped from the ring.
+     */
+    public static class LaggedException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+        private final long oldestSequence;
+
+        LaggedException(long missedSequence, long oldestSequence) {
+            super("Event " + missedSequence + " is no longer available, oldest is " + oldestSequence);
+            this.oldestSequence = oldestSequence;
+        }
+
+        public long getOldestSequence() {
+            return oldestSequence;
+        }
+    }
+
+    /**
+     * One subscriber's cursor and outstanding demand. Signals from producers, {@link #request} and failures are
+     * coalesced so that at most one drain task runs at a time, which keeps the calls to the subscriber serial.
+     */
+    private final class FeedSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super OrderEvent> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger pendingSignals = new AtomicInteger();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private volatile boolean done;
+        // only touched by the drain task
+        private long cursor;
+
+        FeedSubscription(Flow.Subscriber<? super OrderEvent> subscriber, long cursor) {
+            this.subscriber = subscriber;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Requested " + n + " events, should be positive"));
+                return;
+            }
+            requested.accumulateAndGet(n, (current, added) -> {
+                long sum = current + added;
+                return sum < 0 ? Long.MAX_VALUE : sum;
+            });
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+            subscriptions.remove(this);
+        }
+
+        void signal() {
+            if (!done && pendingSignals.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        /**
+         * Ends the subscription with {@code failure}; the subscriber is told from the drain task.
+         */
+        void fail(Throwable failure) {
+            if (error.compareAndSet(null, failure)) {
+                signal();
+            }
+        }
+
+        private void drain() {
+            int signals = pendingSignals.get();
+            do {
+                try {
+                    while (!done && error.get() == null && requested.get() > 0) {
+                        OrderEvent event = read(cursor);
+                        if (event == null) {
+                            break;
+                        }
+                        cursor++;
+                        if (requested.get() != Long.MAX_VALUE) {
+                            requested.decrementAndGet();
+                        }
+                        subscriber.onNext(event);
+                    }
+                } catch (RuntimeException e) {
+                    error.compareAndSet(null, e);
+                }
+                if (!done && error.get() != null) {
+                    cancel();
+                    subscriber.onError(error.get());
+                }
+                signals = pendingSignals.addAndGet(-signals);
+            } while (signals != 0);
+        }
+    }
+}
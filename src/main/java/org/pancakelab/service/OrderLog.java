@@ -2,30 +2,85 @@ package org.pancakelab.service;
 
 import org.pancakelab.model.Order;
 
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Audit log of order changes. The level is checked on the caller's thread before any work is done; enabled events
+ * are published as plain records to a background writer that formats and logs them in batches.
+ */
 public class OrderLog {
     private static final Logger log = Logger.getLogger(OrderLog.class.getName());
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private static volatile OrderLogWriter writer =
+            new OrderLogWriter(log, DEFAULT_CAPACITY, BackPressurePolicy.BLOCK, 1);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> writer.close(), "order-log-shutdown"));
+    }
+
+    /**
+     * Replaces the writer with one using the given buffer capacity (a power of two) and back-pressure policy;
+     * {@code sampleRate} is only used by {@link BackPressurePolicy#SAMPLE}. Meant to be called at startup: events
+     * published concurrently with the switch may be lost.
+     */
+    public static void configure(int capacity, BackPressurePolicy policy, int sampleRate) {
+        OrderLogWriter previous = writer;
+        writer = new OrderLogWriter(log, capacity, policy, sampleRate);
+        previous.close();
+    }
+
+    /**
+     * Blocks until all events logged so far have been written.
+     */
+    public static void flush() {
+        writer.flush();
+    }
+
+    public static long droppedEvents() {
+        return writer.droppedEvents();
+    }
 
     public static void logAddPancake(Order order, String description, long pancakesInOrder) {
-        log.info("Added pancake with description '%s' ".formatted(description)
-                 + "to order %s containing %d pancakes, ".formatted(order.getId(), pancakesInOrder)
-                 + "for building %d, room %d.".formatted(order.getBuilding(), order.getRoom()));
+        if (log.isLoggable(Level.INFO)) {
+            writer.publish(new OrderLogEvent.PancakeAdded(order.getId(), order.getBuilding(), order.getRoom(),
+                    description, pancakesInOrder));
+        }
     }
 
     public static void logRemovePancakes(Order order, String description, int count, long pancakesInOrder) {
-        log.info("Removed %d pancake(s) with description '%s' ".formatted(count, description)
-                 + "from order %s now containing %d pancakes, ".formatted(order.getId(), pancakesInOrder)
-                 + "for building %d, room %d.".formatted(order.getBuilding(), order.getRoom()));
+        if (log.isLoggable(Level.INFO)) {
+            writer.publish(new OrderLogEvent.PancakesRemoved(order.getId(), order.getBuilding(), order.getRoom(),
+                    description, count, pancakesInOrder));
+        }
     }
 
     public static void logCancelOrder(Order order, long pancakesInOrder) {
-        log.info("Cancelled order %s with %d pancakes ".formatted(order.getId(), pancakesInOrder)
-                 + "for building %d, room %d.".formatted(order.getBuilding(), order.getRoom()));
+        if (log.isLoggable(Level.INFO)) {
+            writer.publish(new OrderLogEvent.OrderCancelled(order.getId(), order.getBuilding(), order.getRoom(),
+                    pancakesInOrder));
+        }
     }
 
     public static void logDeliverOrder(Order order, long pancakesCount) {
-        log.info("Order %s with %d pancakes ".formatted(order.getId(), pancakesCount)
-                 + "for building %d, room %d out for delivery.".formatted(order.getBuilding(), order.getRoom()));
+        if (log.isLoggable(Level.INFO)) {
+            writer.publish(new OrderLogEvent.OrderDelivered(order.getId(), order.getBuilding(), order.getRoom(),
+                    pancakesCount));
+        }
+    }
+
+    public static void logPlaceOrder(Order order, long pancakesInOrder) {
+        if (log.isLoggable(Level.INFO)) {
+            writer.publish(new OrderLogEvent.OrderPlaced(order.getId(), order.getBuilding(), order.getRoom(),
+                    pancakesInOrder));
+        }
+    }
+
+    public static void logApplyBatch(Order order, int commands, long pancakesInOrder) {
+        if (log.isLoggable(Level.INFO)) {
+            writer.publish(new OrderLogEvent.BatchApplied(order.getId(), order.getBuilding(), order.getRoom(),
+                    commands, pancakesInOrder));
+        }
     }
 }
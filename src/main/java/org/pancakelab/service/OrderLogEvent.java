@@ -0,0 +1,101 @@
+package org.pancakelab.service;
+
+import java.util.UUID;
+
+/**
+ * Audit events published by {@link OrderLog}. Events carry plain values only and are formatted by the log writer
+ * thread, never by the caller.
+ */
+sealed interface OrderLogEvent {
+
+    /**
+     * Name of the {@link OrderLog} method that published the event, reported as the log record's source method.
+     */
+    String sourceMethod();
+
+    String format();
+
+    record PancakeAdded(UUID orderId, int building, int room, String description, long pancakesInOrder)
+            implements OrderLogEvent {
+        @Override
+        public String sourceMethod() {
+            return "logAddPancake";
+        }
+
+        @Override
+        public String format() {
+            return "Added pancake with description '%s' ".formatted(description)
+                   + "to order %s containing %d pancakes, ".formatted(orderId, pancakesInOrder)
+                   + "for building %d, room %d.".formatted(building, room);
+        }
+    }
+
+    record PancakesRemoved(UUID orderId, int building, int room, String description, int count,
+                           long pancakesInOrder) implements OrderLogEvent {
+        @Override
+        public String sourceMethod() {
+            return "logRemovePancakes";
+        }
+
+        @Override
+        public String format() {
+            return "Removed %d pancake(s) with description '%s' ".formatted(count, description)
+                   + "from order %s now containing %d pancakes, ".formatted(orderId, pancakesInOrder)
+                   + "for building %d, room %d.".formatted(building, room);
+        }
+    }
+
+    record OrderCancelled(UUID orderId, int building, int room, long pancakesInOrder) implements OrderLogEvent {
+        @Override
+        public String sourceMethod() {
+            return "logCancelOrder";
+        }
+
+        @Override
+        public String format() {
+            return "Cancelled order %s with %d pancakes ".formatted(orderId, pancakesInOrder)
+                   + "for building %d, room %d.".formatted(building, room);
+        }
+    }
+
+    record OrderDelivered(UUID orderId, int building, int room, long pancakesCount) implements OrderLogEvent {
+        @Override
+        public String sourceMethod() {
+            return "logDeliverOrder";
+        }
+
+        @Override
+        public String format() {
+            return "Order %s with %d pancakes ".formatted(orderId, pancakesCount)
+                   + "for building %d, room %d out for delivery.".formatted(building, room);
+        }
+    }
+
+    record OrderPlaced(UUID orderId, int building, int room, long pancakesInOrder) implements OrderLogEvent {
+        @Override
+        public String sourceMethod() {
+            return "logPlaceOrder";
+        }
+
+        @Override
+        public String format() {
+            return "Placed order %s with %d pancakes ".formatted(orderId, pancakesInOrder)
+                   + "for building %d, room %d.".formatted(building, room);
+        }
+    }
+
+    record BatchApplied(UUID orderId, int building, int room, int commands, long pancakesInOrder)
+            implements OrderLogEvent {
+        @Override
+        public String sourceMethod() {
+            return "logApplyBatch";
+        }
+
+        @Override
+        public String format() {
+            return "Applied %d change(s) to order %s now containing %d pancakes, ".formatted(commands, orderId,
+                    pancakesInOrder)
+                   + "for building %d, room %d.".formatted(building, room);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.pancakelab.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Background writer behind {@link OrderLog}. Callers publish events into a lock-free ring buffer; a single daemon
+ * thread drains it in batches, formats the events and hands them to {@code java.util.logging}. When the buffer is
+ * full the configured {@link BackPressurePolicy} decides whether the caller waits or the event is dropped.
+ */
+final class OrderLogWriter {
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = 1_000_000L;
+    private static final long FULL_PARK_NANOS = 10_000L;
+
+    private final Logger log;
+    private final MpscRingBuffer<OrderLogEvent> buffer;
+    private final BackPressurePolicy policy;
+    private final int sampleRate;
+    private final AtomicLong overflows = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    OrderLogWriter(Logger log, int capacity, BackPressurePolicy policy, int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate should be positive");
+        }
+        this.log = log;
+        this.buffer = new MpscRingBuffer<>(capacity);
+        this.policy = policy;
+        this.sampleRate = sampleRate;
+        this.thread = new Thread(this::run, "order-log-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void publish(OrderLogEvent event) {
+        if (buffer.offer(event)) {
+            return;
+        }
+        switch (policy) {
+            case DROP -> dropped.increment();
+            case BLOCK -> awaitRoom(event);
+            case SAMPLE -> {
+                if (overflows.getAndIncrement() % sampleRate == 0) {
+                    awaitRoom(event);
+                } else {
+                    dropped.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until every event published before this call has been handed to the logger.
+     */
+    void flush() {
+        long published = buffer.published();
+        while (buffer.consumed() < published && thread.isAlive()) {
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(this, FULL_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Writes out what is buffered and stops the writer thread.
+     */
+    void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long droppedEvents() {
+        return dropped.sum();
+    }
+
+    private void awaitRoom(OrderLogEvent event) {
+        LockSupport.unpark(thread);
+        while (!buffer.offer(event)) {
+            if (!running) {
+                dropped.increment();
+                return;
+            }
+            LockSupport.parkNanos(this, FULL_PARK_NANOS);
+        }
+    }
+
+    private void run() {
+        while (running || buffer.consumed() < buffer.published()) {
+            if (buffer.drain(this::write, BATCH_SIZE) == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void write(OrderLogEvent event) {
+        try {
+            log.logp(Level.INFO, OrderLog.class.getName(), event.sourceMethod(), event.format());
+        } catch (RuntimeException e) {
+            dropped.increment();
+        }
+    }
+}
@@ -1,67 +1,349 @@
 package org.pancakelab.service;
 
+import org.pancakelab.journal.JournalRecord;
+import org.pancakelab.journal.OrderJournal;
+import org.pancakelab.journal.OrderSnapshot;
+import org.pancakelab.journal.SnapshotStore;
+import org.pancakelab.metrics.Operation;
+import org.pancakelab.metrics.OrderMetrics;
+import org.pancakelab.model.IdGenerator;
 import org.pancakelab.model.Order;
 import org.pancakelab.model.OrderStatus;
+import org.pancakelab.model.pancakes.Recipe;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
+/**
+ * Entry point for the order lifecycle. Every change is also appended to an {@link OrderJournal}; changes to an
+ * order are applied and journaled while holding that order's monitor, so each order's records appear in the journal
+ * in the order they were applied and the order remembers the LSN of its last record. Callers then wait for the
+ * journal's fsync policy outside the monitor.
+ * <p>
+ * With a {@link SnapshotStore}, {@link #snapshot()} writes the open orders and truncates the journal history it
+ * covers, so startup only has to load the snapshot and replay what came after it.
+ * <p>
+ * With an idle timeout, orders left in CREATED without any change for that long are cancelled by
+ * {@link #evictIdleOrders()}, which only looks at the orders whose timeout is due.
+ * <p>
+ * Clients that retry can run their changes through {@link #once(UUID, Supplier)} with a request id, so that a retry
+ * is answered with the first attempt's outcome instead of being applied twice.
+ * <p>
+ * With an {@link AdmissionControl}, new orders are turned away with an
+ * {@link AdmissionControl.OverloadedException} while the manager is overloaded; the orders it already has are never
+ * held up.
+ * <p>
+ * Status changes are published to the {@link #feed()}; changes rebuilt at startup are not. Operations are timed
+ * by {@link #metrics()} once they are enabled there.
+ */
 public class OrderManager {
 
     private final PancakeService pancakeService;
-    private final Map<UUID, Order> orders = new ConcurrentHashMap<>();
+    private final IdGenerator idGenerator;
+    private final OrderJournal journal;
+    private final SnapshotStore snapshots;
+    private final OrderRegistry orders = new OrderRegistry();
+    private static final int IDLE_WHEEL_SLOTS = 512;
+
+    private final OrderFeed feed = new OrderFeed();
+    private final OrderMetrics metrics = new OrderMetrics();
+    private final Object snapshotLock = new Object();
+    private final long idleTimeoutNanos;
+    private final TimerWheel<Order> idleOrders;
+    private final LongAdder evictedOrders = new LongAdder();
+    private final RequestCache requests;
+    private final AdmissionControl admission;
 
     public OrderManager(PancakeService pancakeService) {
+        this(pancakeService, OrderManagerConfig.defaults());
+    }
+
+    /**
+     * Creates a manager as {@code config} describes, rebuilding the open orders from its latest snapshot, if any,
+     * and the journal records that followed it.
+     */
+    public OrderManager(PancakeService pancakeService, OrderManagerConfig config) {
         this.pancakeService = pancakeService;
+        this.idGenerator = config.idGenerator();
+        this.requests = config.requests();
+        this.admission = config.admission();
+        this.journal = config.journal();
+        this.snapshots = config.snapshots();
+        this.idleTimeoutNanos = config.idleTimeout().toNanos();
+        this.idleOrders = idleTimeoutNanos > 0
+                ? new TimerWheel<>(Math.max(1, idleTimeoutNanos / IDLE_WHEEL_SLOTS * 2), IDLE_WHEEL_SLOTS,
+                System.nanoTime())
+                : null;
+        metrics.registerGauge("openOrders", orders::size);
+        metrics.registerGauge("pancakesInProgress", pancakeService::getPancakesInProgress);
+        for (OrderStatus status : OrderStatus.values()) {
+            if (!status.isTerminal()) {
+                metrics.registerGauge("orders." + status, () -> orders.count(status));
+            }
+        }
+        metrics.registerGauge("evictedOrders", evictedOrders::sum);
+        metrics.registerGauge("evictedPancakes", pancakeService::getEvictedPancakes);
+        metrics.registerGauge("requests.hits", requests::hits);
+        metrics.registerGauge("requests.misses", requests::misses);
+        metrics.registerGauge("requests.evictions", requests::evictions);
+        metrics.registerGauge("requests.bytes", requests::estimatedBytes);
+        metrics.registerGauge("admission.limit", admission::limit);
+        metrics.registerGauge("admission.open", admission::openOrders);
+        metrics.registerGauge("admission.shed", admission::shedOrders);
+        long fromLsn = snapshots == null ? 0 : snapshots.restoreLatest(this::restore);
+        journal.replay(fromLsn, this::replay);
+        orders.forEach(order -> admission.readmit(order.getBuilding()));
+        if (idleOrders != null) {
+            // rebuilt orders start their idle time now
+            orders.forEach(order -> {
+                if (order.getOrderStatus() == OrderStatus.CREATED) {
+                    trackIdle(order);
+                }
+            });
+        }
     }
 
     public UUID createOrder(int building, int room) {
-        Order order = new Order(building, room);
-        orders.put(order.getId(), order);
+        return createOrder(idGenerator.next(), building, room);
+    }
+
+    /**
+     * Creates an order under an id chosen by the caller, for {@link ShardedOrderManager} to route by it.
+     */
+    UUID createOrder(UUID orderId, int building, int room) {
+        long start = metrics.start();
+        Order order = new Order(orderId, building, room);
+        admission.admit(building, pancakeService.getPancakesInProgress());
+        metrics.recordCreated(order, start);
+        long lsn;
+        synchronized (order) {
+            // registered before it is journaled so that a concurrent snapshot cannot miss it
+            orders.add(order);
+            try {
+                lsn = journal.append(JournalRecord.create(order.getId(), building, room));
+            } catch (RuntimeException e) {
+                orders.remove(order.getId());
+                admission.release(building);
+                throw e;
+            }
+            order.setJournalLsn(lsn);
+            trackIdle(order);
+        }
+        journal.sync(lsn);
+        metrics.record(Operation.CREATE_ORDER, start);
         return order.getId();
     }
 
+    /**
+     * Creates an order with all of its pancakes in one call. Every ingredient and count is validated before
+     * anything happens, so either the whole order is created or nothing is; the order is journaled in one go and
+     * logged once.
+     */
+    public UUID placeOrder(OrderRequest request) {
+        return placeOrder(idGenerator.next(), request);
+    }
+
+    /**
+     * Places an order under an id chosen by the caller, like {@link #createOrder(UUID, int, int)}.
+     */
+    UUID placeOrder(UUID orderId, OrderRequest request) {
+        long start = metrics.start();
+        List<Recipe> recipes = new ArrayList<>(request.pancakes().size());
+        for (PancakeRequest pancakes : request.pancakes()) {
+            recipes.add(pancakeService.recipeOf(pancakes.ingredients()));
+        }
+        Order order = new Order(orderId, request.building(), request.room());
+        admission.admit(order.getBuilding(), pancakeService.getPancakesInProgress());
+        Inventory inventory = pancakeService.inventory();
+        for (int i = 0; i < recipes.size(); i++) {
+            try {
+                inventory.reserve(recipes.get(i), request.pancakes().get(i).count());
+            } catch (IllegalStateException outOfStock) {
+                abandon(order, recipes.subList(0, i), request);
+                throw outOfStock;
+            }
+        }
+        metrics.recordCreated(order, start);
+        List<JournalRecord> records = new ArrayList<>(recipes.size() + 1);
+        records.add(JournalRecord.create(order.getId(), order.getBuilding(), order.getRoom()));
+        for (int i = 0; i < recipes.size(); i++) {
+            int count = request.pancakes().get(i).count();
+            order.addPancake(recipes.get(i), count);
+            records.add(JournalRecord.addPancakes(order.getId(), recipes.get(i).code(), count));
+        }
+        long lsn;
+        synchronized (order) {
+            orders.add(order);
+            try {
+                lsn = journal.append(records);
+            } catch (RuntimeException e) {
+                orders.remove(order.getId());
+                abandon(order, recipes, request);
+                throw e;
+            }
+            order.setJournalLsn(lsn);
+            trackIdle(order);
+        }
+        journal.sync(lsn);
+        OrderLog.logPlaceOrder(order, order.getPancakeCount());
+        metrics.record(Operation.PLACE_ORDER, start);
+        return order.getId();
+    }
+
+    /**
+     * Gives back what was taken for an order that is not placed after all: its admission and the stock reserved
+     * for the first {@code reserved.size()} pancakes of the request.
+     */
+    private void abandon(Order order, List<Recipe> reserved, OrderRequest request) {
+        for (int i = 0; i < reserved.size(); i++) {
+            pancakeService.inventory().release(reserved.get(i), request.pancakes().get(i).count());
+        }
+        admission.release(order.getBuilding());
+    }
+
+    /**
+     * Applies commands for any number of orders in one pass. Commands are grouped by order and each order is
+     * looked up once; an order's commands are validated together against its current state and then either all
+     * applied, journaled and logged as one entry, or none are and the order is reported as rejected.
+     */
+    public BatchResult applyBatch(List<OrderCommand> commands) {
+        long start = metrics.start();
+        Map<UUID, List<OrderCommand>> commandsByOrder = new LinkedHashMap<>();
+        for (OrderCommand command : commands) {
+            commandsByOrder.computeIfAbsent(command.orderId(), id -> new ArrayList<>()).add(command);
+        }
+        Set<UUID> applied = new LinkedHashSet<>();
+        Map<UUID, String> rejected = new LinkedHashMap<>();
+        long lastLsn = -1;
+        for (Map.Entry<UUID, List<OrderCommand>> entry : commandsByOrder.entrySet()) {
+            Order order = orders.get(entry.getKey());
+            if (order == null) {
+                rejected.put(entry.getKey(), "Order not found");
+                continue;
+            }
+            try {
+                lastLsn = Math.max(lastLsn, applyAll(order, entry.getValue()));
+                applied.add(order.getId());
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                rejected.put(order.getId(), e.getMessage());
+            }
+        }
+        if (lastLsn >= 0) {
+            journal.sync(lastLsn);
+        }
+        metrics.record(Operation.APPLY_BATCH, start);
+        return new BatchResult(applied, rejected);
+    }
+
     public void removePancakes(String description, UUID orderId, int count) {
-        Order order = orders.get(orderId);
-        if (order == null) {
-            throw new IllegalArgumentException("Order not found");
+        if (count < 1) {
+            throw new IllegalArgumentException("Count of pancakes should be positive");
+        }
+        long start = metrics.start();
+        Order order = getOrder(orderId);
+        int removedCount;
+        long lsn;
+        synchronized (order) {
+            checkChangeable(order);
+            Recipe recipe = order.findRecipe(description);
+            removedCount = order.removePancakes(recipe, count);
+            pancakeService.inventory().release(recipe, removedCount);
+            lsn = journal.append(JournalRecord.removePancakes(orderId, recipe.code(), removedCount));
+            order.setJournalLsn(lsn);
+            touch(order);
         }
-        int removedCount = order.removePancakes(description, count);
-        OrderLog.logRemovePancakes(order, description, removedCount, order.getPancakes().size());
+        journal.sync(lsn);
+        OrderLog.logRemovePancakes(order, description, removedCount, order.getPancakeCount());
+        metrics.record(Operation.REMOVE_PANCAKES, start);
+    }
+
+    /**
+     * Starts a new pancake for an open order. Unlike {@link PancakeService#startNewPancake(UUID)}, the order must
+     * exist, and the pancake is turned away with {@link AdmissionControl.OverloadedException} while there are as many
+     * pancakes in progress as the admission control allows.
+     */
+    public void startNewPancake(UUID orderId) {
+        getOrder(orderId);
+        admission.admitPancake(pancakeService.getPancakesInProgress());
+        pancakeService.startNewPancake(orderId);
     }
 
     public void addPancake(UUID orderId, int count) {
-        Order order = orders.get(orderId);
-        if (order == null) {
-            throw new IllegalArgumentException("Order not found");
+        long start = metrics.start();
+        Order order = getOrder(orderId);
+        long lsn;
+        synchronized (order) {
+            checkChangeable(order);
+            Recipe recipe = pancakeService.addPancake(order, count);
+            if (recipe == null) {
+                return;
+            }
+            lsn = journal.append(JournalRecord.addPancakes(orderId, recipe.code(), count));
+            order.setJournalLsn(lsn);
+            touch(order);
+        }
+        journal.sync(lsn);
+        metrics.record(Operation.ADD_PANCAKE, start);
+    }
+
+    /**
+     * Adds pancakes to the order in one step, without a pancake in progress; for {@link OrderEngine#direct}.
+     */
+    void addPancakes(UUID orderId, PancakeRequest pancakes) {
+        long start = metrics.start();
+        Recipe recipe = pancakeService.recipeOf(pancakes.ingredients());
+        Order order = getOrder(orderId);
+        long lsn;
+        synchronized (order) {
+            checkChangeable(order);
+            pancakeService.inventory().reserve(recipe, pancakes.count());
+            order.addPancake(recipe, pancakes.count());
+            lsn = journal.append(JournalRecord.addPancakes(orderId, recipe.code(), pancakes.count()));
+            order.setJournalLsn(lsn);
+            touch(order);
         }
-        pancakeService.addPancake(order, count);
+        journal.sync(lsn);
+        OrderLog.logAddPancake(order, recipe.description(), order.getPancakeCount());
+        metrics.record(Operation.ADD_PANCAKE, start);
     }
 
     public void cancelOrder(UUID orderId) {
-        Order order = orders.remove(orderId);
-        OrderLog.logCancelOrder(order, order.getPancakes().size());
+        long start = metrics.start();
+        Order order = getOrder(orderId);
+        long lsn;
+        synchronized (order) {
+            lsn = transitionLocked(order, OrderStatus.CANCELLED);
+            releaseStock(order);
+        }
+        journal.sync(lsn);
+        pancakeService.discardPancake(orderId);
+        OrderLog.logCancelOrder(order, order.getPancakeCount());
+        metrics.record(Operation.CANCEL_ORDER, start);
     }
 
     public void completeOrder(UUID orderId) {
-        Order order = orders.get(orderId);
-        if (order == null) {
-            throw new IllegalArgumentException("Order not found");
-        }
-        order.setOrderStatus(OrderStatus.COMPLETED);
+        long start = metrics.start();
+        transition(getOrder(orderId), OrderStatus.COMPLETED);
+        metrics.record(Operation.COMPLETE_ORDER, start);
     }
 
     public Set<UUID> listCompletedOrders() {
-        return orders.entrySet()
-                .stream()
-                .filter(entry -> OrderStatus.COMPLETED.equals(entry.getValue().getOrderStatus()))
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toSet());
+        return orders.list(OrderStatus.COMPLETED);
+    }
+
+    public List<UUID> listCompletedOrders(UUID after, int limit) {
+        return orders.list(OrderStatus.COMPLETED, after, limit);
     }
 
     public List<String> viewOrder(UUID orderId) {
@@ -72,32 +354,579 @@ public class OrderManager {
         return order.viewOrder();
     }
 
-    public void prepareOrder(UUID orderId) {
+    /**
+     * Returns the pancake descriptions in the order with the number of pancakes for each, in the order they were
+     * first added, or an empty map if the order does not exist.
+     */
+    public Map<String, Integer> viewOrderSummary(UUID orderId) {
         Order order = orders.get(orderId);
         if (order == null) {
-            throw new IllegalArgumentException("Order not found");
+            return Collections.emptyMap();
         }
-        order.setOrderStatus(OrderStatus.PREPARED);
+        return summarize(order);
+    }
+
+    private static Map<String, Integer> summarize(Order order) {
+        Map<String, Integer> summary = new LinkedHashMap<>();
+        order.forEachPancake((recipe, count) -> summary.put(recipe.description(), count));
+        return summary;
+    }
+
+    public void prepareOrder(UUID orderId) {
+        long start = metrics.start();
+        transition(getOrder(orderId), OrderStatus.PREPARED);
+        metrics.record(Operation.PREPARE_ORDER, start);
     }
 
     public Set<UUID> listPreparedOrders() {
-        return orders.entrySet()
-                .stream()
-                .filter(entry -> OrderStatus.PREPARED.equals(entry.getValue().getOrderStatus()))
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toSet());
+        return orders.list(OrderStatus.PREPARED);
+    }
+
+    public List<UUID> listPreparedOrders(UUID after, int limit) {
+        return orders.list(OrderStatus.PREPARED, after, limit);
+    }
+
+    /**
+     * Cancels the orders that have stayed in CREATED without changes for longer than the idle timeout, discarding
+     * their in-progress pancakes, and returns how many there were. Does nothing without an idle timeout; meant to be
+     * called periodically, e.g. from a {@code ScheduledExecutorService}.
+     */
+    public int evictIdleOrders() {
+        return evictIdleOrders(System.nanoTime());
+    }
+
+    int evictIdleOrders(long nowNanos) {
+        if (idleOrders == null) {
+            return 0;
+        }
+        List<Order> due = new ArrayList<>();
+        idleOrders.expire(nowNanos, due);
+        int evicted = 0;
+        long lastLsn = -1;
+        for (Order order : due) {
+            synchronized (order) {
+                if (order.getOrderStatus() != OrderStatus.CREATED || orders.get(order.getId()) != order) {
+                    // moved on, or handed over to another manager
+                    continue;
+                }
+                long idleUntil = order.getChangedNanos() + idleTimeoutNanos;
+                if (idleUntil - nowNanos > 0) {
+                    idleOrders.schedule(order, idleUntil);
+                    continue;
+                }
+                lastLsn = Math.max(lastLsn, transitionLocked(order, OrderStatus.CANCELLED));
+                releaseStock(order);
+            }
+            pancakeService.discardPancake(order.getId());
+            OrderLog.logCancelOrder(order, order.getPancakeCount());
+            evicted++;
+        }
+        if (lastLsn >= 0) {
+            journal.sync(lastLsn);
+        }
+        evictedOrders.add(evicted);
+        return evicted;
+    }
+
+    /**
+     * Number of orders cancelled for being idle since the manager was created.
+     */
+    public long getEvictedOrders() {
+        return evictedOrders.sum();
+    }
+
+    /**
+     * Runs a change to this manager or its {@link PancakeService} on behalf of client request {@code requestId}, at
+     * most once: a retry of the request gets the first attempt's result or exception back from {@link #requests()}
+     * instead of applying the change again. A {@code null} request id always runs the change.
+     */
+    public <T> T once(UUID requestId, Supplier<T> change) {
+        return requests.execute(requestId, change);
+    }
+
+    public void once(UUID requestId, Runnable change) {
+        requests.execute(requestId, () -> {
+            change.run();
+            return null;
+        });
+    }
+
+    /**
+     * Outcomes of recent client requests, with their hit rate and size.
+     */
+    public RequestCache requests() {
+        return requests;
+    }
+
+    /**
+     * What decides whether new orders are taken on, with its current limit and the orders it turned away.
+     */
+    public AdmissionControl admission() {
+        return admission;
     }
 
+    /**
+     * Publisher of every status change from now on, so that the kitchen can subscribe to completed orders and
+     * delivery to prepared ones instead of polling the listing methods.
+     */
+    public OrderFeed feed() {
+        return feed;
+    }
+
+    /**
+     * Operation latencies, order ages and gauges of this manager; disabled until
+     * {@link OrderMetrics#setEnabled(boolean)} is called.
+     */
+    public OrderMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Delivers a prepared order and removes it. Returns {@code null} if the order is unknown, not prepared yet or
+     * has already been delivered by a concurrent call, so every order is handed out exactly once.
+     */
     public Object[] deliverOrder(UUID orderId) {
+        Order order = deliver(orderId);
+        if (order == null) {
+            return null;
+        }
+        return new Object[]{order, order.viewOrder()};
+    }
+
+    /**
+     * Delivers a prepared order like {@link #deliverOrder(UUID)}, but returns it with its pancakes counted by
+     * description as in {@link #viewOrderSummary(UUID)} instead of one description per pancake.
+     */
+    public DeliveredOrder deliverOrderSummary(UUID orderId) {
+        Order order = deliver(orderId);
+        if (order == null) {
+            return null;
+        }
+        return new DeliveredOrder(order, summarize(order));
+    }
+
+    /**
+     * Writes a snapshot of all open orders and truncates the journal before it. Writers are not stopped: each
+     * order is copied under its own monitor, and records journaled for it after the copy are replayed on top of the
+     * snapshot at startup. Meant to be called periodically, e.g. from a {@code ScheduledExecutorService}.
+     * Pancakes still in progress are not part of it, as they are not journaled and do not survive a restart.
+     */
+    public void snapshot() {
+        if (snapshots == null) {
+            throw new IllegalStateException("No snapshot store configured");
+        }
+        synchronized (snapshotLock) {
+            // every record before this LSN has already been applied to an order that is registered
+            long journalLsn = journal.endLsn();
+            try (SnapshotStore.Writer writer = snapshots.begin(journalLsn)) {
+                orders.forEach(order -> {
+                    OrderSnapshot snapshot = capture(order);
+                    if (snapshot != null) {
+                        writer.write(snapshot);
+                    }
+                });
+                writer.commit();
+            }
+            journal.truncateBefore(journalLsn);
+        }
+    }
+
+    /**
+     * Removes the open orders whose ids match {@code moving} and hands them to {@code receiver}, typically another
+     * manager's {@link #adopt(List)}. Each order is copied and removed under its monitor and its move is journaled,
+     * so that a replay does not bring it back; that record is only synced once {@code receiver} has returned.
+     * Returns how many orders were moved.
+     */
+    int release(Predicate<UUID> moving, Consumer<List<OrderSnapshot>> receiver) {
+        List<Order> matching = new ArrayList<>();
+        orders.forEach(order -> {
+            if (moving.test(order.getId())) {
+                matching.add(order);
+            }
+        });
+        List<OrderSnapshot> released = new ArrayList<>(matching.size());
+        long lastLsn = -1;
+        for (Order order : matching) {
+            synchronized (order) {
+                OrderSnapshot snapshot = capture(order);
+                if (snapshot == null || orders.get(order.getId()) != order) {
+                    continue;
+                }
+                orders.remove(order.getId());
+                admission.release(order.getBuilding());
+                lastLsn = journal.append(JournalRecord.of(JournalRecord.Type.MOVE, order.getId()));
+                released.add(snapshot);
+            }
+        }
+        receiver.accept(released);
+        if (lastLsn >= 0) {
+            journal.sync(lastLsn);
+        }
+        return released.size();
+    }
+
+    /**
+     * Takes over orders released by another manager, journaling each of them as if it had been placed here in its
+     * current state. Orders already completed or prepared are published to the {@link #feed()} again, so that
+     * whoever follows this manager picks them up.
+     */
+    void adopt(List<OrderSnapshot> snapshots) {
+        long lastLsn = -1;
+        for (OrderSnapshot snapshot : snapshots) {
+            Order order = rebuild(snapshot);
+            UUID orderId = order.getId();
+            List<JournalRecord> records = new ArrayList<>(snapshot.recipeCodes().length + 3);
+            records.add(JournalRecord.create(orderId, order.getBuilding(), order.getRoom()));
+            order.forEachPancake((recipe, count) -> records.add(JournalRecord.addPancakes(orderId, recipe.code(),
+                    count)));
+            OrderStatus status = snapshot.status();
+            if (status != OrderStatus.CREATED) {
+                records.add(JournalRecord.of(JournalRecord.Type.COMPLETE, orderId));
+            }
+            if (status == OrderStatus.PREPARED) {
+                records.add(JournalRecord.of(JournalRecord.Type.PREPARE, orderId));
+            }
+            synchronized (order) {
+                orders.add(order);
+                admission.readmit(order.getBuilding());
+                lastLsn = journal.append(records);
+                order.setJournalLsn(lastLsn);
+                if (status == OrderStatus.CREATED) {
+                    trackIdle(order);
+                } else {
+                    feed.publish(order, status);
+                }
+            }
+        }
+        if (lastLsn >= 0) {
+            journal.sync(lastLsn);
+        }
+    }
+
+    /**
+     * Returns the open order with the given id, or {@code null}; for collaborators in this package that work on the
+     * order itself.
+     */
+    Order findOrder(UUID orderId) {
+        return orders.get(orderId);
+    }
+
+    /**
+     * Delivers a prepared order and returns it, or returns {@code null} under the same conditions as
+     * {@link #deliverOrder(UUID)}.
+     */
+    Order deliver(UUID orderId) {
+        long start = metrics.start();
         Order order = orders.get(orderId);
-        if (OrderStatus.PREPARED != order.getOrderStatus()) {
+        if (order == null || OrderStatus.PREPARED != order.getOrderStatus()) {
+            return null;
+        }
+        try {
+            transition(order, OrderStatus.DELIVERED);
+        } catch (IllegalStateException lostRace) {
             return null;
         }
-        List<String> pancakesToDeliver = order.viewOrder();
-        OrderLog.logDeliverOrder(order, pancakesToDeliver.size());
+        OrderLog.logDeliverOrder(order, order.getPancakeCount());
+        metrics.record(Operation.DELIVER_ORDER, start);
+        return order;
+    }
+
+    private Order getOrder(UUID orderId) {
+        Order order = orders.get(orderId);
+        if (order == null) {
+            throw new IllegalArgumentException("Order not found");
+        }
+        return order;
+    }
+
+    private void transition(Order order, OrderStatus status) {
+        long lsn;
+        synchronized (order) {
+            lsn = transitionLocked(order, status);
+        }
+        journal.sync(lsn);
+    }
+
+    /**
+     * Journals the order's move to {@code status} and then makes it, returning the record's LSN; must be called
+     * holding the order's monitor. The journal goes first so that an append that fails leaves nothing behind: no
+     * feed event or index entry for a change a restart would not know about.
+     */
+    private long transitionLocked(Order order, OrderStatus status) {
+        OrderStatus current = order.getOrderStatus();
+        if (!current.canTransitionTo(status)) {
+            throw new IllegalStateException(
+                    "Order %s cannot move from %s to %s".formatted(order.getId(), current, status));
+        }
+        long lsn = journal.append(JournalRecord.of(journalType(status), order.getId()));
+        orders.transition(order, status);
+        feed.publish(order, status);
+        metrics.recordAge(status, order);
+        admission.record(status, order);
+        order.setJournalLsn(lsn);
+        return lsn;
+    }
+
+    /**
+     * Throws unless the order is still open here, i.e. neither finished nor handed over to another manager since it
+     * was looked up; must be called holding the order's monitor.
+     */
+    private void checkOpen(Order order) {
+        if (orders.get(order.getId()) != order) {
+            throw new IllegalArgumentException("Order not found");
+        }
+    }
+
+    /**
+     * Checks that the order's pancakes can still change: it is open and not completed yet, since the kitchen cooks
+     * the pancakes the order had when it was completed. Must be called holding the order's monitor.
+     */
+    private void checkChangeable(Order order) {
+        checkOpen(order);
+        OrderStatus status = order.getOrderStatus();
+        if (status != OrderStatus.CREATED) {
+            throw new IllegalStateException("Order %s is already %s".formatted(order.getId(), status));
+        }
+    }
+
+    /**
+     * Puts the ingredients of a cancelled order's pancakes back in stock; must be called holding the order's
+     * monitor.
+     */
+    private void releaseStock(Order order) {
+        Inventory inventory = pancakeService.inventory();
+        order.forEachPancake(inventory::release);
+    }
+
+    private void trackIdle(Order order) {
+        if (idleOrders != null) {
+            long now = System.nanoTime();
+            order.setChangedNanos(now);
+            idleOrders.schedule(order, now + idleTimeoutNanos);
+        }
+    }
+
+    private void touch(Order order) {
+        if (idleOrders != null) {
+            order.setChangedNanos(System.nanoTime());
+        }
+    }
+
+    private long applyAll(Order order, List<OrderCommand> commands) {
+        Map<OrderCommand, Recipe> recipes = new HashMap<>();
+        for (OrderCommand command : commands) {
+            if (command instanceof OrderCommand.AddPancakes add) {
+                recipes.put(command, pancakeService.recipeOf(add.pancakes().ingredients()));
+            }
+        }
+        long lsn;
+        boolean cancelled = false;
+        synchronized (order) {
+            checkOpen(order);
+            List<JournalRecord> records = validate(order, commands, recipes);
+            reserveStock(commands, recipes);
+            try {
+                lsn = journal.append(records);
+            } catch (RuntimeException e) {
+                unreserveStock(commands, recipes);
+                throw e;
+            }
+            for (OrderCommand command : commands) {
+                if (command instanceof OrderCommand.AddPancakes add) {
+                    order.addPancake(recipes.get(command), add.pancakes().count());
+                } else if (command instanceof OrderCommand.RemovePancakes remove) {
+                    Recipe recipe = order.findRecipe(remove.description());
+                    int removedCount = order.removePancakes(recipe, remove.count());
+                    pancakeService.inventory().release(recipe, removedCount);
+                } else {
+                    OrderStatus status = targetStatus(command);
+                    orders.transition(order, status);
+                    feed.publish(order, status);
+                    metrics.recordAge(status, order);
+                    admission.record(status, order);
+                    cancelled = status == OrderStatus.CANCELLED;
+                }
+            }
+            if (cancelled) {
+                releaseStock(order);
+            }
+            order.setJournalLsn(lsn);
+            touch(order);
+        }
+        if (cancelled) {
+            pancakeService.discardPancake(order.getId());
+        }
+        OrderLog.logApplyBatch(order, commands.size(), order.getPancakeCount());
+        return lsn;
+    }
+
+    /**
+     * Reserves the stock for every pancake the commands add, all or none of it.
+     */
+    private void reserveStock(List<OrderCommand> commands, Map<OrderCommand, Recipe> recipes) {
+        Inventory inventory = pancakeService.inventory();
+        List<OrderCommand> reserved = new ArrayList<>();
+        try {
+            for (OrderCommand command : commands) {
+                if (command instanceof OrderCommand.AddPancakes add) {
+                    inventory.reserve(recipes.get(command), add.pancakes().count());
+                    reserved.add(add);
+                }
+            }
+        } catch (IllegalStateException outOfStock) {
+            unreserveStock(reserved, recipes);
+            throw outOfStock;
+        }
+    }
+
+    /**
+     * Puts back the stock {@link #reserveStock} took for the pancakes the commands add.
+     */
+    private void unreserveStock(List<OrderCommand> commands, Map<OrderCommand, Recipe> recipes) {
+        Inventory inventory = pancakeService.inventory();
+        for (OrderCommand command : commands) {
+            if (command instanceof OrderCommand.AddPancakes add) {
+                inventory.release(recipes.get(command), add.pancakes().count());
+            }
+        }
+    }
+
+    /**
+     * Dry-runs the commands against a copy of the order's state and returns the journal records applying them
+     * writes; must be called holding the order's monitor.
+     */
+    private static List<JournalRecord> validate(Order order, List<OrderCommand> commands,
+                                                Map<OrderCommand, Recipe> recipes) {
+        List<JournalRecord> records = new ArrayList<>(commands.size());
+        Map<Recipe, Integer> pancakes = new HashMap<>(order.getPancakes());
+        // recipes the batch adds that the order's own index does not know yet
+        Map<String, Recipe> added = new HashMap<>();
+        OrderStatus status = order.getOrderStatus();
+        for (OrderCommand command : commands) {
+            boolean changesPancakes = command instanceof OrderCommand.AddPancakes
+                    || command instanceof OrderCommand.RemovePancakes;
+            if (status.isTerminal() || changesPancakes && status != OrderStatus.CREATED) {
+                throw new IllegalStateException("Order %s is already %s".formatted(order.getId(), status));
+            }
+            if (command instanceof OrderCommand.AddPancakes add) {
+                Recipe recipe = recipes.get(command);
+                pancakes.merge(recipe, add.pancakes().count(), Integer::sum);
+                added.put(recipe.description(), recipe);
+                records.add(JournalRecord.addPancakes(order.getId(), recipe.code(), add.pancakes().count()));
+            } else if (command instanceof OrderCommand.RemovePancakes remove) {
+                Recipe recipe = added.get(remove.description());
+                if (recipe == null) {
+                    recipe = order.findRecipe(remove.description());
+                }
+                Integer count = pancakes.get(recipe);
+                if (count == null) {
+                    throw new IllegalArgumentException(
+                            "No pancake with description: \"" + remove.description() + "\" found");
+                }
+                int remaining = count - remove.count();
+                if (remaining > 0) {
+                    pancakes.put(recipe, remaining);
+                } else {
+                    pancakes.remove(recipe);
+                }
+                int removed = Math.min(count, remove.count());
+                records.add(JournalRecord.removePancakes(order.getId(), recipe.code(), removed));
+            } else {
+                OrderStatus next = targetStatus(command);
+                if (!status.canTransitionTo(next)) {
+                    throw new IllegalStateException(
+                            "Order %s cannot move from %s to %s".formatted(order.getId(), status, next));
+                }
+                status = next;
+                records.add(JournalRecord.of(journalType(next), order.getId()));
+            }
+        }
+        return records;
+    }
+
+    private static OrderStatus targetStatus(OrderCommand command) {
+        if (command instanceof OrderCommand.CompleteOrder) {
+            return OrderStatus.COMPLETED;
+        }
+        if (command instanceof OrderCommand.CancelOrder) {
+            return OrderStatus.CANCELLED;
+        }
+        throw new IllegalArgumentException("Not a status change: " + command);
+    }
+
+    private static OrderSnapshot capture(Order order) {
+        synchronized (order) {
+            OrderStatus status = order.getOrderStatus();
+            if (status.isTerminal()) {
+                return null;
+            }
+            Map<Recipe, Integer> pancakes = order.getPancakes();
+            long[] recipeCodes = new long[pancakes.size()];
+            int[] counts = new int[pancakes.size()];
+            int i = 0;
+            for (Map.Entry<Recipe, Integer> line : pancakes.entrySet()) {
+                recipeCodes[i] = line.getKey().code();
+                counts[i++] = line.getValue();
+            }
+            return new OrderSnapshot(order.getId(), order.getBuilding(), order.getRoom(), status,
+                    order.getJournalLsn(), recipeCodes, counts);
+        }
+    }
+
+    private void restore(OrderSnapshot snapshot) {
+        Order order = rebuild(snapshot);
+        order.setJournalLsn(snapshot.journalLsn());
+        orders.add(order);
+    }
+
+    private static Order rebuild(OrderSnapshot snapshot) {
+        Order order = new Order(snapshot.orderId(), snapshot.building(), snapshot.room());
+        for (int i = 0; i < snapshot.recipeCodes().length; i++) {
+            order.addPancake(Recipe.of(snapshot.recipeCodes()[i]), snapshot.counts()[i]);
+        }
+        if (snapshot.status() != OrderStatus.CREATED) {
+            order.transitionTo(OrderStatus.COMPLETED);
+        }
+        if (snapshot.status() == OrderStatus.PREPARED) {
+            order.transitionTo(OrderStatus.PREPARED);
+        }
+        return order;
+    }
 
-        orders.remove(orderId);
+    private void replay(long lsn, JournalRecord record) {
+        if (record.type() == JournalRecord.Type.CREATE) {
+            if (orders.get(record.orderId()) == null) {
+                Order order = new Order(record.orderId(), record.building(), record.room());
+                order.setJournalLsn(lsn);
+                orders.add(order);
+            }
+            return;
+        }
+        Order order = orders.get(record.orderId());
+        if (order == null || lsn <= order.getJournalLsn()) {
+            // gone already, or covered by the snapshot
+            return;
+        }
+        order.setJournalLsn(lsn);
+        switch (record.type()) {
+            case ADD_PANCAKES -> order.addPancake(Recipe.of(record.recipeCode()), record.count());
+            case REMOVE_PANCAKES -> order.removePancakes(Recipe.of(record.recipeCode()), record.count());
+            case COMPLETE -> orders.transition(order, OrderStatus.COMPLETED);
+            case PREPARE -> orders.transition(order, OrderStatus.PREPARED);
+            case CANCEL -> orders.transition(order, OrderStatus.CANCELLED);
+            case DELIVER -> orders.transition(order, OrderStatus.DELIVERED);
+            case MOVE -> orders.remove(order.getId());
+            default -> throw new IllegalStateException("Unexpected journal record " + record.type());
+        }
+    }
 
-        return new Object[]{order, pancakesToDeliver};
+    private static JournalRecord.Type journalType(OrderStatus status) {
+        return switch (status) {
+            case COMPLETED -> JournalRecord.Type.COMPLETE;
+            case PREPARED -> JournalRecord.Type.PREPARE;
+            case CANCELLED -> JournalRecord.Type.CANCEL;
+            case DELIVERED -> JournalRecord.Type.DELIVER;
+            case CREATED -> throw new IllegalArgumentException("Orders are created, not moved to CREATED");
+        };
     }
 }
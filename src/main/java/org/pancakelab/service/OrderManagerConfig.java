@@ -0,0 +1,60 @@
+package org.pancakelab.service;
+
+import org.pancakelab.journal.OrderJournal;
+import org.pancakelab.journal.SnapshotStore;
+import org.pancakelab.model.IdGenerator;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * What an {@link OrderManager} is backed by and how it treats its orders. {@code snapshots} may be {@code null} to
+ * rebuild from the journal alone, and a zero {@code idleTimeout} keeps orders left in CREATED forever. The request
+ * cache and admission control keep state, so a config is meant for a single manager.
+ */
+public record OrderManagerConfig(OrderJournal journal, SnapshotStore snapshots, Duration idleTimeout,
+                                 IdGenerator idGenerator, RequestCache requests, AdmissionControl admission) {
+
+    public OrderManagerConfig {
+        Objects.requireNonNull(journal, "journal");
+        Objects.requireNonNull(idleTimeout, "idleTimeout");
+        Objects.requireNonNull(idGenerator, "idGenerator");
+        Objects.requireNonNull(requests, "requests");
+        Objects.requireNonNull(admission, "admission");
+        if (idleTimeout.isNegative()) {
+            throw new IllegalArgumentException("Idle timeout should not be negative");
+        }
+    }
+
+    /**
+     * A manager kept purely in memory, with time-ordered ids, a default request cache and no admission limits.
+     */
+    public static OrderManagerConfig defaults() {
+        return new OrderManagerConfig(OrderJournal.NONE, null, Duration.ZERO, IdGenerator.TIME_ORDERED,
+                new RequestCache(), AdmissionControl.UNLIMITED);
+    }
+
+    public OrderManagerConfig withJournal(OrderJournal journal) {
+        return new OrderManagerConfig(journal, snapshots, idleTimeout, idGenerator, requests, admission);
+    }
+
+    public OrderManagerConfig withSnapshots(SnapshotStore snapshots) {
+        return new OrderManagerConfig(journal, snapshots, idleTimeout, idGenerator, requests, admission);
+    }
+
+    public OrderManagerConfig withIdleTimeout(Duration idleTimeout) {
+        return new OrderManagerConfig(journal, snapshots, idleTimeout, idGenerator, requests, admission);
+    }
+
+    public OrderManagerConfig withIdGenerator(IdGenerator idGenerator) {
+        return new OrderManagerConfig(journal, snapshots, idleTimeout, idGenerator, requests, admission);
+    }
+
+    public OrderManagerConfig withRequests(RequestCache requests) {
+        return new OrderManagerConfig(journal, snapshots, idleTimeout, idGenerator, requests, admission);
+    }
+
+    public OrderManagerConfig withAdmission(AdmissionControl admission) {
+        return new OrderManagerConfig(journal, snapshots, idleTimeout, idGenerator, requests, admission);
+    }
+}
@@ -0,0 +1,120 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.Order;
+import org.pancakelab.model.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Open orders keyed by id, with one sorted concurrent index per {@link OrderStatus} so that listing the orders
+ * in a status costs time proportional to the result rather than to all open orders.
+ */
+class OrderRegistry {
+    private final Map<UUID, Order> orders = new ConcurrentHashMap<>();
+    private final Map<OrderStatus, NavigableSet<UUID>> ordersByStatus = new EnumMap<>(OrderStatus.class);
+    private final Map<OrderStatus, LongAdder> countsByStatus = new EnumMap<>(OrderStatus.class);
+
+    OrderRegistry() {
+        for (OrderStatus status : OrderStatus.values()) {
+            ordersByStatus.put(status, new ConcurrentSkipListSet<>());
+            countsByStatus.put(status, new LongAdder());
+        }
+    }
+
+    void add(Order order) {
+        orders.put(order.getId(), order);
+        ordersByStatus.get(order.getOrderStatus()).add(order.getId());
+        countsByStatus.get(order.getOrderStatus()).increment();
+    }
+
+    Order get(UUID orderId) {
+        return orders.get(orderId);
+    }
+
+    void forEach(Consumer<Order> action) {
+        orders.values().forEach(action);
+    }
+
+    Order remove(UUID orderId) {
+        Order order = unregister(orderId);
+        if (order != null) {
+            countsByStatus.get(order.getOrderStatus()).decrement();
+        }
+        return order;
+    }
+
+    /**
+     * Moves the order to the {@code next} status and updates the indexes; orders reaching a terminal status are
+     * removed from the registry. Only the thread whose transition succeeded touches the indexes.
+     */
+    void transition(Order order, OrderStatus next) {
+        OrderStatus previous = order.transitionTo(next);
+        countsByStatus.get(previous).decrement();
+        countsByStatus.get(next).increment();
+        UUID orderId = order.getId();
+        if (next.isTerminal()) {
+            unregister(orderId);
+            return;
+        }
+        NavigableSet<UUID> index = ordersByStatus.get(next);
+        // add before remove so that the order is always visible in at least one index
+        index.add(orderId);
+        if (order.getOrderStatus() != next) {
+            // a later transition has already run and may have missed our entry
+            index.remove(orderId);
+        }
+        ordersByStatus.get(previous).remove(orderId);
+    }
+
+    int size() {
+        return orders.size();
+    }
+
+    /**
+     * Number of orders in {@code status}, kept as a counter so that it costs nothing like walking the index;
+     * for terminal statuses, the number of orders that reached it.
+     */
+    long count(OrderStatus status) {
+        return countsByStatus.get(status).sum();
+    }
+
+    Set<UUID> list(OrderStatus status) {
+        return Set.copyOf(ordersByStatus.get(status));
+    }
+
+    /**
+     * Lists at most {@code limit} orders in the given status, in id order, starting right after the {@code after}
+     * cursor. Pass {@code null} to start from the beginning and the last id of a page to fetch the next one.
+     */
+    List<UUID> list(OrderStatus status, UUID after, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit should be positive");
+        }
+        NavigableSet<UUID> index = ordersByStatus.get(status);
+        Iterator<UUID> iterator = after == null ? index.iterator() : index.tailSet(after, false).iterator();
+        List<UUID> page = new ArrayList<>(Math.min(limit, 64));
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
+    private Order unregister(UUID orderId) {
+        Order order = orders.remove(orderId);
+        if (order != null) {
+            ordersByStatus.values().forEach(index -> index.remove(orderId));
+        }
+        return order;
+    }
+}
@@ -0,0 +1,13 @@
+package org.pancakelab.service;
+
+import java.util.List;
+
+/**
+ * A whole order placed in one call, see {@link OrderManager#placeOrder(OrderRequest)}.
+ */
+public record OrderRequest(int building, int room, List<PancakeRequest> pancakes) {
+
+    public OrderRequest {
+        pancakes = List.copyOf(pancakes);
+    }
+}
@@ -0,0 +1,16 @@
+package org.pancakelab.service;
+
+import java.util.List;
+
+/**
+ * {@code count} pancakes with the given ingredients, named as on the menu.
+ */
+public record PancakeRequest(List<String> ingredients, int count) {
+
+    public PancakeRequest {
+        ingredients = List.copyOf(ingredients);
+        if (count < 1) {
+            throw new IllegalArgumentException("Count of pancakes should be positive");
+        }
+    }
+}
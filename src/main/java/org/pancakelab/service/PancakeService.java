@@ -3,36 +3,202 @@ package org.pancakelab.service;
 import org.pancakelab.model.Order;
 import org.pancakelab.model.pancakes.Ingredient;
 import org.pancakelab.model.pancakes.Pancake;
+import org.pancakelab.model.pancakes.Recipe;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 
+/**
+ * Pancakes being put together for an order, one per order at a time. With an idle timeout, a pancake that has been
+ * neither changed nor added to its order for that long is discarded by {@link #evictIdlePancakes()}. Pancakes are
+ * started here for any order id; {@link OrderManager#startNewPancake(UUID)} starts them only for orders it has, and
+ * only as many at once as its admission control allows.
+ * <p>
+ * Pancakes in orders hold their ingredients in the {@link #inventory()}: they are reserved when pancakes are added
+ * to an order and released when they are removed or the order is cancelled. Pancakes still in progress hold
+ * nothing, and neither do the pancakes of orders rebuilt at startup, so the inventory should then be restocked with
+ * only what those orders do not already hold.
+ */
 public class PancakeService {
-    private final Map<UUID, Pancake> pancakesInProgress = new ConcurrentHashMap<>();
+    private static final int WHEEL_SLOTS = 512;
+
+    private final Map<UUID, InProgress> pancakesInProgress = new ConcurrentHashMap<>();
+    private final long idleTimeoutNanos;
+    private final TimerWheel<Map.Entry<UUID, InProgress>> idleTimers;
+    private final LongAdder evictedPancakes = new LongAdder();
+    private final Inventory inventory;
+
+    public PancakeService() {
+        this(Duration.ZERO);
+    }
+
+    /**
+     * Creates a service that evicts pancakes left idle for {@code idleTimeout}; zero keeps them forever.
+     */
+    public PancakeService(Duration idleTimeout) {
+        this(idleTimeout, Inventory.UNLIMITED);
+    }
+
+    /**
+     * Creates a service as above whose pancakes take their ingredients from {@code inventory}.
+     */
+    public PancakeService(Duration idleTimeout, Inventory inventory) {
+        this.inventory = inventory;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.idleTimers = idleTimeoutNanos > 0
+                ? new TimerWheel<>(Math.max(1, idleTimeoutNanos / WHEEL_SLOTS * 2), WHEEL_SLOTS, System.nanoTime())
+                : null;
+    }
 
     public void startNewPancake(UUID orderId) {
-        Pancake pancake = new Pancake();
+        start(orderId, new Pancake());
+    }
+
+    private void start(UUID orderId, Pancake started) {
+        InProgress pancake = new InProgress(started, touch());
         pancakesInProgress.put(orderId, pancake);
+        if (idleTimers != null) {
+            idleTimers.schedule(Map.entry(orderId, pancake), pancake.touchedNanos + idleTimeoutNanos);
+        }
+    }
+
+    public int getPancakesInProgress() {
+        return pancakesInProgress.size();
     }
 
     public void addIngredientToPancake(UUID orderId, String ingredient) {
-        Pancake pancake = pancakesInProgress.get(orderId);
+        Ingredient ingredientToAdd = Ingredient.getByName(ingredient);
+        // mutate inside the map's per-key lock so it cannot race with addPancake taking the pancake away
+        InProgress pancake = pancakesInProgress.computeIfPresent(orderId, (id, inProgress) -> {
+            inProgress.pancake.addIngredient(ingredientToAdd);
+            inProgress.touchedNanos = touch();
+            return inProgress;
+        });
         if (pancake == null) {
             throw new IllegalStateException("No in-progress pancake found. Call startNewPancake() method first.");
         }
-        pancake.addIngredient(Ingredient.getByName(ingredient));
     }
 
-    public void addPancake(Order order, int count) {
+    /**
+     * Resolves a list of ingredient names into a recipe, validating every name.
+     */
+    public Recipe recipeOf(List<String> ingredients) {
+        Recipe recipe = Recipe.PLAIN;
+        for (String ingredient : ingredients) {
+            recipe = recipe.with(Ingredient.getByName(ingredient));
+        }
+        return recipe;
+    }
+
+    public Inventory inventory() {
+        return inventory;
+    }
+
+    /**
+     * Moves the order's in-progress pancake into the order and returns its recipe, or {@code null} if no pancake was
+     * in progress. Throws {@link IllegalStateException} and keeps the pancake in progress if there is not enough
+     * stock for {@code count} of them.
+     */
+    public Recipe addPancake(Order order, int count) {
         if (count < 1) {
             throw new IllegalArgumentException("Count of pancakes should be positive");
         }
-        Pancake pancake = pancakesInProgress.remove(order.getId());
-        if (pancake == null) {
-            return;
+        InProgress inProgress = pancakesInProgress.remove(order.getId());
+        if (inProgress == null) {
+            return null;
+        }
+        Pancake pancake = inProgress.pancake;
+        try {
+            inventory.reserve(pancake.getRecipe(), count);
+        } catch (IllegalStateException outOfStock) {
+            pancakesInProgress.putIfAbsent(order.getId(), inProgress);
+            throw outOfStock;
         }
         order.addPancake(pancake, count);
-        OrderLog.logAddPancake(order, pancake.description(), order.getPancakes().size());
+        OrderLog.logAddPancake(order, pancake.description(), order.getPancakeCount());
+        return pancake.getRecipe();
+    }
+
+    /**
+     * Discards the order's in-progress pancake, if any; returns whether there was one.
+     */
+    public boolean discardPancake(UUID orderId) {
+        return pancakesInProgress.remove(orderId) != null;
+    }
+
+    /**
+     * Removes the in-progress pancakes of the orders whose ids match {@code moving} and returns them, for another
+     * service to {@link #adoptPancakes(Map)} along with their orders.
+     */
+    Map<UUID, Pancake> releasePancakes(Predicate<UUID> moving) {
+        Map<UUID, Pancake> released = new HashMap<>();
+        pancakesInProgress.forEach((orderId, pancake) -> {
+            if (moving.test(orderId) && pancakesInProgress.remove(orderId, pancake)) {
+                released.put(orderId, pancake.pancake);
+            }
+        });
+        return released;
+    }
+
+    void adoptPancakes(Map<UUID, Pancake> pancakes) {
+        pancakes.forEach(this::start);
+    }
+
+    /**
+     * Discards the pancakes that have been idle for longer than the idle timeout and returns how many there were.
+     * Only looks at pancakes whose timeout is due, and does nothing without an idle timeout.
+     */
+    public int evictIdlePancakes() {
+        return evictIdlePancakes(System.nanoTime());
+    }
+
+    int evictIdlePancakes(long nowNanos) {
+        if (idleTimers == null) {
+            return 0;
+        }
+        List<Map.Entry<UUID, InProgress>> due = new ArrayList<>();
+        idleTimers.expire(nowNanos, due);
+        int evicted = 0;
+        for (Map.Entry<UUID, InProgress> timer : due) {
+            InProgress pancake = timer.getValue();
+            long idleUntil = pancake.touchedNanos + idleTimeoutNanos;
+            if (idleUntil - nowNanos > 0) {
+                if (pancakesInProgress.get(timer.getKey()) == pancake) {
+                    idleTimers.schedule(timer, idleUntil);
+                }
+            } else if (pancakesInProgress.remove(timer.getKey(), pancake)) {
+                evicted++;
+            }
+        }
+        evictedPancakes.add(evicted);
+        return evicted;
+    }
+
+    /**
+     * Number of pancakes evicted for being idle since the service was created.
+     */
+    public long getEvictedPancakes() {
+        return evictedPancakes.sum();
+    }
+
+    private long touch() {
+        return idleTimers != null ? System.nanoTime() : 0;
+    }
+
+    private static final class InProgress {
+        private final Pancake pancake;
+        private volatile long touchedNanos;
+
+        InProgress(Pancake pancake, long touchedNanos) {
+            this.pancake = pancake;
+            this.touchedNanos = touchedNanos;
+        }
     }
 }
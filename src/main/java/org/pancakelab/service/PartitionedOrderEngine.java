@@ -0,0 +1,311 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.IdGenerator;
+import org.pancakelab.model.OrderStatus;
+import org.pancakelab.model.pancakes.Ingredient;
+import org.pancakelab.model.pancakes.Recipe;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * {@link OrderEngine} that splits orders over partitions by id, each owned by one writer thread. Callers publish
+ * commands into the partition's {@link MpscRingBuffer}; the writer drains them in batches and applies them to plain
+ * maps that no other thread touches, so nothing on the mutation path is locked or compare-and-set beyond the
+ * buffer itself. A writer with nothing to do parks until a caller wakes it, and a caller finding the buffer full
+ * waits for room.
+ * <p>
+ * Each partition keeps its open orders in an {@link OffHeapOrderStore}, which limits building and room numbers to
+ * what it can pack. Orders live in memory only: there is no journal, feed, metrics or order log, and pancakes take
+ * no stock from an {@link Inventory}. Futures are completed on the writer thread, so anything slow chained onto
+ * them should use the {@code *Async} variants.
+ */
+final class PartitionedOrderEngine implements OrderEngine {
+    private static final int BATCH_SIZE = 256;
+    private static final int IDLE_SPINS = 100;
+    private static final long FULL_PARK_NANOS = 10_000L;
+
+    private final Partition[] partitions;
+    private final IdGenerator idGenerator = IdGenerator.TIME_ORDERED;
+    private volatile boolean running = true;
+
+    PartitionedOrderEngine(int partitionCount, int capacity) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("Partition count should be positive");
+        }
+        partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(capacity, "order-engine-" + i);
+        }
+    }
+
+    @Override
+    public CompletableFuture<UUID> createOrder(int building, int room) {
+        UUID orderId = idGenerator.next();
+        return submit(orderId, partition -> partition.create(orderId, building, room));
+    }
+
+    @Override
+    public CompletableFuture<Void> addPancakes(UUID orderId, PancakeRequest pancakes) {
+        return submit(orderId, partition -> partition.addPancakes(orderId, pancakes));
+    }
+
+    @Override
+    public CompletableFuture<Void> removePancakes(UUID orderId, String description, int count) {
+        return submit(orderId, partition -> partition.removePancakes(orderId, description, count));
+    }
+
+    @Override
+    public CompletableFuture<Void> completeOrder(UUID orderId) {
+        return submit(orderId, partition -> partition.transition(orderId, OrderStatus.COMPLETED));
+    }
+
+    @Override
+    public CompletableFuture<Void> prepareOrder(UUID orderId) {
+        return submit(orderId, partition -> partition.transition(orderId, OrderStatus.PREPARED));
+    }
+
+    @Override
+    public CompletableFuture<Void> cancelOrder(UUID orderId) {
+        return submit(orderId, partition -> partition.transition(orderId, OrderStatus.CANCELLED));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Integer>> deliverOrder(UUID orderId) {
+        return submit(orderId, partition -> partition.deliver(orderId));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Integer>> viewOrderSummary(UUID orderId) {
+        return submit(orderId, partition -> partition.summary(orderId));
+    }
+
+    @Override
+    public CompletableFuture<Set<UUID>> listCompletedOrders() {
+        return gather(partition -> new HashSet<>(partition.completed));
+    }
+
+    @Override
+    public CompletableFuture<Set<UUID>> listPreparedOrders() {
+        return gather(partition -> new HashSet<>(partition.prepared));
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        for (Partition partition : partitions) {
+            LockSupport.unpark(partition.writer);
+        }
+        try {
+            for (Partition partition : partitions) {
+                partition.writer.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(UUID orderId, Function<Partition, T> action) {
+        long hash = (orderId.getMostSignificantBits() ^ orderId.getLeastSignificantBits()) * 0x9E3779B97F4A7C15L;
+        return partitions[(int) ((hash >>> 32) % partitions.length)].submit(action);
+    }
+
+    /**
+     * Runs {@code query} on every partition and merges the results once all of them have answered.
+     */
+    private CompletableFuture<Set<UUID>> gather(Function<Partition, Set<UUID>> query) {
+        List<CompletableFuture<Set<UUID>>> answers = new ArrayList<>(partitions.length);
+        for (Partition partition : partitions) {
+            answers.add(partition.submit(query));
+        }
+        return CompletableFuture.allOf(answers.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Set<UUID> result = new HashSet<>();
+            answers.forEach(answer -> result.addAll(answer.join()));
+            return result;
+        });
+    }
+
+    private static final class Command<T> {
+        private final Function<Partition, T> action;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Command(Function<Partition, T> action) {
+            this.action = action;
+        }
+
+        void applyTo(Partition partition) {
+            T value;
+            try {
+                value = action.apply(partition);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            result.complete(value);
+        }
+    }
+
+    /**
+     * One writer thread and the orders only it touches.
+     */
+    private final class Partition {
+        private final MpscRingBuffer<Command<?>> commands;
+        private final Thread writer;
+        private volatile boolean parked;
+
+        // owned by the writer thread
+        private final OffHeapOrderStore orders = new OffHeapOrderStore();
+        private final Set<UUID> completed = new LinkedHashSet<>();
+        private final Set<UUID> prepared = new LinkedHashSet<>();
+
+        Partition(int capacity, String name) {
+            this.commands = new MpscRingBuffer<>(capacity);
+            this.writer = new Thread(this::run, name);
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+
+        <T> CompletableFuture<T> submit(Function<Partition, T> action) {
+            Command<T> command = new Command<>(action);
+            if (!running) {
+                return closed(command);
+            }
+            while (!commands.offer(command)) {
+                if (!running) {
+                    return closed(command);
+                }
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(this, FULL_PARK_NANOS);
+            }
+            if (parked) {
+                LockSupport.unpark(writer);
+            }
+            if (!running) {
+                // the writer may have made its last check before the command was published; wait until it has
+                // either applied it or exited, and fail the command in the latter case
+                while (writer.isAlive() && !command.result.isDone()) {
+                    LockSupport.parkNanos(this, FULL_PARK_NANOS);
+                }
+                return closed(command);
+            }
+            return command.result;
+        }
+
+        /**
+         * Fails the command unless it has already been applied, and returns its result.
+         */
+        private <T> CompletableFuture<T> closed(Command<T> command) {
+            command.result.completeExceptionally(new IllegalStateException("Order engine is closed"));
+            return command.result;
+        }
+
+        private void run() {
+            int idle = 0;
+            while (running || commands.consumed() < commands.published()) {
+                if (commands.drain(command -> command.applyTo(this), BATCH_SIZE) > 0) {
+                    idle = 0;
+                } else if (++idle < IDLE_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    parked = true;
+                    // a caller publishes before it reads parked, so one of us sees the other
+                    if (running && commands.consumed() == commands.published()) {
+                        LockSupport.park(this);
+                    }
+                    parked = false;
+                }
+            }
+        }
+
+        UUID create(UUID orderId, int building, int room) {
+            orders.create(orderId, building, room);
+            return orderId;
+        }
+
+        Void addPancakes(UUID orderId, PancakeRequest pancakes) {
+            Recipe recipe = Recipe.PLAIN;
+            for (String ingredient : pancakes.ingredients()) {
+                recipe = recipe.with(Ingredient.getByName(ingredient));
+            }
+            checkChangeable(orderId);
+            orders.addPancakes(orderId, recipe, pancakes.count());
+            return null;
+        }
+
+        Void removePancakes(UUID orderId, String description, int count) {
+            checkChangeable(orderId);
+            orders.removePancakes(orderId, orders.findRecipe(orderId, description), count);
+            return null;
+        }
+
+        Void transition(UUID orderId, OrderStatus next) {
+            OrderStatus status = orders.status(orderId);
+            if (status == null) {
+                throw new IllegalArgumentException("Order not found");
+            }
+            if (!status.canTransitionTo(next)) {
+                throw new IllegalStateException("Order %s cannot move from %s to %s".formatted(orderId, status, next));
+            }
+            removeFromIndex(status, orderId);
+            if (next.isTerminal()) {
+                orders.remove(orderId);
+                return null;
+            }
+            orders.setStatus(orderId, next);
+            if (next == OrderStatus.COMPLETED) {
+                completed.add(orderId);
+            } else {
+                prepared.add(orderId);
+            }
+            return null;
+        }
+
+        Map<String, Integer> deliver(UUID orderId) {
+            if (orders.status(orderId) != OrderStatus.PREPARED) {
+                return null;
+            }
+            Map<String, Integer> summary = summary(orderId);
+            transition(orderId, OrderStatus.DELIVERED);
+            return summary;
+        }
+
+        Map<String, Integer> summary(UUID orderId) {
+            if (!orders.contains(orderId)) {
+                return Map.of();
+            }
+            Map<String, Integer> summary = new LinkedHashMap<>();
+            orders.forEachPancake(orderId, (recipe, count) -> summary.put(recipe.description(), count));
+            return summary;
+        }
+
+        /**
+         * Checks that the order's pancakes can still change, i.e. that it has not been completed yet.
+         */
+        private void checkChangeable(UUID orderId) {
+            OrderStatus status = orders.status(orderId);
+            if (status == null) {
+                throw new IllegalArgumentException("Order not found");
+            }
+            if (status != OrderStatus.CREATED) {
+                throw new IllegalStateException("Order %s is already %s".formatted(orderId, status));
+            }
+        }
+
+        private void removeFromIndex(OrderStatus status, UUID orderId) {
+            if (status == OrderStatus.COMPLETED) {
+                completed.remove(orderId);
+            } else if (status == OrderStatus.PREPARED) {
+                prepared.remove(orderId);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.pancakelab.service;
+
+/**
+ * An item with its estimated count in an {@link OrderAnalytics} window. The estimate never undercounts and is at
+ * most {@code maxOvercount} above the true count.
+ */
+public record Ranked<T>(T item, long count, long maxOvercount) {
+}
@@ -0,0 +1,197 @@
+package org.pancakelab.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Outcomes of client requests by request id, so that a retried request gets the outcome of the first attempt
+ * instead of being applied again. The result or the exception of an operation is kept for {@code timeToLive}; a
+ * retry arriving while the first attempt is still running waits for it. An operation turned away by
+ * {@link AdmissionControl} is the exception: nothing was applied, so it is forgotten and a later retry runs anew.
+ * <p>
+ * Request ids are spread over segments, each an insertion-ordered map under its own lock. Since every entry lives
+ * equally long, the oldest entry of a segment is always the first to expire, so expiry only ever looks at the head
+ * of the map, and a full segment makes room by dropping its oldest entry early. Size the cache for the request rate
+ * times the retry window: a request evicted before its client gave up is applied again when retried.
+ */
+public class RequestCache {
+    // a map entry, the id, the outcome holder and its future, without the result itself
+    private static final long ENTRY_BYTES = 160;
+    // so that a small cache is not split into segments too small to keep a retry window
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+
+    private final Segment[] segments;
+    private final int segmentCapacity;
+    private final long timeToLiveNanos;
+    private final LongSupplier clock;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache of 100,000 requests kept for a minute.
+     */
+    public RequestCache() {
+        this(100_000, Duration.ofMinutes(1));
+    }
+
+    public RequestCache(int capacity, Duration timeToLive) {
+        this(capacity, timeToLive, System::nanoTime);
+    }
+
+    RequestCache(int capacity, Duration timeToLive, LongSupplier clock) {
+        if (capacity < 1 || timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("Capacity and time to live should be positive");
+        }
+        int segmentCount = Math.min(Integer.highestOneBit(4 * Runtime.getRuntime().availableProcessors()),
+                Integer.highestOneBit(Math.max(1, capacity / MIN_SEGMENT_CAPACITY)));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment();
+        }
+        this.segmentCapacity = (capacity + segmentCount - 1) / segmentCount;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Runs {@code operation} unless a request with the same id has already run it within the time to live, in which
+     * case that request's result is returned or its exception rethrown. With a {@code null} request id the operation
+     * simply runs.
+     */
+    public <T> T execute(UUID requestId, Supplier<T> operation) {
+        if (requestId == null) {
+            return operation.get();
+        }
+        CompletableFuture<Object> outcome = new CompletableFuture<>();
+        Segment segment = segmentOf(requestId);
+        CompletableFuture<Object> first = segment.putIfAbsent(requestId, outcome, clock.getAsLong());
+        if (first != null) {
+            hits.increment();
+            return replay(first);
+        }
+        misses.increment();
+        T result;
+        try {
+            result = operation.get();
+        } catch (RuntimeException | Error e) {
+            if (e instanceof AdmissionControl.OverloadedException) {
+                segment.remove(requestId, outcome);
+            }
+            outcome.completeExceptionally(e);
+            throw e;
+        }
+        outcome.complete(result);
+        return result;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Share of requests answered from the cache, or 0 before any request.
+     */
+    public double hitRate() {
+        long hits = hits();
+        long total = hits + misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Entries dropped to make room before they expired.
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Estimated heap taken by the entries, not counting the results they hold.
+     */
+    public long estimatedBytes() {
+        return size() * ENTRY_BYTES;
+    }
+
+    private Segment segmentOf(UUID requestId) {
+        long hash = (requestId.getMostSignificantBits() ^ requestId.getLeastSignificantBits()) * 0x9E3779B97F4A7C15L;
+        return segments[(int) (hash >>> 32) & (segments.length - 1)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T replay(CompletableFuture<Object> outcome) {
+        try {
+            return (T) outcome.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            throw (Error) e.getCause();
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Object> outcome;
+        private final long expiresAt;
+
+        Entry(CompletableFuture<Object> outcome, long expiresAt) {
+            this.outcome = outcome;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Segment {
+        private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>();
+
+        /**
+         * Returns the outcome already kept for the request, or keeps {@code outcome} for it and returns {@code null}.
+         */
+        synchronized CompletableFuture<Object> putIfAbsent(UUID requestId, CompletableFuture<Object> outcome,
+                                                           long now) {
+            Iterator<Entry> oldestFirst = entries.values().iterator();
+            while (oldestFirst.hasNext() && oldestFirst.next().expiresAt - now <= 0) {
+                oldestFirst.remove();
+            }
+            Entry existing = entries.get(requestId);
+            if (existing != null) {
+                return existing.outcome;
+            }
+            if (entries.size() >= segmentCapacity) {
+                Iterator<Map.Entry<UUID, Entry>> oldest = entries.entrySet().iterator();
+                oldest.next();
+                oldest.remove();
+                evictions.increment();
+            }
+            entries.put(requestId, new Entry(outcome, now + timeToLiveNanos));
+            return null;
+        }
+
+        synchronized void remove(UUID requestId, CompletableFuture<Object> outcome) {
+            Entry entry = entries.get(requestId);
+            if (entry != null && entry.outcome == outcome) {
+                entries.remove(requestId);
+            }
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.IdGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Spreads orders over several {@link OrderManager}s, each with its own {@link PancakeService}, by consistent hashing
+ * of the order id. A new order's id is generated here first and decides its shard, so every later call for the
+ * order goes straight to the shard holding it, and orders on different shards share no registry, journal or feed.
+ * Listings gather the results of every shard and merge them.
+ * <p>
+ * {@link #addShard()} grows the ring and moves the orders, and their in-progress pancakes, that now belong to the
+ * new shard. Calls go through a per-shard read lock that the rebalance takes exclusively on all shards, so calls
+ * wait while orders are being moved and are then routed by the new ring. Collaborators attached to one shard's
+ * {@link OrderManager#feed()}, such as a {@link KitchenScheduler}, see the orders it receives published again and
+ * find the orders it gave away gone.
+ */
+public class ShardedOrderManager {
+    private static final int VIRTUAL_NODES = 128;
+
+    private final ShardFactory shardFactory;
+    private final IdGenerator idGenerator;
+    private volatile Topology topology;
+
+    /**
+     * Creates the {@link PancakeService} of one shard and the {@link OrderManager} around it, e.g. to give each shard
+     * its own journal, inventory or admission limits. Shards get a default {@link PancakeService} unless the factory
+     * overrides {@link #createPancakeService(int)} or is made with {@link #of(IntFunction, ShardFactory)}.
+     */
+    @FunctionalInterface
+    public interface ShardFactory {
+        OrderManager create(int shard, PancakeService pancakeService);
+
+        default PancakeService createPancakeService(int shard) {
+            return new PancakeService();
+        }
+
+        /**
+         * Returns a factory whose shards get their {@link PancakeService} from {@code pancakeServices} and their
+         * {@link OrderManager} from {@code managers}.
+         */
+        static ShardFactory of(IntFunction<PancakeService> pancakeServices, ShardFactory managers) {
+            return new ShardFactory() {
+                @Override
+                public OrderManager create(int shard, PancakeService pancakeService) {
+                    return managers.create(shard, pancakeService);
+                }
+
+                @Override
+                public PancakeService createPancakeService(int shard) {
+                    return pancakeServices.apply(shard);
+                }
+            };
+        }
+    }
+
+    public ShardedOrderManager(int shardCount) {
+        this(shardCount, (shard, pancakeService) -> new OrderManager(pancakeService));
+    }
+
+    public ShardedOrderManager(int shardCount, ShardFactory shardFactory) {
+        this(shardCount, shardFactory, IdGenerator.TIME_ORDERED);
+    }
+
+    /**
+     * Creates {@code shardCount} shards with {@code shardFactory}, giving new orders ids from {@code idGenerator}.
+     */
+    public ShardedOrderManager(int shardCount, ShardFactory shardFactory, IdGenerator idGenerator) {
+        this.shardFactory = shardFactory;
+        this.idGenerator = idGenerator;
+        ConsistentHashRing ring = new ConsistentHashRing(shardCount, VIRTUAL_NODES);
+        Shard[] shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = newShard(i);
+        }
+        this.topology = new Topology(ring, shards);
+    }
+
+    public int shardCount() {
+        return topology.shards.length;
+    }
+
+    /**
+     * Returns the manager of one shard, for attaching per-shard collaborators and reading its metrics.
+     */
+    public OrderManager shard(int index) {
+        return topology.shards[index].orders;
+    }
+
+    /**
+     * Returns the index of the shard the order belongs to.
+     */
+    public int shardOf(UUID orderId) {
+        return topology.ring.shardOf(orderId);
+    }
+
+    public UUID createOrder(int building, int room) {
+        UUID orderId = idGenerator.next();
+        return onShard(orderId, shard -> shard.orders.createOrder(orderId, building, room));
+    }
+
+    public UUID placeOrder(OrderRequest request) {
+        UUID orderId = idGenerator.next();
+        return onShard(orderId, shard -> shard.orders.placeOrder(orderId, request));
+    }
+
+    /**
+     * Applies the commands like {@link OrderManager#applyBatch(List)}, handing each shard the commands for its
+     * orders in one batch.
+     */
+    public BatchResult applyBatch(List<OrderCommand> commands) {
+        Set<UUID> applied = new LinkedHashSet<>();
+        Map<UUID, String> rejected = new LinkedHashMap<>();
+        List<OrderCommand> remaining = commands;
+        while (!remaining.isEmpty()) {
+            Topology current = topology;
+            Map<Integer, List<OrderCommand>> commandsByShard = new LinkedHashMap<>();
+            for (OrderCommand command : remaining) {
+                commandsByShard.computeIfAbsent(current.ring.shardOf(command.orderId()), shard -> new ArrayList<>())
+                        .add(command);
+            }
+            List<OrderCommand> unapplied = new ArrayList<>();
+            for (Map.Entry<Integer, List<OrderCommand>> entry : commandsByShard.entrySet()) {
+                Shard shard = current.shards[entry.getKey()];
+                long stamp = shard.lock.readLock();
+                try {
+                    if (current != topology) {
+                        // rebalanced meanwhile; route what is left again
+                        unapplied.addAll(entry.getValue());
+                        continue;
+                    }
+                    BatchResult result = shard.orders.applyBatch(entry.getValue());
+                    applied.addAll(result.applied());
+                    rejected.putAll(result.rejected());
+                } finally {
+                    shard.lock.unlockRead(stamp);
+                }
+            }
+            remaining = unapplied;
+        }
+        return new BatchResult(applied, rejected);
+    }
+
+    public void startNewPancake(UUID orderId) {
+        onShard(orderId, shard -> {
+            shard.orders.startNewPancake(orderId);
+            return null;
+        });
+    }
+
+    public void addIngredientToPancake(UUID orderId, String ingredient) {
+        onShard(orderId, shard -> {
+            shard.pancakes.addIngredientToPancake(orderId, ingredient);
+            return null;
+        });
+    }
+
+    public void addPancake(UUID orderId, int count) {
+        onShard(orderId, shard -> {
+            shard.orders.addPancake(orderId, count);
+            return null;
+        });
+    }
+
+    public void removePancakes(String description, UUID orderId, int count) {
+        onShard(orderId, shard -> {
+            shard.orders.removePancakes(description, orderId, count);
+            return null;
+        });
+    }
+
+    public void cancelOrder(UUID orderId) {
+        onShard(orderId, shard -> {
+            shard.orders.cancelOrder(orderId);
+            return null;
+        });
+    }
+
+    public void completeOrder(UUID orderId) {
+        onShard(orderId, shard -> {
+            shard.orders.completeOrder(orderId);
+            return null;
+        });
+    }
+
+    public void prepareOrder(UUID orderId) {
+        onShard(orderId, shard -> {
+            shard.orders.prepareOrder(orderId);
+            return null;
+        });
+    }
+
+    /**
+     * Runs {@code change} against the manager of the order's shard, holding that shard's read lock, at most once for
+     * {@code requestId} like {@link OrderManager#once(UUID, Supplier)}: the outcome is kept in that shard's request
+     * cache. The change is handed the shard's manager rather than calling this one, which would take the shard's
+     * lock a second time. A retry that arrives after {@link #addShard()} moved the order to a new shard is not
+     * recognised there and runs the change again.
+     */
+    public <T> T once(UUID requestId, UUID orderId, Function<OrderManager, T> change) {
+        return onShard(orderId, shard -> shard.orders.once(requestId, () -> change.apply(shard.orders)));
+    }
+
+    public Object[] deliverOrder(UUID orderId) {
+        return onShard(orderId, shard -> shard.orders.deliverOrder(orderId));
+    }
+
+    public DeliveredOrder deliverOrderSummary(UUID orderId) {
+        return onShard(orderId, shard -> shard.orders.deliverOrderSummary(orderId));
+    }
+
+    public List<String> viewOrder(UUID orderId) {
+        return onShard(orderId, shard -> shard.orders.viewOrder(orderId));
+    }
+
+    public Map<String, Integer> viewOrderSummary(UUID orderId) {
+        return onShard(orderId, shard -> shard.orders.viewOrderSummary(orderId));
+    }
+
+    public Set<UUID> listCompletedOrders() {
+        return gatherAll(OrderManager::listCompletedOrders);
+    }
+
+    /**
+     * Returns up to {@code limit} completed orders after {@code after} across all shards, in the same id order as
+     * {@link OrderManager#listCompletedOrders(UUID, int)}.
+     */
+    public List<UUID> listCompletedOrders(UUID after, int limit) {
+        return gatherPage(orders -> orders.listCompletedOrders(after, limit), limit);
+    }
+
+    public Set<UUID> listPreparedOrders() {
+        return gatherAll(OrderManager::listPreparedOrders);
+    }
+
+    public List<UUID> listPreparedOrders(UUID after, int limit) {
+        return gatherPage(orders -> orders.listPreparedOrders(after, limit), limit);
+    }
+
+    /**
+     * Adds a shard and moves to it the orders and in-progress pancakes that the grown ring assigns to it; returns
+     * how many orders were moved. All calls wait until the move is done.
+     */
+    public synchronized int addShard() {
+        Topology current = topology;
+        long[] stamps = new long[current.shards.length];
+        for (int i = 0; i < stamps.length; i++) {
+            stamps[i] = current.shards[i].lock.writeLock();
+        }
+        try {
+            Shard added = newShard(current.shards.length);
+            ConsistentHashRing ring = current.ring.withShardAdded();
+            Predicate<UUID> moving = orderId -> ring.shardOf(orderId) == added.index;
+            int moved = 0;
+            for (Shard shard : current.shards) {
+                added.pancakes.adoptPancakes(shard.pancakes.releasePancakes(moving));
+                moved += shard.orders.release(moving, added.orders::adopt);
+            }
+            Shard[] shards = Arrays.copyOf(current.shards, current.shards.length + 1);
+            shards[added.index] = added;
+            topology = new Topology(ring, shards);
+            return moved;
+        } finally {
+            for (int i = 0; i < stamps.length; i++) {
+                current.shards[i].lock.unlockWrite(stamps[i]);
+            }
+        }
+    }
+
+    private Shard newShard(int index) {
+        PancakeService pancakeService = shardFactory.createPancakeService(index);
+        return new Shard(index, shardFactory.create(index, pancakeService), pancakeService);
+    }
+
+    /**
+     * Runs {@code operation} on the order's shard, holding that shard's read lock and routing again if a rebalance
+     * changed the ring while the lock was being taken.
+     */
+    private <T> T onShard(UUID orderId, Function<Shard, T> operation) {
+        while (true) {
+            Topology current = topology;
+            Shard shard = current.shards[current.ring.shardOf(orderId)];
+            long stamp = shard.lock.readLock();
+            try {
+                if (current == topology) {
+                    return operation.apply(shard);
+                }
+            } finally {
+                shard.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    private Set<UUID> gatherAll(Function<OrderManager, Set<UUID>> query) {
+        Set<UUID> result = new HashSet<>();
+        forAllShards(orders -> result.addAll(query.apply(orders)));
+        return result;
+    }
+
+    /**
+     * Merges one page from every shard, each sorted the same way, into the first {@code limit} ids overall.
+     */
+    private List<UUID> gatherPage(Function<OrderManager, List<UUID>> query, int limit) {
+        List<List<UUID>> pages = new ArrayList<>();
+        forAllShards(orders -> pages.add(query.apply(orders)));
+        int[] positions = new int[pages.size()];
+        List<UUID> result = new ArrayList<>(limit);
+        while (result.size() < limit) {
+            int next = -1;
+            for (int i = 0; i < positions.length; i++) {
+                if (positions[i] < pages.get(i).size() && (next < 0
+                        || pages.get(i).get(positions[i]).compareTo(pages.get(next).get(positions[next])) < 0)) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            result.add(pages.get(next).get(positions[next]++));
+        }
+        return result;
+    }
+
+    /**
+     * Visits every shard holding all of their read locks, taken in shard order like {@link #addShard()} takes the
+     * write locks, so that an order being moved is seen exactly once.
+     */
+    private void forAllShards(Consumer<OrderManager> visitor) {
+        while (true) {
+            Topology current = topology;
+            long[] stamps = new long[current.shards.length];
+            for (int i = 0; i < stamps.length; i++) {
+                stamps[i] = current.shards[i].lock.readLock();
+            }
+            try {
+                if (current == topology) {
+                    for (Shard shard : current.shards) {
+                        visitor.accept(shard.orders);
+                    }
+                    return;
+                }
+            } finally {
+                for (int i = 0; i < stamps.length; i++) {
+                    current.shards[i].lock.unlockRead(stamps[i]);
+                }
+            }
+        }
+    }
+
+    private static final class Shard {
+        private final int index;
+        private final OrderManager orders;
+        private final PancakeService pancakes;
+        private final StampedLock lock = new StampedLock();
+
+        Shard(int index, OrderManager orders, PancakeService pancakes) {
+            this.index = index;
+            this.orders = orders;
+            this.pancakes = pancakes;
+        }
+    }
+
+    private static final class Topology {
+        private final ConsistentHashRing ring;
+        private final Shard[] shards;
+
+        Topology(ConsistentHashRing ring, Shard[] shards) {
+            this.ring = ring;
+            this.shards = shards;
+        }
+    }
+}
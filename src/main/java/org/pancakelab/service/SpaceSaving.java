@@ -0,0 +1,85 @@
+package org.pancakelab.service;
+
+import java.util.Arrays;
+
+/**
+ * Space-saving summary of the heaviest {@code long} keys in a stream, in a fixed number of counters. A key that is
+ * not tracked takes over the counter with the smallest count when all are in use, inheriting that count as its
+ * possible overcount; any key whose true count exceeds the smallest count is guaranteed to be tracked.
+ * <p>
+ * Counters are found by a linear scan, which for the few dozen counters this is used with is cheaper than keeping
+ * an index. Not thread-safe.
+ */
+final class SpaceSaving {
+    private final long[] keys;
+    private final long[] counts;
+    private final long[] overcounts;
+    private int size;
+
+    SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity should be positive");
+        }
+        keys = new long[capacity];
+        counts = new long[capacity];
+        overcounts = new long[capacity];
+    }
+
+    void add(long key, long count) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                counts[i] += count;
+                return;
+            }
+        }
+        if (size < keys.length) {
+            keys[size] = key;
+            counts[size++] = count;
+            return;
+        }
+        int smallest = 0;
+        for (int i = 1; i < size; i++) {
+            if (counts[i] < counts[smallest]) {
+                smallest = i;
+            }
+        }
+        keys[smallest] = key;
+        overcounts[smallest] = counts[smallest];
+        counts[smallest] += count;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long key(int i) {
+        return keys[i];
+    }
+
+    long count(int i) {
+        return counts[i];
+    }
+
+    long overcount(int i) {
+        return overcounts[i];
+    }
+
+    /**
+     * The most an untracked key can have been counted, which is 0 until every counter is in use.
+     */
+    long untrackedBound() {
+        if (size < keys.length) {
+            return 0;
+        }
+        long smallest = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            smallest = Math.min(smallest, counts[i]);
+        }
+        return smallest;
+    }
+
+    void clear() {
+        Arrays.fill(overcounts, 0);
+        size = 0;
+    }
+}
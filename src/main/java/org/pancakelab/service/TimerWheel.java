@@ -0,0 +1,69 @@
+package org.pancakelab.service;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashed timer wheel: deadlines are bucketed into one slot per tick, so scheduling is O(1) and expiring touches only
+ * the slots whose ticks have passed, never all scheduled elements. Deadlines more than one rotation away stay in
+ * their slot until the rotation they are due in. Scheduled elements cannot be cancelled; callers re-check expired
+ * elements and reschedule the ones that turn out to be still alive, which keeps activity on an element free of any
+ * wheel operation. Deadlines are {@link System#nanoTime()} values and are honoured to within one tick.
+ */
+final class TimerWheel<E> {
+    private final long tickNanos;
+    private final ArrayDeque<Timer<E>>[] slots;
+    private final int mask;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long tickNanos, int slotCount, long nowNanos) {
+        if (tickNanos < 1 || slotCount < 2 || Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("Tick should be positive and the slot count a power of two");
+        }
+        this.tickNanos = tickNanos;
+        this.slots = (ArrayDeque<Timer<E>>[]) new ArrayDeque<?>[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.mask = slotCount - 1;
+        this.currentTick = nowNanos / tickNanos;
+    }
+
+    synchronized void schedule(E element, long deadlineNanos) {
+        // never behind the wheel, so that an overdue element is found on the next expire
+        long tick = Math.max(deadlineNanos / tickNanos, currentTick);
+        slots[(int) tick & mask].add(new Timer<>(element, deadlineNanos));
+        size++;
+    }
+
+    /**
+     * Moves every element whose deadline is at or before {@code nowNanos} to {@code expired}, visiting each slot
+     * whose tick has passed since the previous call, at most once each.
+     */
+    synchronized void expire(long nowNanos, List<E> expired) {
+        long nowTick = nowNanos / tickNanos;
+        long ticks = Math.min(nowTick - currentTick + 1, slots.length);
+        for (long tick = currentTick; tick < currentTick + ticks; tick++) {
+            Iterator<Timer<E>> timers = slots[(int) tick & mask].iterator();
+            while (timers.hasNext()) {
+                Timer<E> timer = timers.next();
+                if (timer.deadlineNanos - nowNanos <= 0) {
+                    timers.remove();
+                    size--;
+                    expired.add(timer.element);
+                }
+            }
+        }
+        currentTick = Math.max(currentTick, nowTick);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private record Timer<E>(E element, long deadlineNanos) {
+    }
+}
@@ -0,0 +1,116 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.model.pancakes.Recipe;
+import org.pancakelab.service.OrderAnalytics;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.OrderRequest;
+import org.pancakelab.service.PancakeRequest;
+import org.pancakelab.service.PancakeService;
+import org.pancakelab.service.Ranked;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Placing and completing orders with and without {@link OrderAnalytics} following them, to show what the analytics
+ * cost the order operations, and asking for the top recipes once 100k orders have been counted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyticsBenchmark {
+    private static final List<List<String>> MENU = List.of(
+            List.of("dark chocolate"),
+            List.of("milk chocolate"),
+            List.of("milk chocolate", "hazelnuts"),
+            List.of("dark chocolate", "whipped cream"),
+            List.of("whipped cream", "hazelnuts"),
+            List.of("dark chocolate", "whipped cream", "hazelnuts"));
+
+    private static final OrderRequest[] REQUESTS = new OrderRequest[1024];
+
+    static {
+        for (int i = 0; i < REQUESTS.length; i++) {
+            REQUESTS[i] = new OrderRequest(1 + i % 200, 1 + i % 30, List.of(
+                    new PancakeRequest(MENU.get(i % MENU.size()), 1 + i % 3),
+                    new PancakeRequest(MENU.get(i * 7 % MENU.size()), 1)));
+        }
+    }
+
+    @Param({"false", "true"})
+    public boolean analyticsOn;
+
+    private OrderManager orderManager;
+    private OrderAnalytics analytics;
+    private int next;
+
+    /**
+     * Analytics with a window's worth of orders counted, for the query.
+     */
+    @State(Scope.Benchmark)
+    public static class CountedOrders {
+        OrderAnalytics analytics;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            OrderManager orderManager = new OrderManager(new PancakeService());
+            analytics = new OrderAnalytics(orderManager);
+            analytics.start();
+            for (int i = 0; i < 100_000; i++) {
+                orderManager.completeOrder(orderManager.placeOrder(REQUESTS[i & (REQUESTS.length - 1)]));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            analytics.close();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Logger.getLogger(OrderLog.class.getName()).setLevel(java.util.logging.Level.WARNING);
+        // a fresh manager per iteration, so that the orders kept open do not pile up
+        orderManager = new OrderManager(new PancakeService());
+        analytics = new OrderAnalytics(orderManager);
+        if (analyticsOn) {
+            analytics.start();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        analytics.close();
+    }
+
+    @Benchmark
+    public UUID placeAndComplete() {
+        UUID orderId = orderManager.placeOrder(REQUESTS[next++ & (REQUESTS.length - 1)]);
+        orderManager.completeOrder(orderId);
+        return orderId;
+    }
+
+    @Benchmark
+    public List<Ranked<Recipe>> topRecipes(CountedOrders counted) {
+        return counted.analytics.topRecipes(5);
+    }
+}
@@ -0,0 +1,86 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.OrderRequest;
+import org.pancakelab.service.PancakeRequest;
+import org.pancakelab.service.PancakeService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Building a 20-pancake order call by call versus placing it in one {@link OrderManager#placeOrder} call. Both
+ * paths complete and then cancel the order so the manager does not grow. Logging is left at INFO so the per-call
+ * log entries are part of the cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+    private static final List<List<String>> MENU = List.of(
+            List.of("dark chocolate"),
+            List.of("milk chocolate"),
+            List.of("milk chocolate", "hazelnuts"),
+            List.of("dark chocolate", "whipped cream"),
+            List.of("whipped cream", "hazelnuts"));
+    private static final int PANCAKES = 20;
+
+    private PancakeService pancakeService;
+    private OrderManager orderManager;
+    private OrderRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // discard the log output but keep the INFO level so events are still created and written
+        Logger logger = Logger.getLogger(OrderLog.class.getName());
+        logger.setUseParentHandlers(false);
+        pancakeService = new PancakeService();
+        orderManager = new OrderManager(pancakeService);
+        List<PancakeRequest> pancakes = new ArrayList<>();
+        for (int i = 0; i < PANCAKES; i++) {
+            pancakes.add(new PancakeRequest(MENU.get(i % MENU.size()), 1));
+        }
+        request = new OrderRequest(4, 2, pancakes);
+    }
+
+    @Benchmark
+    public UUID perCall() {
+        UUID orderId = orderManager.createOrder(4, 2);
+        for (int i = 0; i < PANCAKES; i++) {
+            pancakeService.startNewPancake(orderId);
+            for (String ingredient : MENU.get(i % MENU.size())) {
+                pancakeService.addIngredientToPancake(orderId, ingredient);
+            }
+            orderManager.addPancake(orderId, 1);
+        }
+        orderManager.completeOrder(orderId);
+        orderManager.cancelOrder(orderId);
+        return orderId;
+    }
+
+    @Benchmark
+    public UUID placeOrder() {
+        UUID orderId = orderManager.placeOrder(request);
+        orderManager.completeOrder(orderId);
+        orderManager.cancelOrder(orderId);
+        return orderId;
+    }
+}
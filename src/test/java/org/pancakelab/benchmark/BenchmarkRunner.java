@@ -0,0 +1,87 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the benchmark suite with the GC profiler attached, so every result also reports the allocation rate per
+ * operation ({@code gc.alloc.rate.norm}). The {@link #THREADED_BENCHMARKS} run once per thread count in
+ * {@link #THREAD_COUNTS}. Results are written as JSON to {@code target/jmh/} to be compared against a baseline.
+ * <p>
+ * {@link KitchenSimulation}, {@link HttpLoadGenerator}, {@link OrderStoreFootprint} and {@link OverloadSimulation}
+ * are not JMH benchmarks and print their own reports.
+ * <p>
+ * The optional first argument is a regular expression selecting the benchmark classes to run.
+ */
+public class BenchmarkRunner {
+    private static final int[] THREAD_COUNTS = {1, 4, 16, 64};
+    private static final List<Class<?>> THREADED_BENCHMARKS = List.of(
+            OrderLifecycleBenchmark.class,
+            IdGeneratorBenchmark.class,
+            InventoryBenchmark.class,
+            OrderEngineBenchmark.class,
+            RequestCacheBenchmark.class);
+    private static final List<Class<?>> BENCHMARKS = List.of(
+            ListOrdersBenchmark.class,
+            ViewOrderBenchmark.class,
+            OrderContentionBenchmark.class,
+            JournalAppendBenchmark.class,
+            JournalReplayBenchmark.class,
+            StartupBenchmark.class,
+            BatchBenchmark.class,
+            FeedBenchmark.class,
+            DeliveryPlannerBenchmark.class,
+            MetricsBenchmark.class,
+            ShardingBenchmark.class,
+            AnalyticsBenchmark.class);
+
+    public static void main(String[] args) throws Exception {
+        Pattern filter = Pattern.compile(args.length > 0 ? args[0] : ".*");
+        new File("target/jmh").mkdirs();
+
+        for (Class<?> benchmark : THREADED_BENCHMARKS) {
+            if (filter.matcher(benchmark.getSimpleName()).find()) {
+                for (int threads : THREAD_COUNTS) {
+                    run(options(benchmark, "-threads-" + threads).threads(threads));
+                }
+            }
+        }
+        for (Class<?> benchmark : BENCHMARKS) {
+            if (filter.matcher(benchmark.getSimpleName()).find()) {
+                run(options(benchmark, ""));
+            }
+        }
+        if (filter.matcher(KitchenSimulation.class.getSimpleName()).find()) {
+            KitchenSimulation.main(new String[0]);
+        }
+        if (filter.matcher(HttpLoadGenerator.class.getSimpleName()).find()) {
+            HttpLoadGenerator.main(new String[0]);
+        }
+        if (filter.matcher(OrderStoreFootprint.class.getSimpleName()).find()) {
+            OrderStoreFootprint.main(new String[0]);
+        }
+        if (filter.matcher(OverloadSimulation.class.getSimpleName()).find()) {
+            OverloadSimulation.main(new String[0]);
+        }
+    }
+
+    private static ChainedOptionsBuilder options(Class<?> benchmark, String resultSuffix) {
+        return new OptionsBuilder()
+                .include(benchmark.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh/" + benchmark.getSimpleName() + resultSuffix + ".json");
+    }
+
+    private static void run(ChainedOptionsBuilder options) throws RunnerException {
+        new Runner(options.build()).run();
+    }
+}
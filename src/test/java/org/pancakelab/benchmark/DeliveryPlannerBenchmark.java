@@ -0,0 +1,87 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.service.DeliveryPlanner;
+import org.pancakelab.service.DeliveryRun;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.OrderRequest;
+import org.pancakelab.service.PancakeRequest;
+import org.pancakelab.service.PancakeService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Preparing a run's worth of orders and handing out the next delivery run, with a growing backlog of prepared
+ * orders waiting in the planner. The cost per run should not depend on the backlog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeliveryPlannerBenchmark {
+    private static final int RUN_SIZE = 8;
+    private static final int BUILDINGS = 500;
+
+    @Param({"1000", "100000", "400000"})
+    public int waitingOrders;
+
+    private OrderManager orderManager;
+    private DeliveryPlanner planner;
+    private OrderRequest[] requests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Logger.getLogger(OrderLog.class.getName()).setLevel(java.util.logging.Level.WARNING);
+        orderManager = new OrderManager(new PancakeService());
+        requests = new OrderRequest[BUILDINGS];
+        for (int building = 1; building <= BUILDINGS; building++) {
+            requests[building - 1] = new OrderRequest(building, 1 + building % 30,
+                    List.of(new PancakeRequest(List.of("dark chocolate"), 1)));
+        }
+        for (int i = 0; i < waitingOrders; i++) {
+            prepare(requests[i % BUILDINGS]);
+        }
+        planner = new DeliveryPlanner(orderManager, RUN_SIZE, Duration.ZERO);
+        planner.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        planner.close();
+    }
+
+    @Benchmark
+    public DeliveryRun prepareAndPlanRun() {
+        OrderRequest request = requests[ThreadLocalRandom.current().nextInt(BUILDINGS)];
+        for (int i = 0; i < RUN_SIZE; i++) {
+            prepare(request);
+        }
+        return planner.nextRun();
+    }
+
+    private void prepare(OrderRequest request) {
+        UUID orderId = orderManager.placeOrder(request);
+        orderManager.completeOrder(orderId);
+        orderManager.prepareOrder(orderId);
+    }
+}
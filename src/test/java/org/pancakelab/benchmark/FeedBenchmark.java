@@ -0,0 +1,118 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.model.OrderStatus;
+import org.pancakelab.service.OrderEvent;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.PancakeService;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * How long it takes a kitchen worker to notice a completed order: subscribed to the feed, or polling
+ * {@link OrderManager#listCompletedOrders(UUID, int)} every millisecond.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedBenchmark {
+
+    @Param({"feed", "poll"})
+    public String notification;
+
+    private OrderManager orderManager;
+    private volatile UUID seen;
+    private volatile boolean running;
+    private Thread poller;
+    private Flow.Subscription subscription;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Logger.getLogger(OrderLog.class.getName()).setLevel(java.util.logging.Level.WARNING);
+        orderManager = new OrderManager(new PancakeService());
+        running = true;
+        if ("feed".equals(notification)) {
+            orderManager.feed().subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    FeedBenchmark.this.subscription = subscription;
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(OrderEvent event) {
+                    if (event.status() == OrderStatus.COMPLETED) {
+                        seen = event.orderId();
+                    }
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    throwable.printStackTrace();
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+        } else {
+            poller = new Thread(() -> {
+                while (running) {
+                    List<UUID> completed = orderManager.listCompletedOrders(null, 64);
+                    if (!completed.isEmpty()) {
+                        seen = completed.get(0);
+                    }
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "poller");
+            poller.setDaemon(true);
+            poller.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        if (poller != null) {
+            poller.join();
+        }
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    @Benchmark
+    public UUID completeAndWaitForWorker() {
+        UUID orderId = orderManager.createOrder(1, 1);
+        orderManager.completeOrder(orderId);
+        while (seen != orderId) {
+            Thread.yield();
+        }
+        orderManager.cancelOrder(orderId);
+        return orderId;
+    }
+}
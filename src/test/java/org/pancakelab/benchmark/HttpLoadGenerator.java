@@ -0,0 +1,125 @@
+package org.pancakelab.benchmark;
+
+import org.pancakelab.http.HttpConfig;
+import org.pancakelab.http.OrderHttpServer;
+import org.pancakelab.metrics.LatencyHistogram;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.PancakeService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drives an {@link OrderHttpServer} with clients that each take orders through their whole lifecycle, one request
+ * after the other over kept-alive connections, and reports requests per second and request latency percentiles
+ * for a growing number of clients. Requests turned away with 503 are counted separately.
+ * <p>
+ * Starts its own server unless given the base URL of a running one, e.g. {@code http://localhost:8080}. Not a JMH
+ * benchmark, since it measures a server from the outside; run it with
+ * {@code mvn -Pbenchmark verify -Dbenchmark.include=HttpLoadGenerator}.
+ */
+public class HttpLoadGenerator {
+    private static final int[] CLIENTS = {1, 4, 16, 64};
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long MEASURE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    public static void main(String[] args) throws Exception {
+        Logger.getLogger(OrderLog.class.getName()).setLevel(Level.WARNING);
+        OrderHttpServer server = null;
+        String baseUrl;
+        if (args.length > 0) {
+            baseUrl = args[0];
+        } else {
+            PancakeService pancakeService = new PancakeService();
+            server = new OrderHttpServer(new OrderManager(pancakeService), pancakeService,
+                    new HttpConfig(new InetSocketAddress("localhost", 0), 16, 256));
+            server.start();
+            baseUrl = "http://localhost:" + server.port();
+        }
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        System.out.printf("%-8s %12s %10s %10s %10s %10s %8s%n",
+                "clients", "requests/s", "p50 us", "p99 us", "p99.9 us", "max us", "503s");
+        for (int clients : CLIENTS) {
+            run(client, baseUrl, clients);
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private static void run(HttpClient client, String baseUrl, int clients) throws InterruptedException {
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder rejected = new LongAdder();
+        long start = System.nanoTime();
+        long measureFrom = start + WARMUP_NANOS;
+        long end = measureFrom + MEASURE_NANOS;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        lifecycle(client, baseUrl, measureFrom, latency, rejected);
+                    }
+                } catch (IOException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }, "load-client");
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = MEASURE_NANOS / 1e9;
+        System.out.printf("%-8d %12.0f %10.1f %10.1f %10.1f %10.1f %8d%n", clients, latency.count() / seconds,
+                latency.percentile(50) / 1e3, latency.percentile(99) / 1e3, latency.percentile(99.9) / 1e3,
+                latency.max() / 1e3, rejected.sum());
+    }
+
+    private static void lifecycle(HttpClient client, String baseUrl, long measureFrom, LatencyHistogram latency,
+                                  LongAdder rejected) throws IOException, InterruptedException {
+        String orderId = send(client, baseUrl, "POST", "/orders?building=3&room=7", measureFrom, latency, rejected);
+        if (orderId == null) {
+            return;
+        }
+        String order = "/orders/" + orderId;
+        String[] steps = {order + "/pancake", order + "/pancake/ingredients?name=dark+chocolate",
+                order + "/pancakes?count=2", order + "/complete", order + "/prepare", order + "/deliver"};
+        for (String step : steps) {
+            if (send(client, baseUrl, "POST", step, measureFrom, latency, rejected) == null) {
+                send(client, baseUrl, "POST", order + "/cancel", measureFrom, latency, rejected);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends one request and returns the response body, or {@code null} if it failed.
+     */
+    private static String send(HttpClient client, String baseUrl, String method, String path, long measureFrom,
+                               LatencyHistogram latency, LongAdder rejected) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (start - measureFrom >= 0) {
+            latency.record(System.nanoTime() - start);
+            if (response.statusCode() == 503) {
+                rejected.increment();
+            }
+        }
+        return response.statusCode() < 300 ? response.body() : null;
+    }
+}
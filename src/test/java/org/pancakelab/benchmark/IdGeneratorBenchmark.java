@@ -0,0 +1,47 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.model.IdGenerator;
+import org.pancakelab.model.TimeOrderedIdGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order id generation with {@link UUID#randomUUID()} versus the {@link TimeOrderedIdGenerator}. Thread counts are
+ * set by {@link BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    @Param({"random", "timeOrdered"})
+    public String generator;
+
+    private IdGenerator ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ids = "random".equals(generator) ? IdGenerator.RANDOM : new TimeOrderedIdGenerator();
+    }
+
+    @Benchmark
+    public UUID next() {
+        return ids.next();
+    }
+}
@@ -0,0 +1,51 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.model.pancakes.Ingredient;
+import org.pancakelab.model.pancakes.Recipe;
+import org.pancakelab.service.Inventory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reserving and releasing the same recipe's ingredients from every thread, with one stripe per ingredient versus
+ * sixteen. Thread counts are set by {@link BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryBenchmark {
+    private static final Recipe RECIPE = Recipe.PLAIN.with(Ingredient.DARK_CHOCOLATE).with(Ingredient.HAZELNUTS);
+
+    @Param({"1", "16"})
+    public int stripes;
+
+    private Inventory inventory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inventory = new Inventory(stripes);
+        inventory.restock(Ingredient.DARK_CHOCOLATE, 1_000_000);
+        inventory.restock(Ingredient.HAZELNUTS, 1_000_000);
+    }
+
+    @Benchmark
+    public void reserveAndRelease() {
+        inventory.reserve(RECIPE, 2);
+        inventory.release(RECIPE, 2);
+    }
+}
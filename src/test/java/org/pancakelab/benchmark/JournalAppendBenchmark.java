@@ -0,0 +1,69 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.journal.FsyncPolicy;
+import org.pancakelab.journal.JournalConfig;
+import org.pancakelab.journal.JournalRecord;
+import org.pancakelab.journal.MappedOrderJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustained append throughput of the journal from several threads, including the wait for durability under each
+ * fsync policy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class JournalAppendBenchmark {
+
+    @Param({"NONE", "INTERVAL", "GROUP_COMMIT"})
+    public FsyncPolicy fsyncPolicy;
+
+    private Path directory;
+    private MappedOrderJournal journal;
+    private JournalRecord record;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-append");
+        journal = new MappedOrderJournal(new JournalConfig(directory, JournalConfig.DEFAULT_SEGMENT_SIZE,
+                fsyncPolicy, Duration.ofMillis(10)));
+        record = JournalRecord.addPancakes(UUID.randomUUID(), 0x0101L, 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        Journals.delete(directory);
+    }
+
+    @Benchmark
+    public long append() {
+        long lsn = journal.append(record);
+        journal.sync(lsn);
+        return lsn;
+    }
+}
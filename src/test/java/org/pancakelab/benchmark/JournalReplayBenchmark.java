@@ -0,0 +1,90 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.journal.FsyncPolicy;
+import org.pancakelab.journal.JournalConfig;
+import org.pancakelab.journal.JournalRecord;
+import org.pancakelab.journal.MappedOrderJournal;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.OrderManagerConfig;
+import org.pancakelab.service.PancakeService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Replaying a journal of {@code events} records: the raw scan and the full rebuild of an {@link OrderManager}.
+ * The journal holds complete lifecycles (create, add pancakes, complete, prepare, deliver) for most orders and
+ * leaves every tenth order open.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JournalReplayBenchmark {
+
+    @Param({"10000000"})
+    public int events;
+
+    private Path directory;
+    private MappedOrderJournal journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Logger.getLogger(OrderLog.class.getName()).setLevel(java.util.logging.Level.WARNING);
+        directory = Files.createTempDirectory("journal-replay");
+        journal = new MappedOrderJournal(new JournalConfig(directory, JournalConfig.DEFAULT_SEGMENT_SIZE,
+                FsyncPolicy.NONE, Duration.ofSeconds(1)));
+        int written = 0;
+        for (int order = 0; written < events; order++) {
+            UUID orderId = UUID.randomUUID();
+            journal.append(JournalRecord.create(orderId, 1 + order % 50, 1 + order % 20));
+            journal.append(JournalRecord.addPancakes(orderId, 1L << 8 * (order % 4), 2));
+            written += 2;
+            if (order % 10 != 0) {
+                journal.append(JournalRecord.of(JournalRecord.Type.COMPLETE, orderId));
+                journal.append(JournalRecord.of(JournalRecord.Type.PREPARE, orderId));
+                journal.append(JournalRecord.of(JournalRecord.Type.DELIVER, orderId));
+                written += 3;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        Journals.delete(directory);
+    }
+
+    @Benchmark
+    public long scan() {
+        long[] records = new long[1];
+        journal.replay(0, (lsn, record) -> records[0]++);
+        return records[0];
+    }
+
+    @Benchmark
+    public OrderManager rebuildOrderManager() {
+        return new OrderManager(new PancakeService(), OrderManagerConfig.defaults().withJournal(journal));
+    }
+}
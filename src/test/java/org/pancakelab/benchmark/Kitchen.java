@@ -0,0 +1,35 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.PancakeService;
+
+import java.util.logging.Logger;
+
+/**
+ * A fresh {@link OrderManager} shared by all benchmark threads, replaced before every iteration so that state
+ * left behind by one iteration never slows down the next. The order log is turned down to warnings so that the
+ * numbers measure the services and not the console.
+ */
+@State(Scope.Benchmark)
+public class Kitchen {
+    static final String DARK_CHOCOLATE = "dark chocolate";
+
+    public PancakeService pancakeService;
+    public OrderManager orderManager;
+
+    @Setup(Level.Trial)
+    public void quietOrderLog() {
+        Logger.getLogger(OrderLog.class.getName()).setLevel(java.util.logging.Level.WARNING);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        pancakeService = new PancakeService();
+        orderManager = new OrderManager(pancakeService);
+    }
+}
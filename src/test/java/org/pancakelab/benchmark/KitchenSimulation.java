@@ -0,0 +1,197 @@
+package org.pancakelab.benchmark;
+
+import org.pancakelab.model.OrderStatus;
+import org.pancakelab.service.CookBatch;
+import org.pancakelab.service.Griddle;
+import org.pancakelab.service.KitchenScheduler;
+import org.pancakelab.service.OrderEvent;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.OrderRequest;
+import org.pancakelab.service.PancakeRequest;
+import org.pancakelab.service.PancakeService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Simulated kitchen under a steady stream of orders, reporting prepared orders per minute and the latency from
+ * completion to preparation. A griddle load takes the same time however full it is, and switching a griddle to
+ * another recipe costs extra. The {@link KitchenScheduler} is compared with cooking order by order, each worker
+ * taking the next completed order and cooking its recipes one load at a time.
+ * <p>
+ * Not a JMH benchmark, since the interesting numbers are per order rather than per call; run it with
+ * {@code mvn -Pbenchmark verify -Dbenchmark.include=KitchenSimulation}.
+ */
+public class KitchenSimulation {
+    private static final List<List<String>> MENU = List.of(
+            List.of("dark chocolate"),
+            List.of("milk chocolate"),
+            List.of("milk chocolate", "hazelnuts"),
+            List.of("dark chocolate", "whipped cream"),
+            List.of("whipped cream", "hazelnuts"),
+            List.of("dark chocolate", "whipped cream", "hazelnuts"));
+    private static final int ORDERS = 4000;
+    private static final int ORDERS_PER_SECOND = 1500;
+    private static final int WORKERS = 4;
+    private static final int GRIDDLE_CAPACITY = 16;
+    private static final long COOK_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long SWITCH_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    public static void main(String[] args) throws InterruptedException {
+        Logger.getLogger(OrderLog.class.getName()).setLevel(Level.WARNING);
+        System.out.printf("%d orders at %d/s, %d workers, griddle capacity %d%n",
+                ORDERS, ORDERS_PER_SECOND, WORKERS, GRIDDLE_CAPACITY);
+        System.out.printf("%-10s %12s %10s %10s %10s%n", "kitchen", "orders/min", "p50 ms", "p99 ms", "loads");
+        run("per-order", false);
+        run("batching", true);
+    }
+
+    private static void run(String name, boolean batching) throws InterruptedException {
+        OrderManager orderManager = new OrderManager(new PancakeService());
+        Map<UUID, Long> completedAt = new ConcurrentHashMap<>();
+        long[] latencies = new long[ORDERS];
+        CountDownLatch allPrepared = new CountDownLatch(ORDERS);
+        orderManager.feed().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(OrderEvent event) {
+                if (event.status() == OrderStatus.PREPARED) {
+                    int index = (int) (ORDERS - allPrepared.getCount());
+                    latencies[index] = System.nanoTime() - completedAt.remove(event.orderId());
+                    allPrepared.countDown();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throwable.printStackTrace();
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        SimulatedGriddles griddles = new SimulatedGriddles();
+        AutoCloseable kitchen = batching
+                ? startScheduler(orderManager, griddles)
+                : startPerOrderKitchen(orderManager, griddles);
+
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < ORDERS; i++) {
+            LockSupport.parkNanos(start + i * TimeUnit.SECONDS.toNanos(1) / ORDERS_PER_SECOND - System.nanoTime());
+            List<PancakeRequest> pancakes = new ArrayList<>();
+            for (int line = random.nextInt(3); line >= 0; line--) {
+                pancakes.add(new PancakeRequest(MENU.get(random.nextInt(MENU.size())), 1 + random.nextInt(3)));
+            }
+            UUID orderId = orderManager.placeOrder(new OrderRequest(1 + random.nextInt(20), 1, pancakes));
+            completedAt.put(orderId, System.nanoTime());
+            orderManager.completeOrder(orderId);
+        }
+        allPrepared.await();
+        long elapsed = System.nanoTime() - start;
+        try {
+            kitchen.close();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf("%-10s %12.0f %10.2f %10.2f %10d%n", name,
+                ORDERS * 60.0 * TimeUnit.SECONDS.toNanos(1) / elapsed,
+                latencies[ORDERS / 2] / 1e6, latencies[ORDERS * 99 / 100] / 1e6, griddles.loads);
+    }
+
+    private static AutoCloseable startScheduler(OrderManager orderManager, SimulatedGriddles griddles) {
+        KitchenScheduler scheduler = new KitchenScheduler(orderManager, griddles, GRIDDLE_CAPACITY, WORKERS);
+        scheduler.start();
+        return scheduler;
+    }
+
+    /**
+     * Today's kitchen: each worker polls for the next completed order and cooks it on its own.
+     */
+    private static AutoCloseable startPerOrderKitchen(OrderManager orderManager, SimulatedGriddles griddles) {
+        ExecutorService workers = Executors.newFixedThreadPool(WORKERS);
+        Map<UUID, Boolean> claimed = new ConcurrentHashMap<>();
+        for (int i = 0; i < WORKERS; i++) {
+            workers.execute(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    UUID next = orderManager.listCompletedOrders(null, 64).stream()
+                            .filter(orderId -> claimed.putIfAbsent(orderId, true) == null)
+                            .findFirst()
+                            .orElse(null);
+                    if (next == null) {
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                        continue;
+                    }
+                    try {
+                        for (Map.Entry<String, Integer> line : orderManager.viewOrderSummary(next).entrySet()) {
+                            for (int left = line.getValue(); left > 0; left -= GRIDDLE_CAPACITY) {
+                                griddles.cook(line.getKey(), Math.min(left, GRIDDLE_CAPACITY));
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    orderManager.prepareOrder(next);
+                }
+            });
+        }
+        return () -> {
+            workers.shutdownNow();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        };
+    }
+
+    /**
+     * Griddles that take {@link #COOK_NANOS} per load plus {@link #SWITCH_NANOS} when the worker's previous load was
+     * a different recipe.
+     */
+    private static final class SimulatedGriddles implements Griddle {
+        private final ThreadLocal<String> lastRecipe = new ThreadLocal<>();
+        private volatile long loads;
+
+        @Override
+        public void cook(CookBatch batch) throws InterruptedException {
+            cook(batch.recipe().description(), batch.pancakes());
+        }
+
+        void cook(String recipe, int pancakes) throws InterruptedException {
+            long nanos = COOK_NANOS;
+            if (!recipe.equals(lastRecipe.get())) {
+                nanos += SWITCH_NANOS;
+                lastRecipe.set(recipe);
+            }
+            synchronized (this) {
+                loads++;
+            }
+            long deadline = System.nanoTime() + nanos;
+            while (System.nanoTime() < deadline) {
+                LockSupport.parkNanos(deadline - System.nanoTime());
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.PancakeService;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Cost of the chef and delivery polling calls with many open orders. A tenth of the open orders are completed and
+ * another tenth prepared, the rest are still being filled in by disciples.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ListOrdersBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"10000", "1000000"})
+    public int openOrders;
+
+    private OrderManager orderManager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Logger.getLogger(OrderLog.class.getName()).setLevel(java.util.logging.Level.WARNING);
+        orderManager = new OrderManager(new PancakeService());
+        for (int i = 0; i < openOrders; i++) {
+            UUID orderId = orderManager.createOrder(1 + i % 50, 1 + i % 20);
+            if (i % 10 == 0 || i % 10 == 1) {
+                orderManager.completeOrder(orderId);
+            }
+            if (i % 10 == 1) {
+                orderManager.prepareOrder(orderId);
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<UUID> listCompletedOrders() {
+        return orderManager.listCompletedOrders();
+    }
+
+    @Benchmark
+    public Set<UUID> listPreparedOrders() {
+        return orderManager.listPreparedOrders();
+    }
+
+    @Benchmark
+    public List<UUID> listPreparedOrdersPage() {
+        return orderManager.listPreparedOrders(null, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,78 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pancakelab.model.Order;
+import org.pancakelab.model.pancakes.Ingredient;
+import org.pancakelab.model.pancakes.Pancake;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mixed add/remove/view traffic spread over many orders, comparing the per-order monitors in {@link Order} with a
+ * naive single global lock around every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class OrderContentionBenchmark {
+
+    private static final Object GLOBAL_LOCK = new Object();
+
+    @Param({"perOrder", "globalLock"})
+    public String locking;
+
+    @Param({"1024"})
+    public int orderCount;
+
+    private Order[] orders;
+    private Pancake pancake;
+    private boolean globalLock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        globalLock = "globalLock".equals(locking);
+        pancake = new Pancake();
+        pancake.addIngredient(Ingredient.DARK_CHOCOLATE);
+        orders = new Order[orderCount];
+        for (int i = 0; i < orderCount; i++) {
+            orders[i] = new Order(1, 1);
+            orders[i].addPancake(pancake, 1);
+        }
+    }
+
+    @Benchmark
+    public void addRemoveView(Blackhole blackhole) {
+        Order order = orders[ThreadLocalRandom.current().nextInt(orderCount)];
+        if (globalLock) {
+            synchronized (GLOBAL_LOCK) {
+                mutate(order, blackhole);
+            }
+        } else {
+            mutate(order, blackhole);
+        }
+    }
+
+    private void mutate(Order order, Blackhole blackhole) {
+        order.addPancake(pancake, 1);
+        blackhole.consume(order.removePancakes(pancake.description(), 1));
+        blackhole.consume(order.viewOrder());
+    }
+}
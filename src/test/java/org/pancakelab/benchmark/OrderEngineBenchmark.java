@@ -0,0 +1,69 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.service.OrderEngine;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.PancakeRequest;
+import org.pancakelab.service.PancakeService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * One order's lifecycle through {@link OrderEngine#direct} versus {@link OrderEngine#partitioned}. The partitioned
+ * engine is pipelined: after the create, the caller submits the remaining commands for the order and only waits
+ * for the delivery. Throughput and the latency distribution are both reported; thread counts are set by
+ * {@link BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderEngineBenchmark {
+    private static final PancakeRequest PANCAKES = new PancakeRequest(List.of("dark chocolate", "hazelnuts"), 2);
+
+    @Param({"direct", "partitioned"})
+    public String mode;
+
+    private OrderEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Logger.getLogger(OrderLog.class.getName()).setLevel(java.util.logging.Level.WARNING);
+        engine = "direct".equals(mode)
+                ? OrderEngine.direct(new OrderManager(new PancakeService()))
+                : OrderEngine.partitioned(4, 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public Map<String, Integer> lifecycle() {
+        UUID orderId = engine.createOrder(3, 7).join();
+        engine.addPancakes(orderId, PANCAKES);
+        engine.completeOrder(orderId);
+        engine.prepareOrder(orderId);
+        return engine.deliverOrder(orderId).join();
+    }
+}
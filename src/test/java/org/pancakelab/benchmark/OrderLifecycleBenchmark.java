@@ -0,0 +1,132 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.service.OrderManager;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each step of the order lifecycle. Every step changes the state it runs on, so each iteration is a
+ * single shot over a batch of {@value #BATCH} orders per thread, prepared in the required state beforehand; divide
+ * the batch by the reported time to get operations per second. Thread counts are set by {@link BenchmarkRunner}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = OrderLifecycleBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = OrderLifecycleBenchmark.BATCH)
+@Fork(1)
+public class OrderLifecycleBenchmark {
+    static final int BATCH = 10_000;
+
+    @State(Scope.Thread)
+    public static class Orders {
+        UUID[] orderIds = new UUID[BATCH];
+        int next;
+
+        UUID next() {
+            return orderIds[next++ % BATCH];
+        }
+
+        void create(OrderManager orderManager) {
+            next = 0;
+            for (int i = 0; i < BATCH; i++) {
+                orderIds[i] = orderManager.createOrder(1 + i % 50, 1 + i % 20);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CreatedOrders extends Orders {
+        @Setup(Level.Iteration)
+        public void setUp(Kitchen kitchen) {
+            create(kitchen.orderManager);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class StartedPancakes extends Orders {
+        @Setup(Level.Iteration)
+        public void setUp(Kitchen kitchen) {
+            create(kitchen.orderManager);
+            for (UUID orderId : orderIds) {
+                kitchen.pancakeService.startNewPancake(orderId);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ReadyPancakes extends Orders {
+        @Setup(Level.Iteration)
+        public void setUp(Kitchen kitchen) {
+            create(kitchen.orderManager);
+            for (UUID orderId : orderIds) {
+                kitchen.pancakeService.startNewPancake(orderId);
+                kitchen.pancakeService.addIngredientToPancake(orderId, Kitchen.DARK_CHOCOLATE);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CompletedOrders extends Orders {
+        @Setup(Level.Iteration)
+        public void setUp(Kitchen kitchen) {
+            create(kitchen.orderManager);
+            for (UUID orderId : orderIds) {
+                kitchen.orderManager.completeOrder(orderId);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PreparedOrders extends Orders {
+        @Setup(Level.Iteration)
+        public void setUp(Kitchen kitchen) {
+            create(kitchen.orderManager);
+            for (UUID orderId : orderIds) {
+                kitchen.orderManager.completeOrder(orderId);
+                kitchen.orderManager.prepareOrder(orderId);
+            }
+        }
+    }
+
+    @Benchmark
+    public UUID createOrder(Kitchen kitchen) {
+        return kitchen.orderManager.createOrder(3, 7);
+    }
+
+    @Benchmark
+    public void addIngredient(Kitchen kitchen, StartedPancakes orders) {
+        kitchen.pancakeService.addIngredientToPancake(orders.next(), Kitchen.DARK_CHOCOLATE);
+    }
+
+    @Benchmark
+    public void addPancake(Kitchen kitchen, ReadyPancakes orders) {
+        kitchen.orderManager.addPancake(orders.next(), 2);
+    }
+
+    @Benchmark
+    public void completeOrder(Kitchen kitchen, CreatedOrders orders) {
+        kitchen.orderManager.completeOrder(orders.next());
+    }
+
+    @Benchmark
+    public void prepareOrder(Kitchen kitchen, CompletedOrders orders) {
+        kitchen.orderManager.prepareOrder(orders.next());
+    }
+
+    @Benchmark
+    public Object deliverOrder(Kitchen kitchen, PreparedOrders orders) {
+        return kitchen.orderManager.deliverOrder(orders.next());
+    }
+}
@@ -0,0 +1,158 @@
+package org.pancakelab.benchmark;
+
+import org.pancakelab.model.IdGenerator;
+import org.pancakelab.model.pancakes.Ingredient;
+import org.pancakelab.model.pancakes.Recipe;
+import org.pancakelab.service.OffHeapOrderStore;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.OrderRequest;
+import org.pancakelab.service.PancakeRequest;
+import org.pancakelab.service.PancakeService;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Memory and garbage collection cost of keeping many open orders, as {@code Order} objects in an
+ * {@link OrderManager} versus in an {@link OffHeapOrderStore}. Each store is filled with {@link #OPEN_ORDERS} orders
+ * of two pancake lines and then churned, every new order replacing the oldest one. The report shows the heap and
+ * off-heap bytes per open order, the collections and their total time during the churn, and how long a full
+ * collection takes with all the orders live. The heap figures include the id the harness keeps for every open
+ * order.
+ * <p>
+ * Not a JMH benchmark, since it measures the whole heap rather than a call; run it with
+ * {@code mvn -Pbenchmark verify -Dbenchmark.include=OrderStoreFootprint}.
+ */
+public class OrderStoreFootprint {
+    private static final int OPEN_ORDERS = 1_000_000;
+    private static final int CHURNED_ORDERS = 2_000_000;
+    private static final List<String> DARK_CHOCOLATE = List.of("dark chocolate");
+    private static final List<String> HAZELNUTS = List.of("hazelnuts", "whipped cream");
+    // held so that the level set on it survives the collections forced below
+    private static final Logger ORDER_LOG = Logger.getLogger(OrderLog.class.getName());
+
+    public static void main(String[] args) {
+        ORDER_LOG.setLevel(Level.WARNING);
+        System.out.printf("%d open orders of 2 lines, %d churned%n", OPEN_ORDERS, CHURNED_ORDERS);
+        System.out.printf("%-10s %10s %10s %8s %10s %12s %10s%n",
+                "store", "heap B/o", "off B/o", "GCs", "GC ms", "churn ns/o", "full GC ms");
+        run("objects", new ObjectOrders());
+        run("off-heap", new OffHeapOrders());
+    }
+
+    private static void run(String name, Orders orders) {
+        UUID[] open = new UUID[OPEN_ORDERS];
+        long heapBefore = usedHeap();
+        long directBefore = usedDirect();
+        for (int i = 0; i < OPEN_ORDERS; i++) {
+            open[i] = orders.place(i);
+        }
+        long heapBytes = usedHeap() - heapBefore;
+        long directBytes = usedDirect() - directBefore;
+
+        long collections = collections();
+        long collectionMillis = collectionMillis();
+        long start = System.nanoTime();
+        for (int i = 0; i < CHURNED_ORDERS; i++) {
+            int oldest = i % OPEN_ORDERS;
+            orders.cancel(open[oldest]);
+            open[oldest] = orders.place(i);
+        }
+        long churnNanos = System.nanoTime() - start;
+        collections = collections() - collections;
+        collectionMillis = collectionMillis() - collectionMillis;
+
+        start = System.nanoTime();
+        System.gc();
+        long fullCollectionNanos = System.nanoTime() - start;
+
+        System.out.printf("%-10s %10d %10d %8d %10d %12d %10.1f%n", name,
+                heapBytes / OPEN_ORDERS, directBytes / OPEN_ORDERS, collections, collectionMillis,
+                churnNanos / CHURNED_ORDERS, fullCollectionNanos / 1e6);
+        Reference.reachabilityFence(open);
+        Reference.reachabilityFence(orders);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedDirect() {
+        long used = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                used += pool.getMemoryUsed();
+            }
+        }
+        return used;
+    }
+
+    private static long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += collector.getCollectionCount();
+        }
+        return count;
+    }
+
+    private static long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += collector.getCollectionTime();
+        }
+        return millis;
+    }
+
+    private interface Orders {
+        UUID place(int i);
+
+        void cancel(UUID orderId);
+    }
+
+    private static final class ObjectOrders implements Orders {
+        private final OrderManager orderManager = new OrderManager(new PancakeService());
+
+        @Override
+        public UUID place(int i) {
+            return orderManager.placeOrder(new OrderRequest(1 + i % 20, 1 + i % 50, List.of(
+                    new PancakeRequest(DARK_CHOCOLATE, 2),
+                    new PancakeRequest(HAZELNUTS, 1))));
+        }
+
+        @Override
+        public void cancel(UUID orderId) {
+            orderManager.cancelOrder(orderId);
+        }
+    }
+
+    private static final class OffHeapOrders implements Orders {
+        private static final Recipe DARK_CHOCOLATE_RECIPE = Recipe.PLAIN.with(Ingredient.DARK_CHOCOLATE);
+        private static final Recipe HAZELNUTS_RECIPE =
+                Recipe.PLAIN.with(Ingredient.HAZELNUTS).with(Ingredient.WHIPPED_CREAM);
+
+        private final OffHeapOrderStore store = new OffHeapOrderStore();
+
+        @Override
+        public UUID place(int i) {
+            UUID orderId = IdGenerator.TIME_ORDERED.next();
+            store.create(orderId, 1 + i % 20, 1 + i % 50);
+            store.addPancakes(orderId, DARK_CHOCOLATE_RECIPE, 2);
+            store.addPancakes(orderId, HAZELNUTS_RECIPE, 1);
+            return orderId;
+        }
+
+        @Override
+        public void cancel(UUID orderId) {
+            store.remove(orderId);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.pancakelab.benchmark;
+
+import org.pancakelab.service.AdmissionControl;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.OrderManagerConfig;
+import org.pancakelab.service.OrderRequest;
+import org.pancakelab.service.PancakeRequest;
+import org.pancakelab.service.PancakeService;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Orders arriving at twice the rate a single courier can deliver them, reporting how many are taken on and how long
+ * prepared orders then wait for delivery. Without admission control the backlog, and with it the wait, grows for as
+ * long as the overload lasts; with it, new orders are turned away once deliveries run late, and the orders taken on
+ * are delivered close to the target latency.
+ * <p>
+ * Not a JMH benchmark, since the interesting numbers are per order rather than per call; run it with
+ * {@code mvn -Pbenchmark verify -Dbenchmark.include=OverloadSimulation}.
+ */
+public class OverloadSimulation {
+    private static final Logger ORDER_LOG = Logger.getLogger(OrderLog.class.getName());
+    private static final int ORDERS = 6000;
+    private static final int ORDERS_PER_SECOND = 2000;
+    private static final long DELIVERY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final Duration TARGET_LATENCY = Duration.ofMillis(20);
+    private static final List<PancakeRequest> PANCAKES = List.of(new PancakeRequest(List.of("dark chocolate"), 2));
+
+    public static void main(String[] args) throws InterruptedException {
+        ORDER_LOG.setLevel(Level.WARNING);
+        System.out.printf("%d orders at %d/s, one delivery every %d ms, target latency %d ms%n",
+                ORDERS, ORDERS_PER_SECOND, TimeUnit.NANOSECONDS.toMillis(DELIVERY_NANOS),
+                TARGET_LATENCY.toMillis());
+        System.out.printf("%-10s %10s %10s %10s %10s %10s%n", "admission", "admitted", "shed", "p50 ms", "p99 ms",
+                "limit");
+        run("none", AdmissionControl.UNLIMITED);
+        run("adaptive", new AdmissionControl(ORDERS, ORDERS, TARGET_LATENCY));
+    }
+
+    private static void run(String name, AdmissionControl admission) throws InterruptedException {
+        OrderManager orderManager = new OrderManager(new PancakeService(),
+                OrderManagerConfig.defaults().withAdmission(admission));
+        Map<UUID, Long> preparedAt = new ConcurrentHashMap<>();
+        long[] latencies = new long[ORDERS];
+        AtomicInteger delivered = new AtomicInteger();
+        Thread courier = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<UUID> next = orderManager.listPreparedOrders(null, 1);
+                if (next.isEmpty()) {
+                    LockSupport.parkNanos(DELIVERY_NANOS / 10);
+                    continue;
+                }
+                UUID orderId = next.get(0);
+                long deliveredAt = System.nanoTime() + DELIVERY_NANOS;
+                while (System.nanoTime() < deliveredAt) {
+                    LockSupport.parkNanos(deliveredAt - System.nanoTime());
+                }
+                orderManager.deliverOrder(orderId);
+                latencies[delivered.get()] = System.nanoTime() - preparedAt.remove(orderId);
+                delivered.incrementAndGet();
+            }
+        }, "courier");
+        courier.start();
+
+        int admitted = 0;
+        int shed = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ORDERS; i++) {
+            LockSupport.parkNanos(start + i * TimeUnit.SECONDS.toNanos(1) / ORDERS_PER_SECOND - System.nanoTime());
+            UUID orderId;
+            try {
+                orderId = orderManager.placeOrder(new OrderRequest(1 + i % 20, 1, PANCAKES));
+            } catch (AdmissionControl.OverloadedException e) {
+                shed++;
+                continue;
+            }
+            // the kitchen keeps up, the courier does not
+            orderManager.completeOrder(orderId);
+            preparedAt.put(orderId, System.nanoTime());
+            orderManager.prepareOrder(orderId);
+            admitted++;
+        }
+        while (delivered.get() < admitted) {
+            LockSupport.parkNanos(DELIVERY_NANOS);
+        }
+        courier.interrupt();
+        courier.join();
+
+        long[] sorted = Arrays.copyOf(latencies, admitted);
+        Arrays.sort(sorted);
+        System.out.printf("%-10s %10d %10d %10.2f %10.2f %10s%n", name, admitted, shed,
+                sorted[admitted / 2] / 1e6, sorted[admitted * 99 / 100] / 1e6,
+                admission == AdmissionControl.UNLIMITED ? "-" : admission.limit());
+    }
+}
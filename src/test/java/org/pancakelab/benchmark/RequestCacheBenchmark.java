@@ -0,0 +1,60 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.service.RequestCache;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running requests through a full {@link RequestCache}: new request ids, each evicting the oldest entry of its
+ * segment, and retries of ids that are still cached. Thread counts are set by {@link BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestCacheBenchmark {
+    private static final int CAPACITY = 100_000;
+
+    private RequestCache cache;
+    private UUID[] cached;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cache = new RequestCache(CAPACITY, Duration.ofHours(1));
+        // fewer ids than the capacity, so that they stay cached while new ids push out the rest
+        cached = new UUID[1024];
+        for (int i = 0; i < cached.length; i++) {
+            cached[i] = new UUID(i, i);
+        }
+        for (int i = 0; i < CAPACITY; i++) {
+            cache.execute(new UUID(-1, i), () -> null);
+        }
+    }
+
+    @Benchmark
+    public Object newRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return cache.execute(new UUID(random.nextLong(), random.nextLong()), () -> Boolean.TRUE);
+    }
+
+    @Benchmark
+    public Object retriedRequest() {
+        return cache.execute(cached[ThreadLocalRandom.current().nextInt(cached.length)], () -> Boolean.TRUE);
+    }
+}
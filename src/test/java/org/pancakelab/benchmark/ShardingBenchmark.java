@@ -0,0 +1,72 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderRequest;
+import org.pancakelab.service.PancakeRequest;
+import org.pancakelab.service.ShardedOrderManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Order lifecycle throughput of a {@link ShardedOrderManager} as the shard count grows, from many threads at once.
+ * Each operation places an order and takes it through completion, preparation and delivery, so the shards stay
+ * small; what grows with the shard count is the number of registries, status indexes and feeds the threads spread
+ * over. A second benchmark pages through the prepared orders, which has to gather from every shard.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class ShardingBenchmark {
+    private static final OrderRequest REQUEST = new OrderRequest(3, 7, List.of(
+            new PancakeRequest(List.of("dark chocolate"), 2),
+            new PancakeRequest(List.of("milk chocolate", "hazelnuts"), 1)));
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    private ShardedOrderManager orderManager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Logger.getLogger(OrderLog.class.getName()).setLevel(java.util.logging.Level.WARNING);
+        orderManager = new ShardedOrderManager(shards);
+        for (int i = 0; i < 10_000; i++) {
+            UUID orderId = orderManager.placeOrder(REQUEST);
+            orderManager.completeOrder(orderId);
+            orderManager.prepareOrder(orderId);
+        }
+    }
+
+    @Benchmark
+    public Object[] lifecycle() {
+        UUID orderId = orderManager.placeOrder(REQUEST);
+        orderManager.completeOrder(orderId);
+        orderManager.prepareOrder(orderId);
+        return orderManager.deliverOrder(orderId);
+    }
+
+    @Benchmark
+    public List<UUID> preparedPage() {
+        return orderManager.listPreparedOrders(null, 100);
+    }
+}
@@ -0,0 +1,94 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.journal.FsyncPolicy;
+import org.pancakelab.journal.JournalConfig;
+import org.pancakelab.journal.MappedOrderJournal;
+import org.pancakelab.journal.SnapshotStore;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.OrderManagerConfig;
+import org.pancakelab.service.PancakeService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Time to rebuild an {@link OrderManager} holding {@value #OPEN_ORDERS} open orders after {@code deliveredOrders}
+ * orders went through their whole lifecycle (five journal records each), either by replaying the full journal or
+ * from a snapshot taken at the end. With a snapshot the time should stay flat as the history grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StartupBenchmark {
+    private static final int OPEN_ORDERS = 50_000;
+
+    @Param({"100000", "800000"})
+    public int deliveredOrders;
+
+    @Param({"journal", "snapshot"})
+    public String startFrom;
+
+    private Path directory;
+    private MappedOrderJournal journal;
+    private SnapshotStore snapshots;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Logger.getLogger(OrderLog.class.getName()).setLevel(java.util.logging.Level.WARNING);
+        directory = Files.createTempDirectory("startup");
+        journal = new MappedOrderJournal(new JournalConfig(directory.resolve("journal"),
+                JournalConfig.DEFAULT_SEGMENT_SIZE, FsyncPolicy.NONE, Duration.ofSeconds(1)));
+        snapshots = "snapshot".equals(startFrom) ? new SnapshotStore(directory.resolve("snapshots")) : null;
+        PancakeService pancakeService = new PancakeService();
+        OrderManager orderManager = new OrderManager(pancakeService,
+                OrderManagerConfig.defaults().withJournal(journal).withSnapshots(snapshots));
+        for (int i = 0; i < deliveredOrders + OPEN_ORDERS; i++) {
+            UUID orderId = orderManager.createOrder(1 + i % 50, 1 + i % 20);
+            pancakeService.startNewPancake(orderId);
+            pancakeService.addIngredientToPancake(orderId, Kitchen.DARK_CHOCOLATE);
+            orderManager.addPancake(orderId, 2);
+            if (i < deliveredOrders) {
+                orderManager.completeOrder(orderId);
+                orderManager.prepareOrder(orderId);
+                orderManager.deliverOrder(orderId);
+            }
+        }
+        if (snapshots != null) {
+            orderManager.snapshot();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        Journals.delete(directory);
+    }
+
+    @Benchmark
+    public OrderManager start() {
+        return new OrderManager(new PancakeService(),
+                OrderManagerConfig.defaults().withJournal(journal).withSnapshots(snapshots));
+    }
+}
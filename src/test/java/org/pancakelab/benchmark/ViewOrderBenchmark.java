@@ -0,0 +1,68 @@
+package org.pancakelab.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pancakelab.service.OrderLog;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.PancakeService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Viewing an order holding {@code pancakes} pancakes spread over three recipes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewOrderBenchmark {
+    private static final String[][] RECIPES = {
+            {"dark chocolate"}, {"milk chocolate"}, {"milk chocolate", "hazelnuts"}};
+
+    @Param({"30", "3000", "300000"})
+    public int pancakes;
+
+    private OrderManager orderManager;
+    private UUID orderId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Logger.getLogger(OrderLog.class.getName()).setLevel(java.util.logging.Level.WARNING);
+        PancakeService pancakeService = new PancakeService();
+        orderManager = new OrderManager(pancakeService);
+        orderId = orderManager.createOrder(1, 1);
+        for (String[] recipe : RECIPES) {
+            pancakeService.startNewPancake(orderId);
+            for (String ingredient : recipe) {
+                pancakeService.addIngredientToPancake(orderId, ingredient);
+            }
+            orderManager.addPancake(orderId, pancakes / RECIPES.length);
+        }
+    }
+
+    @Benchmark
+    public List<String> viewOrder() {
+        return orderManager.viewOrder(orderId);
+    }
+
+    @Benchmark
+    public Map<String, Integer> viewOrderSummary() {
+        return orderManager.viewOrderSummary(orderId);
+    }
+}
@@ -0,0 +1,138 @@
+package org.pancakelab.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.service.AdmissionControl;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.OrderManagerConfig;
+import org.pancakelab.service.PancakeService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OrderHttpServerTest {
+    private static final String DARK_CHOCOLATE_PANCAKE_DESCRIPTION = "Delicious pancake with dark chocolate!";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private OrderHttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        PancakeService pancakeService = new PancakeService();
+        server = new OrderHttpServer(new OrderManager(pancakeService), pancakeService,
+                new HttpConfig(new InetSocketAddress("localhost", 0), 2, 8));
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void orderGoesThroughItsWholeLifecycle() throws Exception {
+        HttpResponse<String> created = send("POST", "/orders?building=3&room=7");
+        assertEquals(201, created.statusCode());
+        String orderId = created.body();
+
+        assertEquals(204, send("POST", "/orders/" + orderId + "/pancake").statusCode());
+        assertEquals(204, send("POST", "/orders/" + orderId + "/pancake/ingredients?name=dark+chocolate").statusCode());
+        assertEquals(204, send("POST", "/orders/" + orderId + "/pancakes?count=3").statusCode());
+        assertEquals(204, send("DELETE", "/orders/" + orderId + "/pancakes?description="
+                + URLEncoder.encode(DARK_CHOCOLATE_PANCAKE_DESCRIPTION, StandardCharsets.UTF_8) + "&count=1")
+                .statusCode());
+        assertEquals("2\t" + DARK_CHOCOLATE_PANCAKE_DESCRIPTION + "\n", send("GET", "/orders/" + orderId).body());
+
+        assertEquals(204, send("POST", "/orders/" + orderId + "/complete").statusCode());
+        assertEquals(orderId + "\n", send("GET", "/orders?status=COMPLETED").body());
+        assertEquals(204, send("POST", "/orders/" + orderId + "/prepare").statusCode());
+        assertEquals(orderId + "\n", send("GET", "/orders?status=PREPARED&limit=10").body());
+
+        HttpResponse<String> delivered = send("POST", "/orders/" + orderId + "/deliver");
+        assertEquals(200, delivered.statusCode());
+        assertEquals("3\t7\n2\t" + DARK_CHOCOLATE_PANCAKE_DESCRIPTION + "\n", delivered.body());
+        assertEquals(409, send("POST", "/orders/" + orderId + "/deliver").statusCode());
+    }
+
+    @Test
+    void failuresAreReportedWithStatusCodes() throws Exception {
+        String orderId = send("POST", "/orders?building=1&room=1").body();
+
+        assertEquals(404, send("POST", "/orders/" + UUID.randomUUID() + "/complete").statusCode());
+        assertEquals(400, send("POST", "/orders?building=0&room=1").statusCode());
+        assertEquals(400, send("POST", "/orders?building=1").statusCode());
+        assertEquals(400, send("POST", "/orders/not-an-id/complete").statusCode());
+        assertEquals(400, send("POST", "/orders/" + orderId + "/pancake/ingredients?name=mustard").statusCode());
+        assertEquals(409, send("POST", "/orders/" + orderId + "/pancake/ingredients?name=hazelnuts").statusCode());
+        assertEquals(409, send("POST", "/orders/" + orderId + "/prepare").statusCode());
+        String removeDarkChocolate = "/orders/" + orderId + "/pancakes?description="
+                + URLEncoder.encode(DARK_CHOCOLATE_PANCAKE_DESCRIPTION, StandardCharsets.UTF_8) + "&count=";
+        assertEquals(400, send("DELETE", removeDarkChocolate + "0").statusCode());
+        assertEquals(400, send("DELETE", removeDarkChocolate + "-3").statusCode());
+        assertEquals(404, send("POST", "/orders/" + orderId + "/bake").statusCode());
+        assertEquals(405, send("PUT", "/orders").statusCode());
+    }
+
+    @Test
+    void retriedRequestsGetTheFirstResponse() throws Exception {
+        String key = UUID.randomUUID().toString();
+        HttpResponse<String> created = send("POST", "/orders?building=1&room=1", key);
+        assertEquals(201, created.statusCode());
+        assertEquals(created.body(), send("POST", "/orders?building=1&room=1", key).body());
+
+        String orderId = created.body();
+        String complete = UUID.randomUUID().toString();
+        assertEquals(204, send("POST", "/orders/" + orderId + "/complete", complete).statusCode());
+        assertEquals(204, send("POST", "/orders/" + orderId + "/complete", complete).statusCode());
+        assertEquals(409, send("POST", "/orders/" + orderId + "/complete").statusCode());
+        assertEquals(400, send("POST", "/orders/" + orderId + "/cancel", "not-a-key").statusCode());
+    }
+
+    @Test
+    void newOrdersAreTurnedAwayWhenOverloaded() throws Exception {
+        server.close();
+        PancakeService pancakeService = new PancakeService();
+        OrderManager orderManager = new OrderManager(pancakeService,
+                OrderManagerConfig.defaults().withAdmission(new AdmissionControl(1, 1)));
+        server = new OrderHttpServer(orderManager, pancakeService,
+                new HttpConfig(new InetSocketAddress("localhost", 0), 2, 8));
+        server.start();
+
+        String orderId = send("POST", "/orders?building=1&room=1").body();
+        HttpResponse<String> shed = send("POST", "/orders?building=2&room=1");
+        assertEquals(503, shed.statusCode());
+        assertEquals("1", shed.headers().firstValue("Retry-After").orElseThrow());
+        assertEquals(404, send("POST", "/orders/" + UUID.randomUUID() + "/pancake").statusCode());
+        assertEquals(204, send("POST", "/orders/" + orderId + "/pancake").statusCode());
+        assertEquals(503, send("POST", "/orders/" + orderId + "/pancake").statusCode());
+        pancakeService.discardPancake(UUID.fromString(orderId));
+        assertEquals(204, send("POST", "/orders/" + orderId + "/complete").statusCode());
+        assertEquals(204, send("POST", "/orders/" + orderId + "/prepare").statusCode());
+        assertEquals(200, send("POST", "/orders/" + orderId + "/deliver").statusCode());
+        assertEquals(201, send("POST", "/orders?building=2&room=1").statusCode());
+    }
+
+    private HttpResponse<String> send(String method, String path) throws IOException, InterruptedException {
+        return send(method, path, null);
+    }
+
+    private HttpResponse<String> send(String method, String path, String idempotencyKey)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path))
+                .method(method, HttpRequest.BodyPublishers.noBody());
+        if (idempotencyKey != null) {
+            request.header("Idempotency-Key", idempotencyKey);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,192 @@
+package org.pancakelab.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.OrderManagerConfig;
+import org.pancakelab.service.PancakeService;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsSurviveReopeningAcrossSegments() {
+        List<JournalRecord> appended = new ArrayList<>();
+        try (MappedOrderJournal journal = open(FsyncPolicy.GROUP_COMMIT)) {
+            for (int i = 0; i < 500; i++) {
+                UUID orderId = UUID.randomUUID();
+                appended.add(JournalRecord.create(orderId, i + 1, 7));
+                appended.add(JournalRecord.addPancakes(orderId, i, 3));
+                appended.add(JournalRecord.of(JournalRecord.Type.COMPLETE, orderId));
+            }
+            appended.forEach(record -> journal.sync(journal.append(record)));
+        }
+
+        try (MappedOrderJournal journal = open(FsyncPolicy.NONE)) {
+            List<JournalRecord> replayed = new ArrayList<>();
+            journal.replay(0, (lsn, record) -> replayed.add(record));
+
+            assertEquals(appended, replayed);
+        }
+        assertTrue(fileCount(directory) > 1);
+    }
+
+    @Test
+    void tornTailIsDiscardedAndOverwritten() throws IOException {
+        UUID first = UUID.randomUUID();
+        long secondLsn;
+        try (MappedOrderJournal journal = open(FsyncPolicy.NONE)) {
+            journal.append(JournalRecord.create(first, 1, 1));
+            secondLsn = journal.append(JournalRecord.create(UUID.randomUUID(), 2, 2));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(onlySegment().toFile(), "rw")) {
+            file.seek(secondLsn + 10);
+            file.write(0x5A);
+        }
+
+        UUID third = UUID.randomUUID();
+        try (MappedOrderJournal journal = open(FsyncPolicy.NONE)) {
+            assertEquals(secondLsn, journal.endLsn());
+            journal.append(JournalRecord.create(third, 3, 3));
+        }
+
+        try (MappedOrderJournal journal = open(FsyncPolicy.NONE)) {
+            List<UUID> replayed = new ArrayList<>();
+            journal.replay(0, (lsn, record) -> replayed.add(record.orderId()));
+            assertEquals(List.of(first, third), replayed);
+        }
+    }
+
+    @Test
+    void orderManagerIsRebuiltFromJournal() {
+        UUID prepared;
+        UUID created;
+        try (MappedOrderJournal journal = open(FsyncPolicy.INTERVAL)) {
+            PancakeService pancakeService = new PancakeService();
+            OrderManager orderManager = new OrderManager(pancakeService,
+                    OrderManagerConfig.defaults().withJournal(journal));
+            prepared = orderManager.createOrder(1, 2);
+            pancakeService.startNewPancake(prepared);
+            pancakeService.addIngredientToPancake(prepared, "hazelnuts");
+            orderManager.addPancake(prepared, 4);
+            orderManager.removePancakes("Delicious pancake with hazelnuts!", prepared, 1);
+            orderManager.completeOrder(prepared);
+            orderManager.prepareOrder(prepared);
+
+            created = orderManager.createOrder(3, 4);
+            UUID cancelled = orderManager.createOrder(5, 6);
+            orderManager.cancelOrder(cancelled);
+        }
+
+        try (MappedOrderJournal journal = open(FsyncPolicy.INTERVAL)) {
+            OrderManager orderManager = new OrderManager(new PancakeService(),
+                    OrderManagerConfig.defaults().withJournal(journal));
+
+            assertEquals(Set.of(prepared), orderManager.listPreparedOrders());
+            assertEquals(Map.of("Delicious pancake with hazelnuts!", 3), orderManager.viewOrderSummary(prepared));
+            orderManager.completeOrder(created);
+            assertEquals(Set.of(created), orderManager.listCompletedOrders());
+        }
+    }
+
+    @Test
+    void snapshotPlusJournalTailRestoresStateAndTruncatesHistory() throws Exception {
+        Path journalDirectory = directory.resolve("journal");
+        SnapshotStore snapshots = new SnapshotStore(directory.resolve("snapshots"));
+        List<UUID> orderIds = new ArrayList<>();
+        Map<UUID, Map<String, Integer>> expectedPancakes = new HashMap<>();
+        Set<UUID> expectedCompleted;
+        Set<UUID> expectedPrepared;
+        try (MappedOrderJournal journal = open(journalDirectory, FsyncPolicy.NONE)) {
+            PancakeService pancakeService = new PancakeService();
+            OrderManager orderManager = new OrderManager(pancakeService,
+                    OrderManagerConfig.defaults().withJournal(journal).withSnapshots(snapshots));
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < 3_000; i++) {
+                    UUID orderId = orderManager.createOrder(1 + i % 9, 1 + i % 5);
+                    synchronized (orderIds) {
+                        orderIds.add(orderId);
+                    }
+                    pancakeService.startNewPancake(orderId);
+                    pancakeService.addIngredientToPancake(orderId, "dark chocolate");
+                    orderManager.addPancake(orderId, 1 + i % 3);
+                    switch (i % 4) {
+                        case 0 -> orderManager.completeOrder(orderId);
+                        case 1 -> {
+                            orderManager.completeOrder(orderId);
+                            orderManager.prepareOrder(orderId);
+                        }
+                        case 2 -> {
+                            orderManager.completeOrder(orderId);
+                            orderManager.prepareOrder(orderId);
+                            orderManager.deliverOrder(orderId);
+                        }
+                        default -> orderManager.removePancakes("Delicious pancake with dark chocolate!", orderId, 1);
+                    }
+                }
+            });
+            writer.start();
+            while (writer.isAlive()) {
+                orderManager.snapshot();
+            }
+            writer.join();
+            orderManager.snapshot();
+            orderManager.completeOrder(orderIds.get(3));
+
+            expectedCompleted = orderManager.listCompletedOrders();
+            expectedPrepared = orderManager.listPreparedOrders();
+            orderIds.forEach(id -> expectedPancakes.put(id, orderManager.viewOrderSummary(id)));
+        }
+        assertTrue(fileCount(journalDirectory) < 10);
+
+        try (MappedOrderJournal journal = open(journalDirectory, FsyncPolicy.NONE)) {
+            OrderManager orderManager = new OrderManager(new PancakeService(),
+                    OrderManagerConfig.defaults().withJournal(journal).withSnapshots(snapshots));
+
+            assertEquals(expectedCompleted, orderManager.listCompletedOrders());
+            assertEquals(expectedPrepared, orderManager.listPreparedOrders());
+            orderIds.forEach(id -> assertEquals(expectedPancakes.get(id), orderManager.viewOrderSummary(id)));
+        }
+    }
+
+    private MappedOrderJournal open(FsyncPolicy fsyncPolicy) {
+        return open(directory, fsyncPolicy);
+    }
+
+    private MappedOrderJournal open(Path directory, FsyncPolicy fsyncPolicy) {
+        return new MappedOrderJournal(new JournalConfig(directory, JournalConfig.MIN_SEGMENT_SIZE, fsyncPolicy,
+                Duration.ofMillis(5)));
+    }
+
+    private static long fileCount(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.findFirst().orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.pancakelab.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.OrderStatus;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.PancakeService;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderMetricsTest {
+    private final PancakeService pancakeService = new PancakeService();
+    private final OrderManager orderManager = new OrderManager(pancakeService);
+    private final OrderMetrics metrics = orderManager.metrics();
+
+    @AfterEach
+    void tearDown() {
+        metrics.close();
+    }
+
+    @Test
+    void histogramReportsPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000_000, histogram.max());
+        assertWithin(50_000_000, histogram.percentile(50));
+        assertWithin(99_000_000, histogram.percentile(99));
+        assertWithin(99_900_000, histogram.percentile(99.9));
+        assertEquals(100_000_000, histogram.percentile(100));
+        assertWithin(50_000_500, (long) histogram.mean());
+    }
+
+    @Test
+    void histogramBucketsCoverEveryValueOnce() {
+        long previousHighest = -1;
+        for (int index = 0; index <= LatencyHistogram.indexOf(Long.MAX_VALUE); index++) {
+            long highest = LatencyHistogram.highestValueIn(index);
+            assertEquals(index, LatencyHistogram.indexOf(previousHighest + 1));
+            assertEquals(index, LatencyHistogram.indexOf(highest));
+            previousHighest = highest;
+        }
+        assertEquals(Long.MAX_VALUE, previousHighest);
+    }
+
+    @Test
+    void histogramCountsConcurrentRecordings() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(200_000, histogram.count());
+        assertEquals(49_999, histogram.max());
+    }
+
+    @Test
+    void nothingIsRecordedWhileDisabled() {
+        UUID orderId = orderManager.createOrder(1, 1);
+        orderManager.completeOrder(orderId);
+
+        assertFalse(metrics.isEnabled());
+        assertEquals(0, metrics.count(Operation.CREATE_ORDER));
+        assertEquals(0, metrics.age(OrderStatus.COMPLETED).count());
+    }
+
+    @Test
+    void operationsAndOrderAgesAreRecordedWhileEnabled() {
+        metrics.setEnabled(true);
+        UUID delivered = orderManager.createOrder(1, 1);
+        pancakeService.startNewPancake(delivered);
+        pancakeService.addIngredientToPancake(delivered, "dark chocolate");
+        orderManager.addPancake(delivered, 2);
+        orderManager.completeOrder(delivered);
+        orderManager.prepareOrder(delivered);
+        orderManager.deliverOrder(delivered);
+        UUID waiting = orderManager.createOrder(1, 2);
+        orderManager.completeOrder(waiting);
+        orderManager.createOrder(1, 3);
+        pancakeService.startNewPancake(waiting);
+
+        assertEquals(3, metrics.count(Operation.CREATE_ORDER));
+        assertEquals(1, metrics.count(Operation.ADD_PANCAKE));
+        assertEquals(2, metrics.count(Operation.COMPLETE_ORDER));
+        assertEquals(1, metrics.count(Operation.DELIVER_ORDER));
+        assertEquals(2, metrics.latency(Operation.COMPLETE_ORDER).count());
+        assertEquals(2, metrics.age(OrderStatus.COMPLETED).count());
+        assertEquals(1, metrics.age(OrderStatus.DELIVERED).count());
+        assertEquals(Map.ofEntries(Map.entry("openOrders", 2L), Map.entry("pancakesInProgress", 1L),
+                Map.entry("orders.CREATED", 1L), Map.entry("orders.PREPARED", 0L), Map.entry("orders.COMPLETED", 1L),
+                Map.entry("evictedOrders", 0L), Map.entry("evictedPancakes", 0L), Map.entry("requests.hits", 0L),
+                Map.entry("requests.misses", 0L), Map.entry("requests.evictions", 0L),
+                Map.entry("requests.bytes", 0L), Map.entry("admission.limit", (long) Integer.MAX_VALUE),
+                Map.entry("admission.open", 0L), Map.entry("admission.shed", 0L)), metrics.getGauges());
+    }
+
+    @Test
+    void metricsAreReadableThroughJmxAndAsText() throws Exception {
+        metrics.setEnabled(true);
+        orderManager.createOrder(1, 1);
+        metrics.registerMBeans("test");
+        List<String> dumps = new CopyOnWriteArrayList<>();
+        metrics.startDump(Duration.ofMillis(10), dumps::add);
+
+        ObjectName manager = ObjectName.getInstance("org.pancakelab:type=OrderMetrics,name=\"test\"");
+        ObjectName createOrder = ObjectName.getInstance(
+                "org.pancakelab:type=OrderMetrics,name=\"test\",operation=createOrder");
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(createOrder, "Count"));
+        assertEquals(Boolean.TRUE, ManagementFactory.getPlatformMBeanServer().getAttribute(manager, "Enabled"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (dumps.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(dumps.get(0).lines().anyMatch(line -> line.matches("createOrder +1 .*")));
+        assertTrue(dumps.get(0).lines().anyMatch(line -> line.matches("openOrders +1")));
+
+        metrics.close();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(createOrder));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 32, "Expected about " + expected + " but got " + actual);
+    }
+}
@@ -0,0 +1,110 @@
+package org.pancakelab.model;
+
+import org.junit.jupiter.api.Test;
+import org.pancakelab.service.OrderManager;
+import org.pancakelab.service.OrderManagerConfig;
+import org.pancakelab.service.PancakeService;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IdGeneratorTest {
+
+    @Test
+    void idsAreVersion7WithTheCurrentTime() {
+        long before = System.currentTimeMillis();
+        UUID id = new TimeOrderedIdGenerator().next();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        long millis = id.getMostSignificantBits() >>> 16;
+        assertTrue(millis >= before && millis <= after, "Timestamp " + millis + " outside " + before + ".." + after);
+    }
+
+    @Test
+    void idsOfOneThreadIncreaseEvenPastTheSequenceOfAMillisecond() {
+        IdGenerator generator = new TimeOrderedIdGenerator();
+        UUID previous = generator.next();
+        for (int i = 0; i < 100_000; i++) {
+            UUID next = generator.next();
+            assertTrue(next.compareTo(previous) > 0, next + " is not after " + previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        IdGenerator generator = new TimeOrderedIdGenerator();
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> duplicates = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            duplicates.add(executor.submit(() -> {
+                int duplicatesSeen = 0;
+                for (int i = 0; i < 50_000; i++) {
+                    if (!ids.add(generator.next())) {
+                        duplicatesSeen++;
+                    }
+                }
+                return duplicatesSeen;
+            }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        for (Future<Integer> threadDuplicates : duplicates) {
+            assertEquals(0, threadDuplicates.get());
+        }
+        assertEquals(400_000, ids.size());
+    }
+
+    @Test
+    void consecutiveIdsShareNoTail() {
+        IdGenerator generator = new TimeOrderedIdGenerator();
+        Set<Long> tails = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            tails.add(generator.next().getLeastSignificantBits());
+        }
+
+        // a tail shared with an earlier id would let a client guess the next ones from it
+        assertEquals(1000, tails.size());
+    }
+
+    @Test
+    void threadsGetSlotsOfTheirOwn() throws Exception {
+        IdGenerator generator = new TimeOrderedIdGenerator();
+        long first = slot(generator.next());
+        assertEquals(first, slot(generator.next()));
+
+        FutureTask<Long> other = new FutureTask<>(() -> slot(generator.next()));
+        Thread thread = new Thread(other);
+        thread.start();
+        assertEquals(first + 1, other.get());
+    }
+
+    @Test
+    void managerUsesTheGivenGenerator() {
+        UUID fixed = new UUID(1, 2);
+        OrderManager orderManager = new OrderManager(new PancakeService(),
+                OrderManagerConfig.defaults().withIdGenerator(() -> fixed));
+
+        assertEquals(fixed, orderManager.createOrder(1, 1));
+    }
+
+    private static long slot(UUID id) {
+        return (id.getLeastSignificantBits() & (1L << 62) - 1) >>> 42;
+    }
+}
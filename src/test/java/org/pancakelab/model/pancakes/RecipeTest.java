@@ -0,0 +1,47 @@
+package org.pancakelab.model.pancakes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RecipeTest {
+
+    @Test
+    void sameIngredientsInAnyOrderShareOneRecipe() {
+        Recipe milkFirst = Recipe.PLAIN.with(Ingredient.MILK_CHOCOLATE).with(Ingredient.HAZELNUTS);
+        Recipe hazelnutsFirst = Recipe.PLAIN.with(Ingredient.HAZELNUTS).with(Ingredient.MILK_CHOCOLATE);
+
+        assertSame(milkFirst, hazelnutsFirst);
+        assertSame(milkFirst, Recipe.of(milkFirst.code()));
+        assertEquals("Delicious pancake with milk chocolate, hazelnuts!", hazelnutsFirst.description());
+    }
+
+    @Test
+    void repeatedIngredientIsCounted() {
+        Recipe recipe = Recipe.PLAIN.with(Ingredient.HAZELNUTS).with(Ingredient.HAZELNUTS);
+
+        assertEquals(2, recipe.count(Ingredient.HAZELNUTS));
+        assertEquals(List.of(Ingredient.HAZELNUTS, Ingredient.HAZELNUTS), recipe.ingredients());
+        assertEquals("Delicious pancake with hazelnuts, hazelnuts!", recipe.description());
+    }
+
+    @Test
+    void tooManyPortionsOfOneIngredientThrows() {
+        Recipe recipe = Recipe.PLAIN;
+        for (int i = 0; i < 255; i++) {
+            recipe = recipe.with(Ingredient.WHIPPED_CREAM);
+        }
+        Recipe full = recipe;
+
+        assertThrows(IllegalArgumentException.class, () -> full.with(Ingredient.WHIPPED_CREAM));
+    }
+
+    @Test
+    void codeWithUnknownIngredientBitsIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Recipe.of(-1L));
+    }
+}
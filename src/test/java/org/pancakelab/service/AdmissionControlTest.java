@@ -0,0 +1,243 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.Test;
+import org.pancakelab.journal.JournalRecord;
+import org.pancakelab.journal.OrderJournal;
+import org.pancakelab.model.Order;
+import org.pancakelab.model.OrderStatus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AdmissionControlTest {
+    // the clock starts after zero, which would mean an order was never stamped as prepared
+    private final AtomicLong clock = new AtomicLong(1);
+    private final PancakeService pancakeService = new PancakeService();
+
+    @Test
+    void newOrdersAreShedWhileAdmittedOnesKeepMoving() {
+        OrderManager orderManager = manager(new AdmissionControl(4, 3, Duration.ZERO, clock::get));
+        List<UUID> first = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            first.add(orderManager.createOrder(1, i + 1));
+        }
+        assertShed("Too many open orders", () -> orderManager.createOrder(2, 1));
+
+        pancakeService.startNewPancake(first.get(0));
+        pancakeService.addIngredientToPancake(first.get(0), "dark chocolate");
+        orderManager.addPancake(first.get(0), 2);
+        orderManager.completeOrder(first.get(0));
+        orderManager.prepareOrder(first.get(0));
+        assertNotNull(orderManager.deliverOrder(first.get(0)));
+        UUID second = orderManager.placeOrder(new OrderRequest(2, 1, List.of(
+                new PancakeRequest(List.of("milk chocolate"), 1))));
+
+        // two buildings now share the four open orders, and building 1 already has two of them
+        orderManager.cancelOrder(first.get(1));
+        assertShed("Building 1 has its share of open orders", () -> orderManager.createOrder(1, 9));
+        UUID third = orderManager.createOrder(2, 2);
+        assertShed("Too many open orders", () -> orderManager.createOrder(3, 1));
+
+        orderManager.cancelOrder(second);
+        orderManager.cancelOrder(third);
+        for (UUID orderId : List.of(first.get(2), first.get(3), orderManager.createOrder(3, 1))) {
+            pancakeService.startNewPancake(orderId);
+        }
+        assertShed("Too many pancakes in progress", () -> orderManager.createOrder(3, 2));
+
+        AdmissionControl admission = orderManager.admission();
+        assertEquals(3, admission.openOrders());
+        assertEquals(4, admission.limit());
+        assertEquals(4, admission.shedOrders());
+        assertEquals(4L, orderManager.metrics().getGauges().get("admission.shed"));
+    }
+
+    @Test
+    void limitBacksOffWhileDeliveriesAreLateAndRecoversOnceTheyAreNot() {
+        OrderManager orderManager = manager(new AdmissionControl(8, 100, Duration.ofSeconds(1), clock::get));
+
+        // only the first late delivery of a round counts, the others were prepared before the limit was cut
+        deliverRound(orderManager, 8, 2);
+        assertEquals(6, orderManager.admission().limit());
+        deliverRound(orderManager, 6, 2);
+        assertEquals(4, orderManager.admission().limit());
+        deliverRound(orderManager, 4, 0);
+        assertEquals(5, orderManager.admission().limit());
+
+        // cut from the four orders open rather than from the limit of five
+        deliverRound(orderManager, 4, 2);
+        assertEquals(3, orderManager.admission().limit());
+        for (int i = 0; i < 50; i++) {
+            deliverRound(orderManager, 1, 0);
+        }
+        assertEquals(8, orderManager.admission().limit());
+        assertEquals(0, orderManager.admission().openOrders());
+    }
+
+    @Test
+    void latencyIsMeasuredFromPreparingWhateverTheIdleClockSays() {
+        AdmissionControl admission = new AdmissionControl(8, 100, Duration.ofSeconds(1), clock::get);
+        Order order = new Order(1, 1);
+        admission.admit(order.getBuilding(), 0);
+        admission.record(OrderStatus.PREPARED, order);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        // idle eviction stamps changes on its own clock
+        order.setChangedNanos(System.nanoTime());
+
+        admission.record(OrderStatus.DELIVERED, order);
+
+        assertEquals(1, admission.limit());
+        assertEquals(0, admission.openOrders());
+    }
+
+    @Test
+    void pancakesAreOnlyStartedForKnownOrdersAndWithinTheLimit() {
+        OrderManager orderManager = manager(new AdmissionControl(10, 2, Duration.ZERO, clock::get));
+        UUID first = orderManager.createOrder(1, 1);
+        UUID second = orderManager.createOrder(2, 1);
+        UUID third = orderManager.createOrder(3, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> orderManager.startNewPancake(UUID.randomUUID()));
+        orderManager.startNewPancake(first);
+        orderManager.startNewPancake(second);
+        assertShed("Too many pancakes in progress", () -> orderManager.startNewPancake(third));
+        assertEquals(2, pancakeService.getPancakesInProgress());
+
+        pancakeService.addIngredientToPancake(first, "dark chocolate");
+        orderManager.addPancake(first, 1);
+        orderManager.startNewPancake(third);
+        assertEquals(0, orderManager.admission().shedOrders());
+    }
+
+    @Test
+    void aRetryOfAShedOrderIsTriedAgain() {
+        OrderManager orderManager = manager(new AdmissionControl(1, 10, Duration.ZERO, clock::get));
+        UUID open = orderManager.createOrder(1, 1);
+        UUID request = UUID.randomUUID();
+        assertThrows(AdmissionControl.OverloadedException.class,
+                () -> orderManager.once(request, () -> orderManager.createOrder(2, 1)));
+
+        orderManager.cancelOrder(open);
+        UUID created = orderManager.once(request, () -> orderManager.createOrder(2, 1));
+        assertEquals(created, orderManager.once(request, () -> orderManager.createOrder(2, 1)));
+        assertEquals(1, orderManager.admission().openOrders());
+    }
+
+    @Test
+    void anOrderTheJournalFailsOnGivesBackItsAdmission() {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        OrderManager orderManager = manager(new FailingJournal(failing), new AdmissionControl(1, 10, Duration.ZERO,
+                clock::get));
+        assertThrows(UncheckedIOException.class, () -> orderManager.createOrder(1, 1));
+        assertThrows(UncheckedIOException.class, () -> orderManager.placeOrder(new OrderRequest(1, 1, List.of(
+                new PancakeRequest(List.of("dark chocolate"), 2)))));
+        assertEquals(0, orderManager.admission().openOrders());
+        assertEquals(0L, orderManager.metrics().getGauges().get("openOrders"));
+
+        failing.set(false);
+        assertNotNull(orderManager.createOrder(1, 1));
+        assertEquals(1, orderManager.admission().openOrders());
+    }
+
+    @Test
+    void statusChangesTheJournalRejectsAreNotMade() {
+        AtomicBoolean failing = new AtomicBoolean();
+        OrderManager orderManager = manager(new FailingJournal(failing), new AdmissionControl(1, 10, Duration.ZERO,
+                clock::get));
+        UUID orderId = orderManager.createOrder(1, 1);
+        long nextSequence = orderManager.feed().nextSequence();
+
+        failing.set(true);
+        assertThrows(UncheckedIOException.class, () -> orderManager.completeOrder(orderId));
+        assertThrows(UncheckedIOException.class, () -> orderManager.cancelOrder(orderId));
+        assertThrows(UncheckedIOException.class, () -> orderManager.applyBatch(List.of(
+                new OrderCommand.AddPancakes(orderId, new PancakeRequest(List.of("dark chocolate"), 2)),
+                new OrderCommand.CompleteOrder(orderId))));
+        assertEquals(nextSequence, orderManager.feed().nextSequence());
+        assertEquals(Set.of(), orderManager.listCompletedOrders());
+        assertEquals(Map.of(), orderManager.viewOrderSummary(orderId));
+        assertEquals(1, orderManager.admission().openOrders());
+
+        failing.set(false);
+        orderManager.completeOrder(orderId);
+        assertEquals(Set.of(orderId), orderManager.listCompletedOrders());
+        assertEquals(nextSequence + 1, orderManager.feed().nextSequence());
+    }
+
+    private OrderManager manager(AdmissionControl admission) {
+        return manager(OrderJournal.NONE, admission);
+    }
+
+    private OrderManager manager(OrderJournal journal, AdmissionControl admission) {
+        return new OrderManager(pancakeService,
+                OrderManagerConfig.defaults().withJournal(journal).withAdmission(admission));
+    }
+
+    /**
+     * Takes {@code orders} new orders all the way to delivery, with {@code waitSeconds} between preparing and
+     * delivering them.
+     */
+    private void deliverRound(OrderManager orderManager, int orders, int waitSeconds) {
+        List<UUID> prepared = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            UUID orderId = orderManager.createOrder(1 + i, 1);
+            orderManager.completeOrder(orderId);
+            orderManager.prepareOrder(orderId);
+            prepared.add(orderId);
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(waitSeconds));
+        for (UUID orderId : prepared) {
+            assertNotNull(orderManager.deliverOrder(orderId));
+        }
+    }
+
+    private record FailingJournal(AtomicBoolean failing) implements OrderJournal {
+
+        @Override
+        public long append(JournalRecord record) {
+            if (failing.get()) {
+                throw new UncheckedIOException(new IOException("Disk full"));
+            }
+            return 0;
+        }
+
+        @Override
+        public void sync(long lsn) {
+        }
+
+        @Override
+        public void replay(long fromLsn, RecordConsumer consumer) {
+        }
+
+        @Override
+        public long endLsn() {
+            return 0;
+        }
+
+        @Override
+        public void truncateBefore(long lsn) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static void assertShed(String reason, Runnable createOrder) {
+        assertEquals(reason, assertThrows(AdmissionControl.OverloadedException.class, createOrder::run)
+                .getMessage());
+    }
+}
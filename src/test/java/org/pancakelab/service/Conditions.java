@@ -0,0 +1,23 @@
+package org.pancakelab.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class Conditions {
+
+    private Conditions() {
+    }
+
+    /**
+     * Waits for work done on another thread until {@code condition} holds, failing after ten seconds.
+     */
+    static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the condition");
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pancakelab.service.Conditions.await;
+
+public class DeliveryPlannerTest {
+    private final OrderManager orderManager = new OrderManager(new PancakeService());
+    private final AtomicLong clock = new AtomicLong();
+    private DeliveryPlanner planner;
+
+    @AfterEach
+    void tearDown() {
+        if (planner != null) {
+            planner.close();
+        }
+    }
+
+    @Test
+    void ordersForOneBuildingAreDeliveredInOneRunSortedByRoom() {
+        planner = new DeliveryPlanner(orderManager, 3, Duration.ofMinutes(5), clock::get);
+        planner.start();
+        UUID room7 = preparedOrder(4, 7);
+        preparedOrder(5, 1);
+        UUID room2 = preparedOrder(4, 2);
+        await(() -> planner.waitingOrders() == 3);
+        assertNull(planner.nextRun());
+
+        UUID room5 = preparedOrder(4, 5);
+        await(() -> planner.waitingOrders() == 4);
+        DeliveryRun run = planner.nextRun();
+
+        assertEquals(4, run.building());
+        assertEquals(List.of(room2, room5, room7), run.stops().stream().map(DeliveryStop::orderId).toList());
+        assertEquals(List.of(2, 5, 7), run.stops().stream().map(DeliveryStop::room).toList());
+        assertEquals(List.of("Delicious pancake with dark chocolate!"), run.stops().get(0).pancakes());
+        assertEquals(1, orderManager.listPreparedOrders().size());
+        assertThrows(UnsupportedOperationException.class, () -> run.stops().clear());
+        assertNull(planner.nextRun());
+    }
+
+    @Test
+    void buildingIsDueOnceItsOldestOrderHasWaitedLongEnough() {
+        planner = new DeliveryPlanner(orderManager, 10, Duration.ofSeconds(30), clock::get);
+        UUID first = preparedOrder(1, 1);
+        planner.start();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(20));
+        UUID second = preparedOrder(1, 2);
+        preparedOrder(2, 1);
+        await(() -> planner.waitingOrders() == 3);
+        assertNull(planner.nextRun());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        DeliveryRun run = planner.nextRun();
+
+        assertEquals(1, run.building());
+        assertEquals(List.of(first, second), run.stops().stream().map(DeliveryStop::orderId).toList());
+        assertNull(planner.nextRun());
+        assertEquals(1, planner.waitingOrders());
+    }
+
+    @Test
+    void orderDeliveredDirectlyIsDroppedFromThePlan() {
+        planner = new DeliveryPlanner(orderManager, 10, Duration.ZERO, clock::get);
+        planner.start();
+        UUID orderId = preparedOrder(1, 1);
+        await(() -> planner.waitingOrders() == 1);
+
+        orderManager.deliverOrder(orderId);
+
+        await(() -> planner.waitingOrders() == 0);
+        assertNull(planner.nextRun());
+    }
+
+    @Test
+    void concurrentRunsDeliverEveryOrderExactlyOnce() throws InterruptedException {
+        Logger.getLogger(OrderLog.class.getName()).setLevel(Level.WARNING);
+        int orders = 2000;
+        planner = new DeliveryPlanner(orderManager, 8, Duration.ZERO, clock::get);
+        planner.start();
+        Set<UUID> delivered = ConcurrentHashMap.newKeySet();
+        List<UUID> duplicates = new ArrayList<>();
+        ExecutorService couriers = Executors.newFixedThreadPool(4);
+        AtomicLong deliveredCount = new AtomicLong();
+        for (int c = 0; c < 4; c++) {
+            couriers.execute(() -> {
+                while (deliveredCount.get() < orders) {
+                    DeliveryRun run = planner.nextRun();
+                    if (run == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    for (DeliveryStop stop : run.stops()) {
+                        if (!delivered.add(stop.orderId())) {
+                            synchronized (duplicates) {
+                                duplicates.add(stop.orderId());
+                            }
+                        }
+                        deliveredCount.incrementAndGet();
+                    }
+                }
+            });
+        }
+        Set<UUID> prepared = new HashSet<>();
+        for (int i = 0; i < orders; i++) {
+            prepared.add(preparedOrder(1 + i % 50, 1 + i % 7));
+        }
+        couriers.shutdown();
+        assertTrue(couriers.awaitTermination(30, TimeUnit.SECONDS));
+        Logger.getLogger(OrderLog.class.getName()).setLevel(null);
+
+        assertEquals(prepared, delivered);
+        assertTrue(duplicates.isEmpty());
+        assertEquals(0, planner.waitingOrders());
+    }
+
+    private UUID preparedOrder(int building, int room) {
+        UUID orderId = orderManager.placeOrder(new OrderRequest(building, room,
+                List.of(new PancakeRequest(List.of("dark chocolate"), 1))));
+        orderManager.completeOrder(orderId);
+        orderManager.prepareOrder(orderId);
+        return orderId;
+    }
+}
@@ -0,0 +1,135 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IdleEvictionTest {
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    void timerWheelExpiresEveryElementOnceAndNeverEarly() {
+        long start = 1_000_000;
+        TimerWheel<Long> wheel = new TimerWheel<>(10, 16, start);
+        Random random = new Random(7);
+        Set<Long> scheduled = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            long deadline = start + random.nextInt(2000);
+            if (scheduled.add(deadline)) {
+                wheel.schedule(deadline, deadline);
+            }
+        }
+
+        Set<Long> expired = new HashSet<>();
+        for (long now = start; now <= start + 2000; now += 1 + random.nextInt(300)) {
+            List<Long> due = new ArrayList<>();
+            wheel.expire(now, due);
+            for (long deadline : due) {
+                assertTrue(deadline <= now, "Expired " + deadline + " at " + now);
+                assertTrue(expired.add(deadline), "Expired twice: " + deadline);
+            }
+        }
+        List<Long> rest = new ArrayList<>();
+        wheel.expire(start + 2000, rest);
+        expired.addAll(rest);
+
+        assertEquals(scheduled, expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void idlePancakeIsEvicted() {
+        PancakeService pancakeService = new PancakeService(Duration.ofMinutes(1));
+        UUID orderId = UUID.randomUUID();
+        long started = System.nanoTime();
+        pancakeService.startNewPancake(orderId);
+
+        assertEquals(0, pancakeService.evictIdlePancakes(started + MINUTE / 2));
+        assertEquals(1, pancakeService.evictIdlePancakes(System.nanoTime() + MINUTE));
+
+        assertEquals(0, pancakeService.getPancakesInProgress());
+        assertEquals(1, pancakeService.getEvictedPancakes());
+        assertThrows(IllegalStateException.class,
+                () -> pancakeService.addIngredientToPancake(orderId, "dark chocolate"));
+    }
+
+    @Test
+    void pancakeStillBeingMadeIsKept() throws InterruptedException {
+        long timeout = TimeUnit.MILLISECONDS.toNanos(200);
+        PancakeService pancakeService = new PancakeService(Duration.ofNanos(timeout));
+        UUID orderId = UUID.randomUUID();
+        long started = System.nanoTime();
+        pancakeService.startNewPancake(orderId);
+        Thread.sleep(100);
+        long touched = System.nanoTime();
+        pancakeService.addIngredientToPancake(orderId, "dark chocolate");
+
+        assertEquals(0, pancakeService.evictIdlePancakes(started + timeout + 1));
+        assertEquals(1, pancakeService.getPancakesInProgress());
+        assertEquals(1, pancakeService.evictIdlePancakes(touched + 2 * timeout));
+    }
+
+    @Test
+    void idleCreatedOrderIsCancelledWithItsPancake() {
+        PancakeService pancakeService = new PancakeService();
+        OrderManager orderManager = new OrderManager(pancakeService,
+                OrderManagerConfig.defaults().withIdleTimeout(Duration.ofMinutes(1)));
+        UUID abandoned = orderManager.createOrder(1, 1);
+        UUID completed = orderManager.createOrder(1, 2);
+        orderManager.completeOrder(completed);
+        pancakeService.startNewPancake(abandoned);
+        long created = System.nanoTime();
+
+        assertEquals(0, orderManager.evictIdleOrders(created + MINUTE / 2));
+        assertEquals(1, orderManager.evictIdleOrders(System.nanoTime() + MINUTE));
+
+        assertTrue(orderManager.viewOrder(abandoned).isEmpty());
+        assertEquals(Set.of(completed), orderManager.listCompletedOrders());
+        assertEquals(0, pancakeService.getPancakesInProgress());
+        assertEquals(1, orderManager.getEvictedOrders());
+        assertEquals(1L, orderManager.metrics().getGauges().get("evictedOrders"));
+        assertThrows(IllegalArgumentException.class, () -> orderManager.completeOrder(abandoned));
+    }
+
+    @Test
+    void orderChangedSinceItWasScheduledIsKept() throws InterruptedException {
+        long timeout = TimeUnit.MILLISECONDS.toNanos(200);
+        PancakeService pancakeService = new PancakeService();
+        OrderManager orderManager = new OrderManager(pancakeService,
+                OrderManagerConfig.defaults().withIdleTimeout(Duration.ofNanos(timeout)));
+        long created = System.nanoTime();
+        UUID orderId = orderManager.createOrder(1, 1);
+        Thread.sleep(100);
+        long changed = System.nanoTime();
+        pancakeService.startNewPancake(orderId);
+        orderManager.addPancake(orderId, 1);
+
+        assertEquals(0, orderManager.evictIdleOrders(created + timeout + 1));
+        assertEquals(1, orderManager.viewOrder(orderId).size());
+        assertEquals(1, orderManager.evictIdleOrders(changed + 2 * timeout));
+    }
+
+    @Test
+    void cancellingAnOrderDiscardsItsPancakeInProgress() {
+        PancakeService pancakeService = new PancakeService();
+        OrderManager orderManager = new OrderManager(pancakeService);
+        UUID orderId = orderManager.createOrder(1, 1);
+        pancakeService.startNewPancake(orderId);
+
+        orderManager.cancelOrder(orderId);
+
+        assertEquals(0, pancakeService.getPancakesInProgress());
+        assertTrue(orderManager.viewOrder(orderId).isEmpty());
+    }
+}
@@ -0,0 +1,172 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.pancakes.Ingredient;
+import org.pancakelab.model.pancakes.Recipe;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InventoryTest {
+    private static final String HAZELNUT_PANCAKE_DESCRIPTION = "Delicious pancake with hazelnuts!";
+
+    @Test
+    void reservationTakesFromEveryStripeButNeverMoreThanInStock() {
+        Inventory inventory = new Inventory(4);
+        inventory.restock(Ingredient.HAZELNUTS, 10);
+
+        assertTrue(inventory.tryReserve(Ingredient.HAZELNUTS, 7));
+        assertFalse(inventory.tryReserve(Ingredient.HAZELNUTS, 4));
+        assertEquals(3, inventory.available(Ingredient.HAZELNUTS));
+        assertTrue(inventory.tryReserve(Ingredient.HAZELNUTS, 3));
+        assertEquals(0, inventory.available(Ingredient.HAZELNUTS));
+
+        inventory.release(Ingredient.HAZELNUTS, 5);
+        assertEquals(5, inventory.available(Ingredient.HAZELNUTS));
+    }
+
+    @Test
+    void recipeIsReservedWhollyOrNotAtAll() {
+        Inventory inventory = new Inventory(2);
+        inventory.restock(Ingredient.DARK_CHOCOLATE, 10);
+        inventory.restock(Ingredient.HAZELNUTS, 3);
+        Recipe recipe = Recipe.PLAIN.with(Ingredient.DARK_CHOCOLATE).with(Ingredient.HAZELNUTS);
+
+        IllegalStateException outOfStock = assertThrows(IllegalStateException.class,
+                () -> inventory.reserve(recipe, 4));
+
+        assertEquals("Not enough hazelnuts in stock", outOfStock.getMessage());
+        assertEquals(10, inventory.available(Ingredient.DARK_CHOCOLATE));
+        assertEquals(3, inventory.available(Ingredient.HAZELNUTS));
+    }
+
+    @Test
+    void stockNeverGoesNegativeUnderConcurrentReservationsAndRestocks() throws InterruptedException {
+        Inventory inventory = new Inventory(4);
+        long initial = 1000;
+        inventory.restock(Ingredient.HAZELNUTS, initial);
+        AtomicLong supplied = new AtomicLong(initial);
+        AtomicLong held = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        int threads = 8;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                ArrayDeque<Long> reserved = new ArrayDeque<>();
+                for (int i = 0; i < 100_000; i++) {
+                    if (random.nextInt(3) > 0) {
+                        long portions = 1 + random.nextInt(20);
+                        if (inventory.tryReserve(Ingredient.HAZELNUTS, portions)) {
+                            reserved.push(portions);
+                            if (held.addAndGet(portions) > supplied.get()) {
+                                failures.add("Held more than was ever supplied");
+                            }
+                        }
+                    } else if (!reserved.isEmpty()) {
+                        long portions = reserved.pop();
+                        held.addAndGet(-portions);
+                        inventory.release(Ingredient.HAZELNUTS, portions);
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        Thread restocker = new Thread(() -> {
+            while (running.get()) {
+                // counted as supplied before it can be reserved
+                supplied.addAndGet(7);
+                inventory.restock(Ingredient.HAZELNUTS, 7);
+                Thread.yield();
+            }
+        });
+        restocker.start();
+        while (done.getCount() > 0) {
+            long available = inventory.available(Ingredient.HAZELNUTS);
+            if (available < 0) {
+                failures.add("Negative stock: " + available);
+            }
+            Thread.yield();
+        }
+        running.set(false);
+        restocker.join();
+
+        assertTrue(failures.isEmpty(), failures::toString);
+        assertEquals(supplied.get(), inventory.available(Ingredient.HAZELNUTS) + held.get());
+    }
+
+    @Test
+    void pancakesHoldTheirIngredientsUntilRemovedOrCancelled() {
+        Inventory inventory = new Inventory();
+        inventory.restock(Ingredient.HAZELNUTS, 5);
+        PancakeService pancakeService = new PancakeService(Duration.ZERO, inventory);
+        OrderManager orderManager = new OrderManager(pancakeService);
+        UUID orderId = orderManager.createOrder(1, 1);
+        pancakeService.startNewPancake(orderId);
+        pancakeService.addIngredientToPancake(orderId, "hazelnuts");
+
+        assertThrows(IllegalStateException.class, () -> orderManager.addPancake(orderId, 6));
+        orderManager.addPancake(orderId, 4);
+        assertEquals(1, inventory.available(Ingredient.HAZELNUTS));
+
+        orderManager.removePancakes(HAZELNUT_PANCAKE_DESCRIPTION, orderId, 1);
+        assertEquals(2, inventory.available(Ingredient.HAZELNUTS));
+        assertThrows(IllegalArgumentException.class,
+                () -> orderManager.removePancakes(HAZELNUT_PANCAKE_DESCRIPTION, orderId, -3));
+        assertEquals(Map.of(HAZELNUT_PANCAKE_DESCRIPTION, 3), orderManager.viewOrderSummary(orderId));
+        assertThrows(IllegalStateException.class, () -> orderManager.placeOrder(new OrderRequest(1, 2, List.of(
+                new PancakeRequest(List.of("dark chocolate"), 1),
+                new PancakeRequest(List.of("hazelnuts"), 3)))));
+        assertEquals(2, inventory.available(Ingredient.HAZELNUTS));
+
+        orderManager.cancelOrder(orderId);
+        assertEquals(5, inventory.available(Ingredient.HAZELNUTS));
+    }
+
+    @Test
+    void ordersPlacedConcurrentlyNeverTakeMoreThanTheStock() throws InterruptedException {
+        Inventory inventory = new Inventory(4);
+        inventory.restock(Ingredient.HAZELNUTS, 500);
+        PancakeService pancakeService = new PancakeService(Duration.ZERO, inventory);
+        OrderManager orderManager = new OrderManager(pancakeService);
+        OrderRequest request = new OrderRequest(1, 1, List.of(new PancakeRequest(List.of("hazelnuts"), 3)));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    try {
+                        orderManager.completeOrder(orderManager.placeOrder(request));
+                    } catch (IllegalStateException outOfStock) {
+                        // expected once the hazelnuts run out
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int placed = orderManager.listCompletedOrders().size();
+        assertEquals(166, placed);
+        assertEquals(500 - 3 * placed, inventory.available(Ingredient.HAZELNUTS));
+        orderManager.listCompletedOrders().forEach(orderId ->
+                assertEquals(Map.of(HAZELNUT_PANCAKE_DESCRIPTION, 3), orderManager.viewOrderSummary(orderId)));
+    }
+}
@@ -0,0 +1,138 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.OrderStatus;
+import org.pancakelab.model.pancakes.Ingredient;
+import org.pancakelab.model.pancakes.Recipe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pancakelab.service.Conditions.await;
+
+public class KitchenSchedulerTest {
+    private static final Recipe DARK = Recipe.PLAIN.with(Ingredient.DARK_CHOCOLATE);
+    private static final Recipe MILK = Recipe.PLAIN.with(Ingredient.MILK_CHOCOLATE);
+
+    private final OrderManager orderManager = new OrderManager(new PancakeService());
+    private final List<CookBatch> cooked = Collections.synchronizedList(new ArrayList<>());
+    private KitchenScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    void identicalRecipesOfDifferentOrdersAreCookedTogether() {
+        UUID first = completedOrder(List.of("dark chocolate"), 2, List.of("milk chocolate"), 1);
+        UUID second = completedOrder(List.of("dark chocolate"), 3);
+        scheduler = new KitchenScheduler(orderManager, cooked::add, 8, 1);
+
+        scheduler.start();
+
+        await(() -> scheduler.preparedOrders() == 2);
+        assertEquals(List.of(new CookBatch(DARK, 5), new CookBatch(MILK, 1)), cooked);
+        assertEquals(List.of(first, second).stream().sorted().toList(),
+                orderManager.listPreparedOrders().stream().sorted().toList());
+    }
+
+    @Test
+    void orderIsPreparedOnlyWhenItsLastLoadIsDone() {
+        UUID orderId = completedOrder(List.of("dark chocolate"), 10);
+        List<OrderStatus> statusWhileCooking = Collections.synchronizedList(new ArrayList<>());
+        scheduler = new KitchenScheduler(orderManager, batch -> {
+            statusWhileCooking.add(orderManager.findOrder(orderId).getOrderStatus());
+            cooked.add(batch);
+        }, 4, 2);
+
+        scheduler.start();
+
+        await(() -> scheduler.preparedOrders() == 1);
+        assertEquals(List.of(4, 4, 2), cooked.stream().map(CookBatch::pancakes).sorted((a, b) -> b - a).toList());
+        assertEquals(List.of(OrderStatus.COMPLETED, OrderStatus.COMPLETED, OrderStatus.COMPLETED), statusWhileCooking);
+        assertEquals(OrderStatus.PREPARED, orderManager.findOrder(orderId).getOrderStatus());
+        assertEquals(10, scheduler.cookedPancakes());
+    }
+
+    @Test
+    void ordersCompletedAfterStartArriveThroughTheFeed() {
+        scheduler = new KitchenScheduler(orderManager, cooked::add, 8, 2);
+        scheduler.start();
+
+        for (int i = 0; i < 20; i++) {
+            completedOrder(List.of("milk chocolate"), 1);
+        }
+
+        await(() -> scheduler.preparedOrders() == 20);
+        assertEquals(20, orderManager.listPreparedOrders().size());
+        assertEquals(20, scheduler.cookedPancakes());
+    }
+
+    @Test
+    void pancakesOfCancelledOrdersAreNotCooked() throws InterruptedException {
+        CountDownLatch cooking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        completedOrder(List.of("dark chocolate"), 1);
+        scheduler = new KitchenScheduler(orderManager, batch -> {
+            cooking.countDown();
+            release.await();
+            cooked.add(batch);
+        }, 8, 1);
+        scheduler.start();
+        assertTrue(cooking.await(10, TimeUnit.SECONDS));
+
+        UUID cancelled = completedOrder(List.of("milk chocolate"), 2);
+        orderManager.cancelOrder(cancelled);
+        release.countDown();
+
+        await(() -> scheduler.preparedOrders() == 1);
+        UUID next = completedOrder(List.of("dark chocolate"), 1);
+        await(() -> scheduler.preparedOrders() == 2);
+        assertEquals(List.of(new CookBatch(DARK, 1), new CookBatch(DARK, 1)), cooked);
+        assertEquals(OrderStatus.PREPARED, orderManager.findOrder(next).getOrderStatus());
+    }
+
+    @Test
+    void ordersOfAFailedLoadAreCookedAgainOnlyOnce() {
+        UUID orderId = completedOrder(List.of("dark chocolate"), 2, List.of("milk chocolate"), 1);
+        AtomicBoolean failed = new AtomicBoolean();
+        scheduler = new KitchenScheduler(orderManager, batch -> {
+            if (failed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Griddle too cold");
+            }
+            cooked.add(batch);
+        }, 8, 1);
+
+        scheduler.start();
+
+        await(() -> scheduler.preparedOrders() == 1);
+        // the milk chocolate pancake still waiting from before the failure is not cooked as well
+        assertEquals(List.of(new CookBatch(DARK, 2), new CookBatch(MILK, 1)), cooked);
+        assertEquals(3, scheduler.cookedPancakes());
+        assertEquals(OrderStatus.PREPARED, orderManager.findOrder(orderId).getOrderStatus());
+    }
+
+    private UUID completedOrder(List<String> ingredients, int count) {
+        UUID orderId = orderManager.placeOrder(new OrderRequest(1, 1, List.of(new PancakeRequest(ingredients, count))));
+        orderManager.completeOrder(orderId);
+        return orderId;
+    }
+
+    private UUID completedOrder(List<String> ingredients, int count, List<String> otherIngredients, int otherCount) {
+        UUID orderId = orderManager.placeOrder(new OrderRequest(1, 1, List.of(
+                new PancakeRequest(ingredients, count), new PancakeRequest(otherIngredients, otherCount))));
+        orderManager.completeOrder(orderId);
+        return orderId;
+    }
+}
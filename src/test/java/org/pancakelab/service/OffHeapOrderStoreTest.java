@@ -0,0 +1,140 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.OrderStatus;
+import org.pancakelab.model.pancakes.Ingredient;
+import org.pancakelab.model.pancakes.Recipe;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OffHeapOrderStoreTest {
+    private static final Recipe DARK_CHOCOLATE = Recipe.PLAIN.with(Ingredient.DARK_CHOCOLATE);
+    private static final Recipe HAZELNUTS = Recipe.PLAIN.with(Ingredient.HAZELNUTS);
+
+    @Test
+    void orderKeepsItsPlaceStatusAndPancakesInInsertionOrder() {
+        OffHeapOrderStore store = new OffHeapOrderStore();
+        UUID orderId = UUID.randomUUID();
+        store.create(orderId, OffHeapOrderStore.MAX_BUILDING, OffHeapOrderStore.MAX_ROOM);
+
+        store.addPancakes(orderId, HAZELNUTS, 2);
+        store.addPancakes(orderId, DARK_CHOCOLATE, 1);
+        store.addPancakes(orderId, HAZELNUTS, 3);
+        store.setStatus(orderId, OrderStatus.CANCELLED);
+
+        assertEquals(OffHeapOrderStore.MAX_BUILDING, store.building(orderId));
+        assertEquals(OffHeapOrderStore.MAX_ROOM, store.room(orderId));
+        assertEquals(OrderStatus.CANCELLED, store.status(orderId));
+        assertEquals(linesOf(Map.of(HAZELNUTS, 5), Map.of(DARK_CHOCOLATE, 1)), pancakes(store, orderId));
+        assertEquals(HAZELNUTS, store.findRecipe(orderId, HAZELNUTS.description()));
+
+        assertEquals(5, store.removePancakes(orderId, HAZELNUTS, 7));
+        assertEquals(linesOf(Map.of(DARK_CHOCOLATE, 1)), pancakes(store, orderId));
+        assertThrows(IllegalArgumentException.class, () -> store.findRecipe(orderId, HAZELNUTS.description()));
+    }
+
+    @Test
+    void invalidOrdersAreRejected() {
+        OffHeapOrderStore store = new OffHeapOrderStore();
+        UUID orderId = UUID.randomUUID();
+        store.create(orderId, 1, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> store.create(orderId, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> store.create(UUID.randomUUID(), 0, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.create(UUID.randomUUID(), OffHeapOrderStore.MAX_BUILDING + 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> store.addPancakes(UUID.randomUUID(), HAZELNUTS, 1));
+        store.addPancakes(orderId, HAZELNUTS, 2);
+        assertThrows(IllegalArgumentException.class, () -> store.addPancakes(orderId, HAZELNUTS, 0));
+        assertThrows(IllegalArgumentException.class, () -> store.removePancakes(orderId, HAZELNUTS, -1));
+        assertEquals(2, store.removePancakes(orderId, HAZELNUTS, 5));
+        assertNull(store.status(UUID.randomUUID()));
+        assertFalse(store.remove(UUID.randomUUID()));
+        assertTrue(store.remove(orderId));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void randomOperationsMatchAPlainMapThroughGrowthAndRemovals() {
+        Random random = new Random(7);
+        OffHeapOrderStore store = new OffHeapOrderStore(16);
+        Map<UUID, LinkedHashMap<Recipe, Integer>> expected = new HashMap<>();
+        Map<UUID, OrderStatus> statuses = new HashMap<>();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 3 || ids.isEmpty()) {
+                UUID orderId = new UUID(random.nextLong(), random.nextLong());
+                store.create(orderId, 1 + random.nextInt(100), 1 + random.nextInt(100));
+                expected.put(orderId, new LinkedHashMap<>());
+                statuses.put(orderId, OrderStatus.CREATED);
+                ids.add(orderId);
+                continue;
+            }
+            int index = random.nextInt(ids.size());
+            UUID orderId = ids.get(index);
+            Recipe recipe = Recipe.of(random.nextInt(40));
+            if (operation < 6) {
+                int count = 1 + random.nextInt(3);
+                store.addPancakes(orderId, recipe, count);
+                expected.get(orderId).merge(recipe, count, Integer::sum);
+            } else if (operation < 8) {
+                Integer pancakes = expected.get(orderId).get(recipe);
+                if (pancakes == null) {
+                    assertThrows(IllegalArgumentException.class, () -> store.removePancakes(orderId, recipe, 1));
+                } else {
+                    int count = 1 + random.nextInt(3);
+                    assertEquals(Math.min(pancakes, count), store.removePancakes(orderId, recipe, count));
+                    if (pancakes <= count) {
+                        expected.get(orderId).remove(recipe);
+                    } else {
+                        expected.get(orderId).put(recipe, pancakes - count);
+                    }
+                }
+            } else if (operation < 9) {
+                OrderStatus status = OrderStatus.values()[random.nextInt(OrderStatus.values().length)];
+                store.setStatus(orderId, status);
+                statuses.put(orderId, status);
+            } else {
+                assertTrue(store.remove(orderId));
+                expected.remove(orderId);
+                statuses.remove(orderId);
+                ids.set(index, ids.get(ids.size() - 1));
+                ids.remove(ids.size() - 1);
+            }
+        }
+
+        assertEquals(expected.size(), store.size());
+        for (UUID orderId : ids) {
+            assertEquals(statuses.get(orderId), store.status(orderId));
+            assertEquals(new ArrayList<>(expected.get(orderId).entrySet()), pancakes(store, orderId));
+        }
+    }
+
+    @SafeVarargs
+    private static List<Map.Entry<Recipe, Integer>> linesOf(Map<Recipe, Integer>... lines) {
+        List<Map.Entry<Recipe, Integer>> entries = new ArrayList<>();
+        for (Map<Recipe, Integer> line : lines) {
+            entries.addAll(line.entrySet());
+        }
+        return entries;
+    }
+
+    private static List<Map.Entry<Recipe, Integer>> pancakes(OffHeapOrderStore store, UUID orderId) {
+        List<Map.Entry<Recipe, Integer>> lines = new ArrayList<>();
+        store.forEachPancake(orderId, (recipe, count) -> lines.add(Map.entry(recipe, count)));
+        return lines;
+    }
+}
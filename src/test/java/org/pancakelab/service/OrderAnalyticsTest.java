@@ -0,0 +1,124 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.pancakes.Ingredient;
+import org.pancakelab.model.pancakes.Recipe;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.pancakelab.service.Conditions.await;
+
+public class OrderAnalyticsTest {
+    private static final Recipe DARK_CHOCOLATE = Recipe.PLAIN.with(Ingredient.DARK_CHOCOLATE);
+    private static final Recipe HAZELNUTS_AND_CREAM =
+            Recipe.PLAIN.with(Ingredient.HAZELNUTS).with(Ingredient.WHIPPED_CREAM);
+
+    private final OrderManager orderManager = new OrderManager(new PancakeService());
+    private final AtomicLong clock = new AtomicLong();
+    private OrderAnalytics analytics;
+
+    @AfterEach
+    void tearDown() {
+        if (analytics != null) {
+            analytics.close();
+        }
+    }
+
+    @Test
+    void completedOrdersAreCountedUntilTheyLeaveTheWindow() {
+        analytics = new OrderAnalytics(orderManager, Duration.ofSeconds(10), 10, 8, clock::get);
+        orderManager.completeOrder(placeOrder(1, List.of("dark chocolate"), 5));
+        analytics.start();
+        orderManager.createOrder(1, 1);
+        orderManager.completeOrder(placeOrder(3, List.of("dark chocolate"), 2));
+        await(() -> pancakes(analytics.topBuildings(10)) == 2);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(4));
+        orderManager.completeOrder(placeOrder(7, List.of("hazelnuts", "whipped cream"), 3));
+        orderManager.completeOrder(placeOrder(3, List.of("dark chocolate"), 2));
+        await(() -> pancakes(analytics.topBuildings(10)) == 7);
+
+        assertEquals(List.of(new Ranked<>(DARK_CHOCOLATE, 4, 0), new Ranked<>(HAZELNUTS_AND_CREAM, 3, 0)),
+                analytics.topRecipes(5));
+        assertEquals(List.of(new Ranked<>(3, 4, 0)), analytics.topBuildings(1));
+        Map<Ingredient, Double> rates = analytics.ingredientRates();
+        assertEquals(0.4, rates.get(Ingredient.DARK_CHOCOLATE), 1e-9);
+        assertEquals(0.3, rates.get(Ingredient.HAZELNUTS), 1e-9);
+        assertEquals(0.0, rates.get(Ingredient.MILK_CHOCOLATE), 1e-9);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(7));
+        assertEquals(List.of(new Ranked<>(HAZELNUTS_AND_CREAM, 3, 0), new Ranked<>(DARK_CHOCOLATE, 2, 0)),
+                analytics.topRecipes(5));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(List.of(), analytics.topRecipes(5));
+        assertEquals(0, analytics.missedEvents());
+    }
+
+    @Test
+    void heavyRecipesStayOnTopWithBoundedCounters() {
+        analytics = new OrderAnalytics(orderManager, Duration.ofSeconds(10), 2, 3, clock::get);
+        analytics.start();
+        List<List<String>> rare = List.of(
+                List.of("milk chocolate"), List.of("hazelnuts"), List.of("whipped cream"),
+                List.of("milk chocolate", "hazelnuts"), List.of("dark chocolate", "hazelnuts"));
+        int heavy = 0;
+        int darkChocolate = 0;
+        for (int i = 0; i < 200; i++) {
+            if (i % 3 == 0) {
+                List<String> ingredients = rare.get(i % rare.size());
+                orderManager.completeOrder(placeOrder(1 + i % 50, ingredients, 1));
+                darkChocolate += ingredients.contains("dark chocolate") ? 1 : 0;
+            } else {
+                orderManager.completeOrder(placeOrder(1 + i % 50, List.of("dark chocolate"), 1));
+                heavy++;
+                darkChocolate++;
+            }
+            if (i == 100) {
+                clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+            }
+        }
+        long darkChocolatePortions = darkChocolate;
+        await(() -> Math.round(analytics.ingredientRates().get(Ingredient.DARK_CHOCOLATE) * 10)
+                == darkChocolatePortions);
+
+        Ranked<Recipe> top = analytics.topRecipes(1).get(0);
+        assertEquals(DARK_CHOCOLATE, top.item());
+        assertTrue(top.count() >= heavy && top.count() - top.maxOvercount() <= heavy, top::toString);
+        assertTrue(analytics.topBuildings(100).size() <= 6);
+    }
+
+    @Test
+    void ordersAreCountedAsCompletedEvenIfChangedOrGoneSince() {
+        analytics = new OrderAnalytics(orderManager, Duration.ofSeconds(10), 10, 8, clock::get);
+        analytics.start();
+        for (int i = 0; i < 50; i++) {
+            UUID orderId = placeOrder(1 + i % 5, List.of("dark chocolate"), 2);
+            orderManager.completeOrder(orderId);
+            if (i % 2 == 0) {
+                orderManager.prepareOrder(orderId);
+                orderManager.deliverOrder(orderId);
+            } else {
+                orderManager.cancelOrder(orderId);
+            }
+        }
+        await(() -> pancakes(analytics.topBuildings(10)) == 100);
+
+        assertEquals(List.of(new Ranked<>(DARK_CHOCOLATE, 100, 0)), analytics.topRecipes(5));
+        assertEquals(0, analytics.missedEvents());
+    }
+
+    private UUID placeOrder(int building, List<String> ingredients, int count) {
+        return orderManager.placeOrder(new OrderRequest(building, 1, List.of(new PancakeRequest(ingredients, count))));
+    }
+
+    private static long pancakes(List<Ranked<Integer>> buildings) {
+        return buildings.stream().mapToLong(Ranked::count).sum();
+    }
+}
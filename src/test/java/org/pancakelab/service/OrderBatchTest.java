@@ -0,0 +1,130 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderBatchTest {
+    private static final String DARK_CHOCOLATE_PANCAKE_DESCRIPTION = "Delicious pancake with dark chocolate!";
+    private static final String MILK_CHOCOLATE_HAZELNUTS_PANCAKE_DESCRIPTION =
+            "Delicious pancake with milk chocolate, hazelnuts!";
+
+    private final OrderManager orderManager = new OrderManager(new PancakeService());
+
+    @Test
+    void placedOrderHoldsAllItsPancakes() {
+        UUID orderId = orderManager.placeOrder(new OrderRequest(3, 4, List.of(
+                new PancakeRequest(List.of("dark chocolate"), 2),
+                new PancakeRequest(List.of("milk chocolate", "hazelnuts"), 1),
+                new PancakeRequest(List.of("dark chocolate"), 1))));
+
+        assertEquals(Map.of(DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 3, MILK_CHOCOLATE_HAZELNUTS_PANCAKE_DESCRIPTION, 1),
+                orderManager.viewOrderSummary(orderId));
+    }
+
+    @Test
+    void orderWithUnknownIngredientIsNotCreated() {
+        assertThrows(IllegalArgumentException.class, () -> orderManager.placeOrder(new OrderRequest(3, 4, List.of(
+                new PancakeRequest(List.of("dark chocolate"), 2),
+                new PancakeRequest(List.of("mustard"), 1)))));
+
+        UUID next = orderManager.createOrder(1, 1);
+        orderManager.completeOrder(next);
+        assertEquals(Set.of(next), orderManager.listCompletedOrders());
+    }
+
+    @Test
+    void batchAppliesValidOrdersAndLeavesRejectedOnesUntouched() {
+        UUID good = orderManager.createOrder(1, 1);
+        UUID bad = orderManager.createOrder(2, 2);
+        UUID missing = UUID.randomUUID();
+
+        BatchResult result = orderManager.applyBatch(List.of(
+                new OrderCommand.AddPancakes(good, new PancakeRequest(List.of("dark chocolate"), 3)),
+                new OrderCommand.AddPancakes(bad, new PancakeRequest(List.of("dark chocolate"), 3)),
+                new OrderCommand.RemovePancakes(good, DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 1),
+                new OrderCommand.CompleteOrder(good),
+                new OrderCommand.CompleteOrder(bad),
+                new OrderCommand.CompleteOrder(bad),
+                new OrderCommand.CompleteOrder(missing)));
+
+        assertEquals(Set.of(good), result.applied());
+        assertEquals(Set.of(bad, missing), result.rejected().keySet());
+        assertEquals("Order %s cannot move from COMPLETED to COMPLETED".formatted(bad), result.rejected().get(bad));
+        assertEquals(Map.of(DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 2), orderManager.viewOrderSummary(good));
+        assertTrue(orderManager.viewOrderSummary(bad).isEmpty());
+        assertEquals(Set.of(good), orderManager.listCompletedOrders());
+    }
+
+    @Test
+    void removeCommandNeedsAPositiveCount() {
+        UUID orderId = orderManager.createOrder(1, 1);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new OrderCommand.RemovePancakes(orderId, DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new OrderCommand.RemovePancakes(orderId, DARK_CHOCOLATE_PANCAKE_DESCRIPTION, -2));
+    }
+
+    @Test
+    void removingPancakeAddedEarlierInSameBatchIsAllowed() {
+        UUID orderId = orderManager.createOrder(1, 1);
+
+        BatchResult result = orderManager.applyBatch(List.of(
+                new OrderCommand.AddPancakes(orderId, new PancakeRequest(List.of("dark chocolate"), 1)),
+                new OrderCommand.RemovePancakes(orderId, DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 1),
+                new OrderCommand.CancelOrder(orderId)));
+
+        assertEquals(Set.of(orderId), result.applied());
+        assertTrue(orderManager.viewOrder(orderId).isEmpty());
+    }
+
+    @Test
+    void cancellingInABatchDiscardsThePancakeInProgress() {
+        PancakeService pancakeService = new PancakeService();
+        OrderManager orderManager = new OrderManager(pancakeService);
+        UUID orderId = orderManager.createOrder(1, 1);
+        pancakeService.startNewPancake(orderId);
+
+        orderManager.applyBatch(List.of(new OrderCommand.CancelOrder(orderId)));
+
+        assertEquals(0, pancakeService.getPancakesInProgress());
+    }
+
+    @Test
+    void removingPancakeRemovedEarlierInSameBatchIsRejected() {
+        UUID orderId = orderManager.placeOrder(new OrderRequest(1, 1, List.of(
+                new PancakeRequest(List.of("dark chocolate"), 2))));
+
+        BatchResult result = orderManager.applyBatch(List.of(
+                new OrderCommand.RemovePancakes(orderId, DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 2),
+                new OrderCommand.RemovePancakes(orderId, DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 1)));
+
+        assertEquals("No pancake with description: \"" + DARK_CHOCOLATE_PANCAKE_DESCRIPTION + "\" found",
+                result.rejected().get(orderId));
+        assertEquals(Map.of(DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 2), orderManager.viewOrderSummary(orderId));
+    }
+
+    @Test
+    void pancakesOfACompletedOrderCannotChange() {
+        UUID orderId = orderManager.createOrder(1, 1);
+
+        BatchResult result = orderManager.applyBatch(List.of(
+                new OrderCommand.AddPancakes(orderId, new PancakeRequest(List.of("dark chocolate"), 1)),
+                new OrderCommand.CompleteOrder(orderId),
+                new OrderCommand.AddPancakes(orderId, new PancakeRequest(List.of("dark chocolate"), 1))));
+
+        assertEquals("Order %s is already COMPLETED".formatted(orderId), result.rejected().get(orderId));
+        orderManager.completeOrder(orderId);
+        assertThrows(IllegalStateException.class, () -> orderManager.addPancakes(orderId,
+                new PancakeRequest(List.of("dark chocolate"), 1)));
+        assertTrue(orderManager.viewOrder(orderId).isEmpty());
+    }
+}
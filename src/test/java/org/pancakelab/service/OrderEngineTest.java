@@ -0,0 +1,145 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderEngineTest {
+    private static final String DARK_CHOCOLATE_PANCAKE_DESCRIPTION = "Delicious pancake with dark chocolate!";
+    private static final PancakeRequest DARK_CHOCOLATE = new PancakeRequest(List.of("dark chocolate"), 3);
+
+    @ParameterizedTest
+    @ValueSource(strings = {"direct", "partitioned"})
+    void orderGoesThroughItsWholeLifecycle(String mode) {
+        try (OrderEngine engine = engine(mode)) {
+            UUID orderId = engine.createOrder(1, 2).join();
+            engine.addPancakes(orderId, DARK_CHOCOLATE).join();
+            engine.removePancakes(orderId, DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 1).join();
+            assertEquals(Map.of(DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 2), engine.viewOrderSummary(orderId).join());
+
+            engine.completeOrder(orderId).join();
+            assertEquals(Set.of(orderId), engine.listCompletedOrders().join());
+            assertFailsWith(IllegalStateException.class, engine.addPancakes(orderId, DARK_CHOCOLATE));
+            assertFailsWith(IllegalStateException.class,
+                    engine.removePancakes(orderId, DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 1));
+            assertNull(engine.deliverOrder(orderId).join());
+            engine.prepareOrder(orderId).join();
+            assertEquals(Set.of(), engine.listCompletedOrders().join());
+            assertEquals(Set.of(orderId), engine.listPreparedOrders().join());
+
+            assertEquals(Map.of(DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 2), engine.deliverOrder(orderId).join());
+            assertNull(engine.deliverOrder(orderId).join());
+            assertTrue(engine.viewOrderSummary(orderId).join().isEmpty());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"direct", "partitioned"})
+    void failuresCompleteTheFutureExceptionally(String mode) {
+        try (OrderEngine engine = engine(mode)) {
+            UUID orderId = engine.createOrder(1, 1).join();
+
+            assertFailsWith(IllegalArgumentException.class, engine.completeOrder(UUID.randomUUID()));
+            assertFailsWith(IllegalArgumentException.class, engine.createOrder(0, 1));
+            assertFailsWith(IllegalArgumentException.class,
+                    engine.addPancakes(orderId, new PancakeRequest(List.of("mustard"), 1)));
+            engine.addPancakes(orderId, DARK_CHOCOLATE).join();
+            assertFailsWith(IllegalArgumentException.class,
+                    engine.removePancakes(orderId, DARK_CHOCOLATE_PANCAKE_DESCRIPTION, -1));
+            assertFailsWith(IllegalStateException.class, engine.prepareOrder(orderId));
+            engine.cancelOrder(orderId).join();
+            assertFailsWith(IllegalArgumentException.class, engine.completeOrder(orderId));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"direct", "partitioned"})
+    void commandsFromManyThreadsAreAllApplied(String mode) throws InterruptedException {
+        try (OrderEngine engine = engine(mode)) {
+            Set<UUID> completed = ConcurrentHashMap.newKeySet();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        UUID orderId = engine.createOrder(1, 1).join();
+                        engine.addPancakes(orderId, DARK_CHOCOLATE);
+                        CompletableFuture<Void> done = engine.completeOrder(orderId);
+                        if (i % 2 == 0) {
+                            done.join();
+                            completed.add(orderId);
+                        } else {
+                            engine.prepareOrder(orderId);
+                            engine.deliverOrder(orderId).join();
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(new HashSet<>(completed), engine.listCompletedOrders().join());
+            assertEquals(Set.of(), engine.listPreparedOrders().join());
+            for (UUID orderId : completed) {
+                assertEquals(Map.of(DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 3), engine.viewOrderSummary(orderId).join());
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"direct", "partitioned"})
+    void commandsRacingCloseAreAppliedOrFailed(String mode) throws Exception {
+        OrderEngine engine = engine(mode);
+        List<CompletableFuture<UUID>> created = new ArrayList<>();
+        CountDownLatch submitting = new CountDownLatch(1);
+        Thread submitter = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                created.add(engine.createOrder(1, 1));
+                submitting.countDown();
+            }
+        });
+        submitter.start();
+        submitting.await();
+        engine.close();
+        submitter.join();
+
+        for (CompletableFuture<UUID> future : created) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+            } catch (ExecutionException closed) {
+                assertInstanceOf(IllegalStateException.class, closed.getCause());
+            }
+        }
+    }
+
+    private static OrderEngine engine(String mode) {
+        return "direct".equals(mode)
+                ? OrderEngine.direct(new OrderManager(new PancakeService()))
+                : OrderEngine.partitioned(4, 64);
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> expected, CompletableFuture<?> future) {
+        CompletionException failure = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(expected, failure.getCause());
+    }
+}
@@ -0,0 +1,172 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.Order;
+import org.pancakelab.model.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderFeedTest {
+
+    @Test
+    void subscriberIsToldAboutCompletedAndPreparedOrders() throws InterruptedException {
+        OrderManager orderManager = new OrderManager(new PancakeService());
+        CountDownLatch received = new CountDownLatch(3);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE) {
+            @Override
+            public void onNext(OrderEvent event) {
+                super.onNext(event);
+                received.countDown();
+            }
+        };
+        orderManager.feed().subscribe(subscriber);
+
+        UUID orderId = orderManager.createOrder(10, 20);
+        orderManager.completeOrder(orderId);
+        orderManager.prepareOrder(orderId);
+        orderManager.deliverOrder(orderId);
+
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of(OrderStatus.COMPLETED, OrderStatus.PREPARED, OrderStatus.DELIVERED),
+                subscriber.events.stream().map(OrderEvent::status).toList());
+        assertEquals(List.of(0L, 1L, 2L), subscriber.events.stream().map(OrderEvent::sequence).toList());
+        OrderEvent completed = subscriber.events.get(0);
+        assertEquals(orderId, completed.orderId());
+        assertEquals(10, completed.building());
+        assertEquals(20, completed.room());
+        assertEquals(Map.of(), completed.pancakes());
+    }
+
+    @Test
+    void eventsAreDeliveredOnlyAsFarAsRequested() {
+        OrderFeed feed = new OrderFeed(16, Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber(2);
+        feed.subscribe(subscriber);
+
+        for (int i = 0; i < 5; i++) {
+            feed.publish(new Order(1, i + 1), OrderStatus.COMPLETED);
+        }
+        assertEquals(2, subscriber.events.size());
+
+        subscriber.subscription.request(2);
+        assertEquals(4, subscriber.events.size());
+        assertEquals(List.of(0L, 1L, 2L, 3L), subscriber.events.stream().map(OrderEvent::sequence).toList());
+    }
+
+    @Test
+    void subscriberCanResumeFromASequenceItHasSeen() {
+        OrderFeed feed = new OrderFeed(16, Runnable::run);
+        for (int i = 0; i < 10; i++) {
+            feed.publish(new Order(1, i + 1), OrderStatus.COMPLETED);
+        }
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        feed.subscribe(subscriber, 7);
+        feed.publish(new Order(1, 11), OrderStatus.PREPARED);
+
+        assertEquals(List.of(7L, 8L, 9L, 10L), subscriber.events.stream().map(OrderEvent::sequence).toList());
+        assertEquals(OrderStatus.PREPARED, subscriber.events.get(3).status());
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void resumingFromADroppedSequenceFails() {
+        OrderFeed feed = new OrderFeed(4, Runnable::run);
+        for (int i = 0; i < 10; i++) {
+            feed.publish(new Order(1, i + 1), OrderStatus.COMPLETED);
+        }
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        feed.subscribe(subscriber, 2);
+
+        OrderFeed.LaggedException lagged = assertInstanceOf(OrderFeed.LaggedException.class, subscriber.error);
+        assertEquals(6, lagged.getOldestSequence());
+        assertTrue(subscriber.events.isEmpty());
+        assertEquals(0, feed.subscriberCount());
+    }
+
+    @Test
+    void subscriberFallingBehindTheRingIsFailed() {
+        OrderFeed feed = new OrderFeed(4, Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        feed.subscribe(subscriber);
+
+        for (int i = 0; i < 6; i++) {
+            feed.publish(new Order(1, i + 1), OrderStatus.COMPLETED);
+        }
+        subscriber.subscription.request(1);
+
+        assertEquals(1, subscriber.events.size());
+        assertInstanceOf(OrderFeed.LaggedException.class, subscriber.error);
+        assertEquals(0, feed.subscriberCount());
+    }
+
+    @Test
+    void cancelledSubscriberReceivesNothingMore() {
+        OrderFeed feed = new OrderFeed(16, Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        feed.subscribe(subscriber);
+        feed.publish(new Order(1, 1), OrderStatus.COMPLETED);
+
+        subscriber.subscription.cancel();
+        feed.publish(new Order(1, 2), OrderStatus.COMPLETED);
+
+        assertEquals(1, subscriber.events.size());
+        assertEquals(0, feed.subscriberCount());
+    }
+
+    @Test
+    void nonPositiveRequestFailsTheSubscription() {
+        OrderFeed feed = new OrderFeed(16, Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        feed.subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<OrderEvent> {
+        private final long initialDemand;
+        final List<OrderEvent> events = new ArrayList<>();
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+
+        RecordingSubscriber(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+        }
+
+        @Override
+        public void onNext(OrderEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderLogTest {
+
+    @Test
+    void ringBufferDeliversEveryElementOnceUnderConcurrentProducers() throws InterruptedException {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        for (int p = 0; p < producers; p++) {
+            int offset = p * perProducer;
+            executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(offset + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+        Set<Integer> received = new HashSet<>();
+        List<Integer> duplicates = new ArrayList<>();
+        while (received.size() + duplicates.size() < producers * perProducer) {
+            int drained = buffer.drain(element -> {
+                if (!received.add(element)) {
+                    duplicates.add(element);
+                }
+            }, 16);
+            if (drained == 0) {
+                Thread.yield();
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(producers * perProducer, received.size());
+        assertTrue(duplicates.isEmpty());
+    }
+
+    @Test
+    void fullBufferWithDropPolicyCountsDroppedEvents() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> messages = new ArrayList<>();
+        Logger logger = testLogger(new RecordingHandler(messages, release));
+        OrderLogWriter writer = new OrderLogWriter(logger, 4, BackPressurePolicy.DROP, 1);
+
+        for (int i = 0; i < 20; i++) {
+            writer.publish(cancelled());
+        }
+        assertTrue(writer.droppedEvents() > 0);
+        release.countDown();
+        writer.flush();
+        writer.close();
+
+        assertEquals(20, messages.size() + writer.droppedEvents());
+    }
+
+    @Test
+    void blockPolicyLosesNothingAndKeepsSourceMethod() {
+        List<String> messages = new ArrayList<>();
+        List<LogRecord> records = new ArrayList<>();
+        Logger logger = testLogger(new RecordingHandler(messages, new CountDownLatch(0)) {
+            @Override
+            public void publish(LogRecord record) {
+                super.publish(record);
+                records.add(record);
+            }
+        });
+        OrderLogWriter writer = new OrderLogWriter(logger, 4, BackPressurePolicy.BLOCK, 1);
+
+        for (int i = 0; i < 1_000; i++) {
+            writer.publish(cancelled());
+        }
+        writer.flush();
+        writer.close();
+
+        assertEquals(1_000, messages.size());
+        assertEquals(0, writer.droppedEvents());
+        assertEquals("logCancelOrder", records.get(0).getSourceMethodName());
+        assertFalse(messages.get(0).isEmpty());
+    }
+
+    private static OrderLogEvent cancelled() {
+        return new OrderLogEvent.OrderCancelled(UUID.randomUUID(), 1, 2, 3);
+    }
+
+    private static Logger testLogger(Handler handler) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        return logger;
+    }
+
+    private static class RecordingHandler extends Handler {
+        private final List<String> messages;
+        private final CountDownLatch release;
+
+        RecordingHandler(List<String> messages, CountDownLatch release) {
+            this.messages = messages;
+            this.release = release;
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            messages.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+
+        }
+
+        @Override
+        public void close() throws SecurityException {
+
+        }
+    }
+}
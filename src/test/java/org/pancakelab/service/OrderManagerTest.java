@@ -10,6 +10,7 @@ import org.pancakelab.model.Order;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Handler;
@@ -65,6 +66,7 @@ public class OrderManagerTest {
 
     @AfterEach
     void tearDown() {
+        OrderLog.flush();
         logRecords.clear();
         LOGGER.removeHandler(logHandler);
     }
@@ -82,9 +84,9 @@ public class OrderManagerTest {
     @Test
     @org.junit.jupiter.api.Order(16)
     public void GivenUnpreparedOrder_WhenDelivering_ThenNull_Test() {
-        orderManager.createOrder(1, 1);
-        orderManager.completeOrder(orderId);
-        Object[] order = orderManager.deliverOrder(orderId);
+        UUID unpreparedOrderId = orderManager.createOrder(1, 1);
+        orderManager.completeOrder(unpreparedOrderId);
+        Object[] order = orderManager.deliverOrder(unpreparedOrderId);
         assertNull(order);
     }
 
@@ -112,6 +114,23 @@ public class OrderManagerTest {
         // tear down
     }
 
+    @Test
+    @org.junit.jupiter.api.Order(25)
+    public void GivenPancakesExists_WhenViewingSummary_ThenCountsPerDescriptionReturned_Test() {
+        // setup
+
+        // exercise
+        Map<String, Integer> summary = orderManager.viewOrderSummary(orderId);
+
+        // verify
+        assertEquals(List.of(DARK_CHOCOLATE_PANCAKE_DESCRIPTION,
+                MILK_CHOCOLATE_PANCAKE_DESCRIPTION,
+                MILK_CHOCOLATE_HAZELNUTS_PANCAKE_DESCRIPTION), List.copyOf(summary.keySet()));
+        assertEquals(List.of(3, 3, 3), List.copyOf(summary.values()));
+
+        // tear down
+    }
+
     @Test
     @org.junit.jupiter.api.Order(30)
     public void GivenPancakesExists_WhenRemovingPancakes_ThenCorrectNumberOfPancakesRemoved_Test() {
@@ -173,6 +192,7 @@ public class OrderManagerTest {
 
         // exercise
         Object[] deliveredOrder = orderManager.deliverOrder(orderId);
+        OrderLog.flush();
         assertEquals(1, logRecords.size());
         assertEquals(
                 "Order %s with 3 pancakes for building %d, room %d out for delivery.".formatted(orderId.toString(), 10,
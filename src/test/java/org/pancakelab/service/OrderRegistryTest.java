@@ -0,0 +1,68 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.Order;
+import org.pancakelab.model.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderRegistryTest {
+
+    private final OrderRegistry registry = new OrderRegistry();
+
+    @Test
+    void statusChangeMovesOrderBetweenIndexes() {
+        Order order = new Order(1, 1);
+        registry.add(order);
+
+        registry.transition(order, OrderStatus.COMPLETED);
+
+        assertEquals(Set.of(), registry.list(OrderStatus.CREATED));
+        assertEquals(Set.of(order.getId()), registry.list(OrderStatus.COMPLETED));
+    }
+
+    @Test
+    void removedOrderDisappearsFromIndexes() {
+        Order order = new Order(1, 1);
+        registry.add(order);
+        registry.transition(order, OrderStatus.COMPLETED);
+
+        registry.remove(order.getId());
+
+        assertTrue(registry.list(OrderStatus.COMPLETED).isEmpty());
+    }
+
+    @Test
+    void pagesCoverAllOrdersOnceInIdOrder() {
+        List<UUID> expected = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Order order = new Order(1, 1);
+            registry.add(order);
+            registry.transition(order, OrderStatus.COMPLETED);
+            registry.transition(order, OrderStatus.PREPARED);
+            expected.add(order.getId());
+        }
+        expected.sort(null);
+
+        List<UUID> listed = new ArrayList<>();
+        List<UUID> page = registry.list(OrderStatus.PREPARED, null, 10);
+        while (!page.isEmpty()) {
+            listed.addAll(page);
+            page = registry.list(OrderStatus.PREPARED, page.get(page.size() - 1), 10);
+        }
+
+        assertEquals(expected, listed);
+    }
+
+    @Test
+    void nonPositivePageLimitThrows() {
+        assertThrows(IllegalArgumentException.class, () -> registry.list(OrderStatus.CREATED, null, 0));
+    }
+}
@@ -0,0 +1,167 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.pancakelab.model.Order;
+import org.pancakelab.model.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class OrderStateMachineTest {
+
+    private static final Logger LOGGER = Logger.getLogger(OrderLog.class.getName());
+    private static final int THREADS = 8;
+    private static final int ORDERS = 2_000;
+
+    private Level previousLevel;
+
+    @BeforeAll
+    void silenceOrderLog() {
+        previousLevel = LOGGER.getLevel();
+        LOGGER.setLevel(Level.WARNING);
+    }
+
+    @AfterAll
+    void restoreOrderLog() {
+        LOGGER.setLevel(previousLevel);
+    }
+
+    @Test
+    void illegalTransitionThrows() {
+        Order order = new Order(1, 1);
+
+        String message = assertThrows(IllegalStateException.class,
+                () -> order.transitionTo(OrderStatus.PREPARED)).getMessage();
+
+        assertEquals("Order %s cannot move from CREATED to PREPARED".formatted(order.getId()), message);
+        assertEquals(OrderStatus.CREATED, order.getOrderStatus());
+    }
+
+    @Test
+    void terminalStatusAllowsNoFurtherTransitions() {
+        Order order = new Order(1, 1);
+        order.transitionTo(OrderStatus.CANCELLED);
+
+        for (OrderStatus next : OrderStatus.values()) {
+            assertThrows(IllegalStateException.class, () -> order.transitionTo(next));
+        }
+    }
+
+    @Test
+    void preparedOrderCannotBeCancelled() {
+        OrderManager orderManager = new OrderManager(new PancakeService());
+        UUID orderId = orderManager.createOrder(1, 1);
+        orderManager.completeOrder(orderId);
+        orderManager.prepareOrder(orderId);
+
+        assertThrows(IllegalStateException.class, () -> orderManager.cancelOrder(orderId));
+        assertTrue(orderManager.listPreparedOrders().contains(orderId));
+    }
+
+    @Test
+    void unknownOrderIsNotDelivered() {
+        OrderManager orderManager = new OrderManager(new PancakeService());
+
+        assertNull(orderManager.deliverOrder(UUID.randomUUID()));
+    }
+
+    @Test
+    void concurrentDeliveryHandsOutEachOrderExactlyOnce() throws Exception {
+        OrderManager orderManager = new OrderManager(new PancakeService());
+        List<UUID> orderIds = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            UUID orderId = orderManager.createOrder(1, 1);
+            orderManager.completeOrder(orderId);
+            orderManager.prepareOrder(orderId);
+            orderIds.add(orderId);
+        }
+        Map<UUID, AtomicInteger> deliveries = new ConcurrentHashMap<>();
+
+        runConcurrently(() -> {
+            for (UUID orderId : orderIds) {
+                if (orderManager.deliverOrder(orderId) != null) {
+                    deliveries.computeIfAbsent(orderId, id -> new AtomicInteger()).incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(ORDERS, deliveries.size());
+        deliveries.values().forEach(count -> assertEquals(1, count.get()));
+        assertTrue(orderManager.listPreparedOrders().isEmpty());
+    }
+
+    @Test
+    void cancelRacingPrepareHasExactlyOneWinner() throws Exception {
+        OrderManager orderManager = new OrderManager(new PancakeService());
+        List<UUID> orderIds = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            UUID orderId = orderManager.createOrder(1, 1);
+            orderManager.completeOrder(orderId);
+            orderIds.add(orderId);
+        }
+        Map<UUID, AtomicInteger> wins = new ConcurrentHashMap<>();
+        AtomicInteger turn = new AtomicInteger();
+
+        runConcurrently(() -> {
+            boolean cancel = turn.getAndIncrement() % 2 == 0;
+            for (UUID orderId : orderIds) {
+                try {
+                    if (cancel) {
+                        orderManager.cancelOrder(orderId);
+                    } else {
+                        orderManager.prepareOrder(orderId);
+                    }
+                    wins.computeIfAbsent(orderId, id -> new AtomicInteger()).incrementAndGet();
+                } catch (IllegalStateException | IllegalArgumentException lost) {
+                    // the other side got there first
+                }
+            }
+        });
+
+        assertEquals(ORDERS, wins.size());
+        wins.values().forEach(count -> assertEquals(1, count.get()));
+        assertTrue(orderManager.listCompletedOrders().isEmpty());
+        long prepared = orderManager.listPreparedOrders().size();
+        assertEquals(prepared, orderIds.stream().filter(id -> orderManager.deliverOrder(id) != null).count());
+    }
+
+    private void runConcurrently(Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
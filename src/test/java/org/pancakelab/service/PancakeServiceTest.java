@@ -6,6 +6,10 @@ import org.pancakelab.model.pancakes.Ingredient;
 import org.pancakelab.model.pancakes.Pancake;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -17,7 +21,7 @@ public class PancakeServiceTest {
     void removeExistingPancakeFully() {
         Order order = new Order(1, 1);
         Pancake pancake = createPancake(Ingredient.DARK_CHOCOLATE);
-        order.getPancakes().put(pancake, 2);
+        order.addPancake(pancake, 2);
 
         order.removePancakes(pancake.description(), 2);
 
@@ -28,18 +32,18 @@ public class PancakeServiceTest {
     void removePartialQuantityOfPancakes() {
         Order order = new Order(1, 1);
         Pancake pancake = createPancake(Ingredient.HAZELNUTS);
-        order.getPancakes().put(pancake, 5);
+        order.addPancake(pancake, 5);
 
         order.removePancakes(pancake.description(), 3);
 
-        assertEquals(2, order.getPancakes().get(pancake));
+        assertEquals(2, order.getPancakes().get(pancake.getRecipe()));
     }
 
     @Test
     void removeMoreThanExistsRemovesAll() {
         Order order = new Order(1, 1);
         Pancake pancake = createPancake(Ingredient.MILK_CHOCOLATE);
-        order.getPancakes().put(pancake, 2);
+        order.addPancake(pancake, 2);
 
         order.removePancakes(pancake.description(), 5);
 
@@ -50,7 +54,7 @@ public class PancakeServiceTest {
     void removePancakeThatDoesNotExistThrowsException() {
         Order order = new Order(1, 1);
         Pancake pancake = createPancake(Ingredient.DARK_CHOCOLATE);
-        order.getPancakes().put(pancake, 2);
+        order.addPancake(pancake, 2);
 
         String message = assertThrows(IllegalArgumentException.class,
                 () -> order.removePancakes("non existent pancake", 2)).getMessage();
@@ -58,6 +62,77 @@ public class PancakeServiceTest {
         assertEquals("No pancake with description: \"non existent pancake\" found", message);
     }
 
+    @Test
+    void removeByRecipeAndReAddKeepsDescriptionLookupWorking() {
+        Order order = new Order(1, 1);
+        Pancake pancake = createPancake(Ingredient.DARK_CHOCOLATE, Ingredient.WHIPPED_CREAM);
+        order.addPancake(pancake, 2);
+
+        assertEquals(2, order.removePancakes(pancake.getRecipe(), 3));
+        assertThrows(IllegalArgumentException.class, () -> order.removePancakes(pancake.description(), 1));
+
+        order.addPancake(pancake, 1);
+        assertEquals(1, order.removePancakes(pancake.description(), 1));
+        assertTrue(order.getPancakes().isEmpty());
+    }
+
+    @Test
+    void nonPositiveCountsLeaveTheOrderUntouched() {
+        Order order = new Order(1, 1);
+        Pancake pancake = createPancake(Ingredient.HAZELNUTS);
+        order.addPancake(pancake, 2);
+
+        assertThrows(IllegalArgumentException.class, () -> order.addPancake(pancake, 0));
+        assertThrows(IllegalArgumentException.class, () -> order.addPancake(pancake.getRecipe(), -3));
+        assertThrows(IllegalArgumentException.class, () -> order.removePancakes(pancake.getRecipe(), -1));
+
+        assertEquals(2, order.getPancakeCount());
+        assertEquals(2, order.getPancakes().get(pancake.getRecipe()));
+    }
+
+    @Test
+    void viewOrderListsOneDescriptionPerPancake() {
+        Order order = new Order(1, 1);
+        Pancake dark = createPancake(Ingredient.DARK_CHOCOLATE);
+        Pancake hazelnuts = createPancake(Ingredient.HAZELNUTS);
+        order.addPancake(dark, 2);
+        order.addPancake(hazelnuts, 1);
+
+        assertEquals(List.of(dark.description(), dark.description(), hazelnuts.description()), order.viewOrder());
+        assertEquals(3, order.getPancakeCount());
+    }
+
+    @Test
+    void identicalPancakesAreMerged() {
+        Order order = new Order(1, 1);
+
+        order.addPancake(createPancake(Ingredient.MILK_CHOCOLATE, Ingredient.HAZELNUTS), 2);
+        order.addPancake(createPancake(Ingredient.HAZELNUTS, Ingredient.MILK_CHOCOLATE), 3);
+
+        assertEquals(1, order.getPancakes().size());
+        assertEquals(5, order.getPancakes().values().iterator().next());
+    }
+
+    @Test
+    void concurrentAddsAndRemovesOnOneOrderAreNotLost() throws InterruptedException {
+        Order order = new Order(1, 1);
+        Pancake pancake = createPancake(Ingredient.WHIPPED_CREAM);
+        order.addPancake(pancake, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    order.addPancake(pancake, 2);
+                    order.removePancakes(pancake.description(), 1);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(1 + 8 * 10_000, order.getPancakes().get(pancake.getRecipe()));
+    }
+
     private Pancake createPancake(Ingredient... ingredientNames) {
         Pancake pancake = new Pancake();
         Arrays.stream(ingredientNames).forEach(pancake::addIngredient);
@@ -0,0 +1,108 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RequestCacheTest {
+    private static final String DARK_CHOCOLATE_PANCAKE_DESCRIPTION = "Delicious pancake with dark chocolate!";
+
+    @Test
+    void retriedChangesAreAppliedOnce() {
+        PancakeService pancakeService = new PancakeService();
+        OrderManager orderManager = new OrderManager(pancakeService);
+        UUID create = UUID.randomUUID();
+        UUID orderId = orderManager.once(create, () -> orderManager.createOrder(1, 1));
+        assertEquals(orderId, orderManager.once(create, () -> orderManager.createOrder(1, 1)));
+
+        pancakeService.startNewPancake(orderId);
+        pancakeService.addIngredientToPancake(orderId, "dark chocolate");
+        UUID add = UUID.randomUUID();
+        orderManager.once(add, () -> orderManager.addPancake(orderId, 2));
+        orderManager.once(add, () -> orderManager.addPancake(orderId, 2));
+        assertEquals(Map.of(DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 2), orderManager.viewOrderSummary(orderId));
+
+        UUID cancel = UUID.randomUUID();
+        orderManager.once(cancel, () -> orderManager.cancelOrder(orderId));
+        orderManager.once(cancel, () -> orderManager.cancelOrder(orderId));
+        UUID complete = UUID.randomUUID();
+        IllegalArgumentException notFound = assertThrows(IllegalArgumentException.class,
+                () -> orderManager.once(complete, () -> orderManager.completeOrder(orderId)));
+        assertSame(notFound, assertThrows(IllegalArgumentException.class,
+                () -> orderManager.once(complete, () -> orderManager.completeOrder(UUID.randomUUID()))));
+
+        assertEquals(4, orderManager.requests().misses());
+        assertEquals(4, orderManager.requests().hits());
+        assertEquals(0.5, orderManager.requests().hitRate());
+        assertEquals(4L, orderManager.metrics().getGauges().get("requests.misses"));
+    }
+
+    @Test
+    void entriesExpireAndAFullCacheDropsTheOldest() {
+        AtomicLong clock = new AtomicLong();
+        RequestCache cache = new RequestCache(2, Duration.ofSeconds(10), clock::get);
+        AtomicInteger runs = new AtomicInteger();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        cache.execute(first, runs::incrementAndGet);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        cache.execute(second, runs::incrementAndGet);
+        assertEquals(1, cache.execute(first, runs::incrementAndGet));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(3, cache.execute(first, runs::incrementAndGet));
+        assertEquals(2, cache.execute(second, runs::incrementAndGet));
+        assertEquals(2, cache.size());
+
+        cache.execute(UUID.randomUUID(), runs::incrementAndGet);
+        assertEquals(1, cache.evictions());
+        assertEquals(5, cache.execute(second, runs::incrementAndGet));
+        assertEquals(2 * 160, cache.estimatedBytes());
+    }
+
+    @Test
+    void concurrentRetriesWaitForTheFirstAttempt() throws InterruptedException {
+        RequestCache cache = new RequestCache();
+        UUID requestId = UUID.randomUUID();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Set<Integer> results = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> results.add(cache.execute(requestId, () -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return runs.incrementAndGet();
+            })));
+            threads.add(thread);
+            thread.start();
+        }
+        running.await();
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, runs.get());
+        assertEquals(Set.of(1), results);
+    }
+}
@@ -0,0 +1,220 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pancakelab.journal.JournalConfig;
+import org.pancakelab.journal.MappedOrderJournal;
+import org.pancakelab.journal.OrderJournal;
+import org.pancakelab.model.Order;
+import org.pancakelab.model.pancakes.Ingredient;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedOrderManagerTest {
+    private static final String DARK_CHOCOLATE_PANCAKE_DESCRIPTION = "Delicious pancake with dark chocolate!";
+
+    @Test
+    void ringSpreadsIdsEvenlyAndGrowingItOnlyMovesIdsToTheNewShard() {
+        ConsistentHashRing ring = new ConsistentHashRing(4, 128);
+        ConsistentHashRing grown = ring.withShardAdded();
+        int[] counts = new int[4];
+        int moved = 0;
+        for (int i = 0; i < 40_000; i++) {
+            UUID orderId = new Order(1, 1).getId();
+            int shard = ring.shardOf(orderId);
+            counts[shard]++;
+            int newShard = grown.shardOf(orderId);
+            if (newShard != shard) {
+                assertEquals(4, newShard);
+                moved++;
+            }
+        }
+
+        for (int count : counts) {
+            assertTrue(count > 8_000 && count < 12_000, "Uneven shard: " + count);
+        }
+        assertTrue(moved > 6_000 && moved < 10_000, "Moved " + moved);
+    }
+
+    @Test
+    void ordersAreServedByTheirShard() {
+        ShardedOrderManager orderManager = new ShardedOrderManager(4);
+        UUID orderId = orderManager.createOrder(1, 1);
+        orderManager.startNewPancake(orderId);
+        orderManager.addIngredientToPancake(orderId, "dark chocolate");
+        orderManager.addPancake(orderId, 2);
+        orderManager.completeOrder(orderId);
+
+        int shard = orderManager.shardOf(orderId);
+        assertEquals(Set.of(orderId), orderManager.shard(shard).listCompletedOrders());
+        for (int i = 0; i < 4; i++) {
+            if (i != shard) {
+                assertTrue(orderManager.shard(i).viewOrder(orderId).isEmpty());
+            }
+        }
+        assertEquals(Map.of(DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 2), orderManager.viewOrderSummary(orderId));
+        assertEquals(Set.of(orderId), orderManager.listCompletedOrders());
+    }
+
+    @Test
+    void listingsAreMergedAcrossShardsInIdOrder() {
+        ShardedOrderManager orderManager = new ShardedOrderManager(4);
+        List<UUID> completed = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            UUID orderId = orderManager.createOrder(1, i + 1);
+            if (i % 3 != 0) {
+                orderManager.completeOrder(orderId);
+                completed.add(orderId);
+            }
+        }
+        completed.sort(null);
+
+        List<UUID> paged = new ArrayList<>();
+        UUID after = null;
+        List<UUID> page;
+        while (!(page = orderManager.listCompletedOrders(after, 10)).isEmpty()) {
+            assertTrue(page.size() <= 10);
+            paged.addAll(page);
+            after = page.get(page.size() - 1);
+        }
+
+        assertEquals(completed, paged);
+        assertEquals(new HashSet<>(completed), orderManager.listCompletedOrders());
+    }
+
+    @Test
+    void batchIsSplitByShard() {
+        ShardedOrderManager orderManager = new ShardedOrderManager(4);
+        List<UUID> orderIds = new ArrayList<>();
+        List<OrderCommand> commands = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            UUID orderId = orderManager.createOrder(1, 1);
+            orderIds.add(orderId);
+            commands.add(new OrderCommand.AddPancakes(orderId, new PancakeRequest(List.of("dark chocolate"), 1)));
+            commands.add(new OrderCommand.CompleteOrder(orderId));
+        }
+        UUID missing = UUID.randomUUID();
+        commands.add(new OrderCommand.CompleteOrder(missing));
+
+        BatchResult result = orderManager.applyBatch(commands);
+
+        assertEquals(new HashSet<>(orderIds), result.applied());
+        assertEquals(Set.of(missing), result.rejected().keySet());
+        assertEquals(new HashSet<>(orderIds), orderManager.listCompletedOrders());
+    }
+
+    @Test
+    void addingShardMovesOrdersWithTheirStateAndPancakes() {
+        ShardedOrderManager orderManager = new ShardedOrderManager(3);
+        Map<UUID, Integer> pancakes = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            UUID orderId = orderManager.createOrder(1, 1);
+            orderManager.startNewPancake(orderId);
+            orderManager.addIngredientToPancake(orderId, "dark chocolate");
+            orderManager.addPancake(orderId, 1 + i % 3);
+            pancakes.put(orderId, 1 + i % 3);
+            if (i % 2 == 0) {
+                orderManager.completeOrder(orderId);
+            }
+            orderManager.startNewPancake(orderId);
+        }
+
+        int moved = orderManager.addShard();
+
+        assertEquals(4, orderManager.shardCount());
+        Set<UUID> onNewShard = pancakes.keySet().stream()
+                .filter(orderId -> orderManager.shardOf(orderId) == 3)
+                .collect(Collectors.toSet());
+        assertEquals(onNewShard.size(), moved);
+        assertNotEquals(0, moved);
+        assertEquals(onNewShard.size(),
+                orderManager.shard(3).listCompletedOrders().size() + countCreated(orderManager.shard(3), onNewShard));
+        pancakes.forEach((orderId, count) -> {
+            assertEquals(Map.of(DARK_CHOCOLATE_PANCAKE_DESCRIPTION, count), orderManager.viewOrderSummary(orderId));
+            orderManager.addIngredientToPancake(orderId, "dark chocolate");
+        });
+        assertEquals(150, orderManager.listCompletedOrders().size());
+    }
+
+    @Test
+    void shardsUseThePancakeServicesTheFactorySuppliesAndRetriesAreRouted() {
+        List<Inventory> inventories = new ArrayList<>();
+        ShardedOrderManager orderManager = new ShardedOrderManager(2, ShardedOrderManager.ShardFactory.of(shard -> {
+            Inventory inventory = new Inventory(1);
+            inventory.restock(Ingredient.DARK_CHOCOLATE, 100);
+            inventories.add(inventory);
+            return new PancakeService(Duration.ZERO, inventory);
+        }, (shard, pancakeService) -> new OrderManager(pancakeService)));
+        UUID orderId = orderManager.createOrder(1, 1);
+        Inventory inventory = inventories.get(orderManager.shardOf(orderId));
+
+        orderManager.startNewPancake(orderId);
+        orderManager.addIngredientToPancake(orderId, "dark chocolate");
+        UUID request = UUID.randomUUID();
+        for (int i = 0; i < 2; i++) {
+            orderManager.once(request, orderId, orders -> {
+                orders.addPancake(orderId, 3);
+                return null;
+            });
+        }
+
+        assertEquals(Map.of(DARK_CHOCOLATE_PANCAKE_DESCRIPTION, 3), orderManager.viewOrderSummary(orderId));
+        assertTrue(inventory.available(Ingredient.DARK_CHOCOLATE) < 100);
+        assertEquals(100, inventories.get(1 - orderManager.shardOf(orderId)).available(Ingredient.DARK_CHOCOLATE));
+    }
+
+    @Test
+    void movedOrdersAreNotRebuiltOnTheirOldShard(@TempDir Path directory) {
+        List<OrderJournal> journals = new ArrayList<>();
+        ShardedOrderManager.ShardFactory journaled = (shard, pancakeService) -> {
+            OrderJournal journal = new MappedOrderJournal(JournalConfig.of(directory.resolve("shard-" + shard)));
+            journals.add(journal);
+            return new OrderManager(pancakeService, OrderManagerConfig.defaults().withJournal(journal));
+        };
+        ShardedOrderManager orderManager = new ShardedOrderManager(2, journaled);
+        Set<UUID> orderIds = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            UUID orderId = orderManager.createOrder(1, 1);
+            orderManager.completeOrder(orderId);
+            orderIds.add(orderId);
+        }
+        orderManager.addShard();
+        Set<UUID> onShards = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            onShards.addAll(orderManager.shard(i).listCompletedOrders());
+        }
+        assertEquals(orderIds, onShards);
+        journals.forEach(OrderJournal::close);
+        journals.clear();
+
+        ShardedOrderManager restarted = new ShardedOrderManager(3, journaled);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(orderManager.shard(i).listCompletedOrders(), restarted.shard(i).listCompletedOrders());
+        }
+        journals.forEach(OrderJournal::close);
+    }
+
+    private static int countCreated(OrderManager shard, Set<UUID> orderIds) {
+        int created = 0;
+        for (UUID orderId : orderIds) {
+            if (!shard.viewOrder(orderId).isEmpty() && !shard.listCompletedOrders().contains(orderId)) {
+                created++;
+            }
+        }
+        return created;
+    }
+}